@@ -0,0 +1,123 @@
+package tms.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two sets of benchmark results written by JMH with
+ * "-rf csv", and reports the benchmarks that got slower by more than a
+ * tolerance.
+ * <p>
+ * Arguments: BASELINE_CSV CURRENT_CSV [TOLERANCE_PERCENT]
+ * <p>
+ * The tolerance defaults to 10 percent. The exit status is 1 if any
+ * benchmark regressed, so the comparison can be used to fail a build.
+ */
+public final class CompareBaseline {
+    /** Default regression tolerance, in percent. */
+    private static final double DEFAULT_TOLERANCE = 10;
+
+    private CompareBaseline() {
+    }
+
+    /**
+     * Compares the given result files.
+     *
+     * @param args from the command line.
+     * @throws IOException if a result file cannot be read
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: BASELINE_CSV CURRENT_CSV "
+                    + "[TOLERANCE_PERCENT]");
+            System.exit(1);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2])
+                : DEFAULT_TOLERANCE;
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> current = read(Path.of(args[1]));
+        boolean regressed = false;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("%-60s %12.3f %s (new)%n", entry.getKey(),
+                        after.score, after.unit);
+                continue;
+            }
+            // throughput modes get better as the score rises, the rest fall
+            double change = after.throughput
+                    ? (before.score - after.score) / before.score
+                    : (after.score - before.score) / before.score;
+            boolean slower = change * 100 > tolerance;
+            regressed |= slower;
+            System.out.printf("%-60s %12.3f -> %12.3f %s %+7.1f%%%s%n",
+                    entry.getKey(), before.score, after.score, after.unit,
+                    change * 100, slower ? "  REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /*
+     * Reads a JMH CSV result file into a map from benchmark name and
+     * parameters to result.
+     */
+    private static Map<String, Result> read(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        Map<String, Result> results = new LinkedHashMap<>();
+        String[] header = split(lines.get(0));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = split(line);
+            StringBuilder key = new StringBuilder(fields[0]);
+            for (int i = 7; i < fields.length; i++) {
+                key.append(' ').append(header[i].replace("Param: ", ""))
+                        .append('=').append(fields[i]);
+            }
+            results.put(key.toString(), new Result(
+                    Double.parseDouble(fields[4]), fields[6],
+                    fields[1].equals("thrpt")));
+        }
+        return results;
+    }
+
+    /*
+     * Splits a CSV line written by JMH, whose fields are all quoted or
+     * plain numbers without commas.
+     */
+    private static String[] split(String line) {
+        String[] fields = line.split(",", -1);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].replace("\"", "");
+        }
+        return fields;
+    }
+
+    /**
+     * Score of one benchmark.
+     */
+    private static class Result {
+        /** Score of the benchmark. */
+        private final double score;
+        /** Unit of the score. */
+        private final String unit;
+        /** Whether a higher score is better. */
+        private final boolean throughput;
+
+        /**
+         * Creates a result.
+         *
+         * @param score score of the benchmark
+         * @param unit unit of the score
+         * @param throughput whether a higher score is better
+         */
+        Result(double score, String unit, boolean throughput) {
+            this.score = score;
+            this.unit = unit;
+            this.throughput = throughput;
+        }
+    }
+}
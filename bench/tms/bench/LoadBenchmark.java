@@ -0,0 +1,47 @@
+package tms.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a network from a text file.
+ * <p>
+ * Each load gets a TimedItemManager of its own, so the loaded networks are
+ * never ticked, and their sensors and lights can be collected along with
+ * them once the benchmark has returned them. A load takes from about a
+ * tenth of a second to a second, so loads are timed one at a time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoadBenchmark {
+
+    /**
+     * Loads the network file.
+     *
+     * @param state network state holding the file to load
+     * @return the loaded network
+     * @throws IOException if the file cannot be read
+     * @throws InvalidNetworkException if the file is invalid
+     */
+    @Benchmark
+    public Network loadNetwork(NetworkState state)
+            throws IOException, InvalidNetworkException {
+        return NetworkInitialiser.loadNetwork(state.file.toString(), null,
+                new TimedItemManager());
+    }
+}
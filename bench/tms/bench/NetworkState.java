@@ -0,0 +1,59 @@
+package tms.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tms.network.Network;
+import tms.network.NetworkGenerator;
+import tms.network.NetworkInitialiser;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A synthetic grid network shared by the benchmarks of one trial.
+ * <p>
+ * Every intersection has traffic lights and every route has one sensor; the
+ * rest of the network is as written by NetworkGenerator with seed 0.
+ * <p>
+ * The network is loaded once per trial, with a TimedItemManager of its own,
+ * so advancing that manager ticks only this network's sensors and lights,
+ * and networks loaded by other benchmarks in the same fork are not ticked
+ * along with it.
+ */
+@State(Scope.Benchmark)
+public class NetworkState {
+    /** Number of intersections along each side of the grid. */
+    @Param({"32", "128"})
+    public int gridSize;
+
+    /** File the network was loaded from. */
+    public Path file;
+    /** The loaded network. */
+    public Network network;
+
+    /**
+     * Writes and loads the network.
+     *
+     * @throws IOException if the network file cannot be written or read
+     * @throws InvalidNetworkException if the generated file is invalid
+     */
+    @Setup
+    public void setUp() throws IOException, InvalidNetworkException {
+        file = Files.createTempFile("grid" + gridSize, ".txt");
+        file.toFile().deleteOnExit();
+        NetworkGenerator generator = new NetworkGenerator(
+                NetworkGenerator.Layout.GRID, gridSize * gridSize, 0);
+        generator.setLightProbability(1);
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            generator.write(writer);
+        }
+        network = NetworkInitialiser.loadNetwork(file.toString(), null,
+                new TimedItemManager());
+    }
+}
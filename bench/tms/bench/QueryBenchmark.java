@@ -0,0 +1,220 @@
+package tms.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.network.NetworkRouter;
+import tms.network.NetworkWriter;
+import tms.route.Route;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a loaded network: route congestion, route lookup,
+ * writing the network out, comparing and hashing networks, and finding
+ * paths.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+    /** Number of routes looked up per call of the lookup benchmarks. */
+    private static final int LOOKUPS = 1024;
+    /** Number of paths found per call of the routing benchmark. */
+    private static final int PATHS = 64;
+
+    /** A second copy of the network, loaded from the same file. */
+    private Network copy;
+    /** Routes whose congestion is read, in random order. */
+    private List<Route> routes;
+    /** Origins of the routes looked up. */
+    private String[] from;
+    /** Destinations of the routes looked up. */
+    private String[] to;
+    /** Router over the network. */
+    private NetworkRouter router;
+    /** Origins of the paths found. */
+    private String[] pathFrom;
+    /** Destinations of the paths found. */
+    private String[] pathTo;
+    /** Congestion of every route, filled by the batch benchmark. */
+    private int[] congestion;
+    /** A route of the network with a speed sign. */
+    private Route signedRoute;
+
+    /**
+     * Loads the copy of the network and picks the routes to query.
+     *
+     * @param state network state to query
+     * @throws IOException if the network file cannot be read
+     * @throws InvalidNetworkException if the network file is invalid
+     */
+    @Setup
+    public void setUp(NetworkState state)
+            throws IOException, InvalidNetworkException {
+        copy = NetworkInitialiser.loadNetwork(state.file.toString(), null,
+                new TimedItemManager());
+        Random random = new Random(0);
+        Network network = state.network;
+        routes = new ArrayList<>(LOOKUPS);
+        from = new String[LOOKUPS];
+        to = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int index = random.nextInt(network.getIntersectionCount());
+            List<Route> outgoing = network.getOutgoingRoutes(index);
+            Route route = outgoing.get(random.nextInt(outgoing.size()));
+            routes.add(route);
+            from[i] = route.getFrom().getId();
+            to[i] = route.getTo().getId();
+        }
+        router = new NetworkRouter(network);
+        pathFrom = new String[PATHS];
+        pathTo = new String[PATHS];
+        for (int i = 0; i < PATHS; i++) {
+            pathFrom[i] = "I" + random.nextInt(
+                    network.getIntersectionCount());
+            pathTo[i] = "I" + random.nextInt(network.getIntersectionCount());
+        }
+        congestion = new int[network.getRouteCount()];
+        for (int i = 0; signedRoute == null; i++) {
+            for (Route route : network.getOutgoingRoutes(i)) {
+                if (route.hasSpeedSign()) {
+                    signedRoute = route;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the congestion of every route in the network into an array.
+     *
+     * @param state network state to query
+     * @return the array of congestion levels
+     */
+    @Benchmark
+    public int[] batchCongestion(NetworkState state) {
+        state.network.getCongestion(congestion);
+        return congestion;
+    }
+
+    /**
+     * Reads the congestion of {@value #LOOKUPS} routes.
+     *
+     * @return sum of the congestion levels read
+     */
+    @Benchmark
+    public int getCongestion() {
+        int sum = 0;
+        for (Route route : routes) {
+            sum += route.getCongestion();
+        }
+        return sum;
+    }
+
+    /**
+     * Looks up {@value #LOOKUPS} routes by the IDs of their intersections.
+     *
+     * @param state network state to query
+     * @return sum of the default speeds of the routes found
+     * @throws IntersectionNotFoundException if an intersection is missing
+     * @throws RouteNotFoundException if a route is missing
+     */
+    @Benchmark
+    public int getConnection(NetworkState state)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        int sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += state.network.getConnection(from[i], to[i])
+                    .getDefaultSpeed();
+        }
+        return sum;
+    }
+
+    /**
+     * Formats the whole network as a string.
+     *
+     * @param state network state to format
+     * @return the formatted network
+     */
+    @Benchmark
+    public String networkToString(NetworkState state) {
+        return state.network.toString();
+    }
+
+    /**
+     * Writes the whole network to a writer that discards its output, as
+     * saving does apart from the file system.
+     *
+     * @param state network state to write
+     * @throws IOException never, as the writer discards its output
+     */
+    @Benchmark
+    public void save(NetworkState state) throws IOException {
+        new NetworkWriter(Writer.nullWriter()).write(state.network);
+    }
+
+    /**
+     * Compares the network with a copy loaded from the same file.
+     *
+     * @param state network state to compare
+     * @return true, as the networks are equal
+     */
+    @Benchmark
+    public boolean networkEquals(NetworkState state) {
+        return state.network.equals(copy);
+    }
+
+    /**
+     * Hashes the whole network.
+     * <p>
+     * The network caches its hash code until it changes, so a route's speed
+     * limit is first set to its current value. This changes nothing but the
+     * network's change count, so the hash is worked out again on every call
+     * rather than read from the cache.
+     *
+     * @param state network state to hash
+     * @return the network's hash code
+     */
+    @Benchmark
+    public int networkHashCode(NetworkState state) {
+        signedRoute.setSpeedLimit(signedRoute.getSpeed());
+        return state.network.hashCode();
+    }
+
+    /**
+     * Finds the fastest paths between {@value #PATHS} random pairs of
+     * intersections.
+     *
+     * @return sum of the travel times of the paths
+     * @throws IntersectionNotFoundException if an intersection is missing
+     */
+    @Benchmark
+    public double fastestPath() throws IntersectionNotFoundException {
+        double sum = 0;
+        for (int i = 0; i < PATHS; i++) {
+            sum += router.getTravelTime(pathFrom[i], pathTo[i]);
+        }
+        return sum;
+    }
+}
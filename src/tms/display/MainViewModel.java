@@ -4,13 +4,16 @@ import javafx.application.Platform;
 import javafx.beans.property.*;
 import tms.intersection.Intersection;
 import tms.network.Network;
+import tms.network.NetworkWriter;
 import tms.route.Route;
 import tms.sensors.*;
 import tms.util.*;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -86,13 +89,13 @@ public class MainViewModel {
      *
      * @param filename path of file to which the network is saved
      * @see Network#toString()
+     * @see NetworkWriter#write(Network)
      * @ass2 View-Model code for A2.
      */
     public void save(String filename) {
-        try{
-            BufferedWriter file = new BufferedWriter(new FileWriter(filename));
-            file.write(network.toString());
-            file.close();
+        try (Writer file = Files.newBufferedWriter(Paths.get(filename),
+                StandardCharsets.UTF_8)) {
+            new NetworkWriter(file).write(network);
         }
         catch (IOException e) {
                 error.setValue("Error about write file");
@@ -147,7 +150,7 @@ public class MainViewModel {
      */
     public void tick() {
         if (! pausedProperty.get()) {
-            TimedItemManager.getTimedItemManager().oneSecond();
+            network.getTimedItemManager().oneSecond();
             changedStructureProperty.set(true);
             seconds.set(seconds.get() + 1);
             timeElapsed.set("Seconds Elapsed: " + seconds.getValue().toString());
@@ -372,13 +375,16 @@ public class MainViewModel {
             Sensor sensor;
             switch (sensorType) {
                 case "PP":
-                    sensor = new DemoPressurePad(data, thresh);
+                    sensor = new DemoPressurePad(data, thresh,
+                            network.getTimedItemManager());
                     break;
                 case "SC":
-                    sensor = new DemoSpeedCamera(data, thresh);
+                    sensor = new DemoSpeedCamera(data, thresh,
+                            network.getTimedItemManager());
                     break;
                 case "VC":
-                    sensor = new DemoVehicleCount(data, thresh);
+                    sensor = new DemoVehicleCount(data, thresh,
+                            network.getTimedItemManager());
                     break;
                 default:
                     error.setValue(String.format(
@@ -439,10 +445,15 @@ public class MainViewModel {
      * @ass2_given View-Model code for A2.
      */
     public void reduceIncomingSpeeds() {
-        if (isRouteSelected().not().getValue()) {
-            selectedIntersection.reduceIncomingSpeedSigns();
-        } else {
-            (selectedRoute.getFrom()).reduceIncomingSpeedSigns();
+        try {
+            if (isRouteSelected().not().getValue()) {
+                network.reduceIncomingSpeedSigns(selectedIntersection.getId());
+            } else {
+                network.reduceIncomingSpeedSigns(
+                        selectedRoute.getFrom().getId());
+            }
+        } catch (IntersectionNotFoundException e) {
+            error.setValue("Error reducing speed signs: " + e.getMessage());
         }
     }
 
@@ -3,13 +3,17 @@ package tms.intersection;
 import tms.network.NetworkInitialiser;
 import tms.route.Route;
 import tms.route.TrafficSignal;
+import tms.util.ChangeCounter;
 import tms.util.InvalidOrderException;
 import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a point at which routes can originate and terminate.
@@ -23,18 +27,32 @@ public class Intersection {
     private String id;
     /** List of routes that terminate here. */
     private List<Route> incomingConnections;
+    /** Routes that terminate here, keyed by the ID of their origin. */
+    private Map<String, Route> connectionsByOrigin;
     /**
      * Amount by which to reduce the speed limit of speed signs on incoming
      * routes.
      */
-    private static final int SPEED_REDUCTION_AMOUNT = 10;
+    public static final int SPEED_REDUCTION_AMOUNT = 10;
     /**
      * Speed signs with a speed limit below this amount will not have their
      * displayed speed reduced.
      */
-    private static final int SPEED_REDUCTION_CUTOFF = 50;
+    public static final int SPEED_REDUCTION_CUTOFF = 50;
     /** traffic light with a yellow time and duration time. */
     private IntersectionLights allLights;
+    /**
+     * Hash of the ID and the light order, worked out on first use; 0 if not
+     * yet worked out.
+     */
+    private int structureHash;
+    /** Manager that traffic lights added to this intersection register with. */
+    private TimedItemManager timedItemManager;
+    /**
+     * Counter shared with the network this intersection belongs to, and with
+     * its routes and traffic lights.
+     */
+    private ChangeCounter changes;
 
     /**
      * Creates a new intersection with the given identifier.
@@ -43,8 +61,39 @@ public class Intersection {
      * @ass1
      */
     public Intersection(String id) {
+        this(id, TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Creates a new intersection with the given identifier, whose traffic
+     * lights will be registered with the given timed item manager.
+     *
+     * @param id a unique string identifier
+     * @param timedItemManager manager to register traffic lights with
+     */
+    public Intersection(String id, TimedItemManager timedItemManager) {
+        this(id, timedItemManager, new ChangeCounter());
+    }
+
+    /**
+     * Creates a new intersection like
+     * {@link Intersection#Intersection(String, TimedItemManager)}, which
+     * increments the given counter whenever it, one of its incoming routes
+     * or its traffic lights change in a way that affects its network's
+     * hash code.
+     *
+     * @param id a unique string identifier
+     * @param timedItemManager manager to register traffic lights with
+     * @param changes counter of changes to the network the intersection
+     *                belongs to
+     */
+    public Intersection(String id, TimedItemManager timedItemManager,
+            ChangeCounter changes) {
         this.id = id;
         this.incomingConnections = new ArrayList<>();
+        this.connectionsByOrigin = new HashMap<>();
+        this.timedItemManager = timedItemManager;
+        this.changes = changes;
     }
 
     /**
@@ -85,6 +134,16 @@ public class Intersection {
             return true;
         }
     }
+
+    /**
+     * Returns the traffic lights at this intersection, or null if it has
+     * none.
+     *
+     * @return this intersection's traffic lights
+     */
+    public IntersectionLights getTrafficLights() {
+        return allLights;
+    }
     /**
      * Gets a list containing all intersections that have incoming routes to
      * this intersection.
@@ -133,7 +192,8 @@ public class Intersection {
      * a new IntersectionLights instance should be added to this intersection.
      *
      * The traffic lights will go green for incoming routes in the order
-     * specified.
+     * specified. Lights already at this intersection are replaced and
+     * deregistered from their timed item manager.
      *
      * If any of the below conditions are true, then the method should throw
      * an exception as detailed below and make no changes to this intersection:
@@ -186,7 +246,13 @@ public class Intersection {
         for (Route demo : order) {
             demo.addTrafficLight();
         }
-        allLights = new IntersectionLights(order,yellowTime,duration);
+        if (allLights != null) {
+            timedItemManager.deregisterTimedItem(allLights);
+        }
+        allLights = new IntersectionLights(order, yellowTime, duration,
+                timedItemManager, changes);
+        structureHash = 0;
+        changes.increment();
     }
 
     /**
@@ -218,18 +284,20 @@ public class Intersection {
         if (defaultSpeed < 0) {
             throw new IllegalArgumentException("Speed must be positive");
         }
-        if (getConnectedIntersections().contains(from)) {
+        if (connectionsByOrigin.containsKey(from.getId())) {
             throw new IllegalStateException(
                     "Connection already exists from intersection: \""
                             + from.getId() + "\"");
         }
         Route newRoute = new Route(
                 from + NetworkInitialiser.LINE_INFO_SEPARATOR + id,
-                from, defaultSpeed);
+                from, this, defaultSpeed, changes);
         if (this.hasTrafficLights()) {
             newRoute.addTrafficLight();
         }
         incomingConnections.add(newRoute);
+        connectionsByOrigin.put(from.getId(), newRoute);
+        changes.increment();
     }
 
     /**
@@ -271,15 +339,29 @@ public class Intersection {
      */
     public Route getConnection(Intersection from)
             throws RouteNotFoundException {
-        for (Route route : incomingConnections) {
-            if (route.getFrom().equals(from)) {
-                return route;
-            }
+        Route route = getConnectionOrNull(from);
+        if (route != null) {
+            return route;
         }
         throw new RouteNotFoundException("Route not found from \""
                 + from.getId() + "\" to \"" + this.getId() + "\"");
     }
 
+    /**
+     * Given an origin intersection, returns the route that connects it to this
+     * destination intersection, or null if there is no such route.
+     * <p>
+     * Unlike {@link Intersection#getConnection(Intersection)}, a miss does
+     * not create an exception, so this is suitable for code that expects many
+     * lookups to fail.
+     *
+     * @param from an intersection that may be connected to this intersection
+     * @return the route that goes from 'from' to this intersection, or null
+     */
+    public Route getConnectionOrNull(Intersection from) {
+        return connectionsByOrigin.get(from.getId());
+    }
+
     /**
      * Returns true if and only if this intersection is equal to the
      * other given intersection.
@@ -304,14 +386,53 @@ public class Intersection {
         }
     }
 
+    /**
+     * Returns true if this intersection has the same ID as the given one,
+     * and either neither has traffic lights or both have lights with the
+     * same duration and order of origin IDs.
+     * <p>
+     * This is the information in toString(), compared without building any
+     * strings.
+     *
+     * @param other intersection to compare with
+     * @return whether the IDs and traffic lights are the same
+     */
+    public boolean hasSameStructure(Intersection other) {
+        if (!id.equals(other.id)
+                || hasTrafficLights() != other.hasTrafficLights()) {
+            return false;
+        }
+        return !hasTrafficLights()
+                || allLights.hasSameDurationAndOrder(other.allLights);
+    }
+
     /**
      * Returns the hash code of this intersection.
      * Two intersections that are equal must have the same hash code.
      * <p>
+     * The hash covers the same information as toString(), the ID and the
+     * duration and order of the traffic lights, but is computed from those
+     * fields. The part for the ID and order is cached, so no strings are
+     * built.
+     * <p>
      * @return hash code of the intersection
      */
     public int hashCode() {
-        return this.toString().hashCode();
+        int hash = structureHash;
+        if (hash == 0) {
+            hash = id.hashCode();
+            if (hasTrafficLights()) {
+                for (Route route : allLights.getOrder()) {
+                    hash = 31 * hash + route.getFrom().getId().hashCode();
+                }
+            }
+            structureHash = hash;
+        }
+        if (hasTrafficLights()) {
+            // the duration can change through the lights, so is not cached
+            hash = 31 * hash + allLights.getDuration();
+        }
+        return hash;
     }
 
     /**
@@ -2,12 +2,17 @@ package tms.intersection;
 
 import tms.route.Route;
 import tms.route.TrafficSignal;
-import tms.util.TimedItem;
+import tms.util.ChangeCounter;
+import tms.util.PhasedTimedItem;
+import tms.util.ScheduledTimedItem;
+import tms.util.SimulationBinding;
 import tms.util.TimedItemManager;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class IntersectionLights extends Object implements TimedItem {
+public class IntersectionLights extends Object
+        implements PhasedTimedItem, ScheduledTimedItem {
     /** a list of incoming routes, the list cannot be empty. */
     private List<Route> connections;
     /** time in seconds for which lights will appear yellow. */
@@ -20,6 +25,20 @@ public class IntersectionLights extends Object implements TimedItem {
     private int currentGreenTime = 0;
     /** record the current yellow time. */
     private int currentYellowTime = 0;
+    /** signal the current route changes to on the next commit, if any. */
+    private TrafficSignal pendingSignal;
+    /** green time to record on the next commit. */
+    private int pendingGreenTime;
+    /** yellow time to record on the next commit. */
+    private int pendingYellowTime;
+    /** manager these lights are registered with. */
+    private TimedItemManager timedItemManager;
+    /** simulation core holding the light timings, null if not bound. */
+    private SimulationBinding core;
+    /** index of these lights in the simulation core. */
+    private int coreIndex;
+    /** counter shared with the network these lights belong to. */
+    private ChangeCounter changes;
 
     /**
      * Creates a new set of traffic lights at an intersection.
@@ -35,11 +54,53 @@ public class IntersectionLights extends Object implements TimedItem {
      */
     public IntersectionLights(List<Route> connections, int yellowTime,
                               int duration) {
+        this(connections, yellowTime, duration,
+                TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Creates a new set of traffic lights at an intersection, like
+     * {@link IntersectionLights#IntersectionLights(List, int, int)},
+     * registered with the given timed item manager instead of the shared
+     * one.
+     *
+     * @param connections  a list of incoming routes, the list cannot be empty
+     * @param yellowTime time in seconds for which lights will appear yellow
+     * @param duration time in seconds for which lights will appear yellow
+     *        and green.
+     * @param timedItemManager manager to register the lights with
+     */
+    public IntersectionLights(List<Route> connections, int yellowTime,
+                              int duration,
+                              TimedItemManager timedItemManager) {
+        this(connections, yellowTime, duration, timedItemManager,
+                new ChangeCounter());
+    }
+
+    /**
+     * Creates a new set of traffic lights at an intersection, like
+     * {@link IntersectionLights#IntersectionLights(List, int, int,
+     * TimedItemManager)}, which increments the given counter whenever its
+     * duration changes.
+     *
+     * @param connections  a list of incoming routes, the list cannot be empty
+     * @param yellowTime time in seconds for which lights will appear yellow
+     * @param duration time in seconds for which lights will appear yellow
+     *        and green.
+     * @param timedItemManager manager to register the lights with
+     * @param changes counter of changes to the network the lights belong to
+     */
+    public IntersectionLights(List<Route> connections, int yellowTime,
+                              int duration,
+                              TimedItemManager timedItemManager,
+                              ChangeCounter changes) {
         this.connections = connections;
+        this.changes = changes;
         connections.get(0).setSignal(TrafficSignal.GREEN);
         this.yellowTime = yellowTime;
         this.duration = duration;
-        TimedItemManager.getTimedItemManager().registerTimedItem(this);
+        this.timedItemManager = timedItemManager;
+        timedItemManager.registerTimedItem(this);
     }
 
     /**
@@ -52,6 +113,58 @@ public class IntersectionLights extends Object implements TimedItem {
         return yellowTime;
     }
 
+    /**
+     * Returns the time in seconds for which each route's light appears green
+     * and yellow.
+     *
+     * @return duration of each green-yellow cycle
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns a new list of the routes controlled by these lights, in the
+     * order their lights go green.
+     *
+     * @return incoming routes in light order
+     */
+    public List<Route> getOrder() {
+        return new ArrayList<>(connections);
+    }
+
+    /**
+     * Returns the index in the light order of the route whose light is
+     * currently green or yellow.
+     *
+     * @return index of the current route in getOrder()
+     */
+    public int getCurrentIndex() {
+        timedItemManager.catchUp(this);
+        return lightIndex;
+    }
+
+    /**
+     * Returns the number of seconds since the light of the current route went
+     * green, or -1 if the lights are not cycling because the current route's
+     * light is neither green nor yellow.
+     *
+     * @return position of the lights within the current route's cycle
+     */
+    public int getCyclePosition() {
+        timedItemManager.catchUp(this);
+        TrafficSignal signal = connections.isEmpty() ? null
+                : connections.get(lightIndex).getTrafficLight().getSignal();
+        if (signal != TrafficSignal.GREEN && signal != TrafficSignal.YELLOW) {
+            return -1;
+        }
+        if (core != null) {
+            return core.getLightsPosition(coreIndex);
+        }
+        return signal == TrafficSignal.YELLOW
+                ? duration - yellowTime + currentYellowTime : currentGreenTime;
+    }
+
     /**
      * Sets a new duration of each green-yellow cycle.
      * The current progress of the lights cycle should be reset, such that
@@ -64,14 +177,20 @@ public class IntersectionLights extends Object implements TimedItem {
      * duration > getYellowTime()
      */
     public void setDuration(int duration) {
+        timedItemManager.catchUp(this);
         this.duration = duration;
         if (connections.get(lightIndex).getTrafficLight().getSignal()
                 == TrafficSignal.YELLOW) {
             connections.get(lightIndex).getTrafficLight().setSignal
                     (TrafficSignal.GREEN);
         }
+        if (core != null) {
+            core.setLightsDuration(coreIndex, duration);
+        }
         currentGreenTime = 0;
         currentYellowTime = 0;
+        timedItemManager.reschedule(this);
+        changes.increment();
     }
 
     /**
@@ -95,36 +214,220 @@ public class IntersectionLights extends Object implements TimedItem {
      * oneSecond in interface TimedItem
      */
     public void oneSecond() {
+        prepareSecond();
+        commitSecond();
+    }
+
+    /**
+     * Moves the light timings of this set of traffic lights into the given
+     * simulation core.
+     * <p>
+     * From then on the core advances these lights and changes the signals of
+     * their routes, and the lights are no longer advanced by the
+     * {@link TimedItemManager} on their own: oneSecond(), advance(long) and
+     * the two phases of a second do nothing, and secondsUntilChange()
+     * returns NEVER. setDuration(int) still applies to the core.
+     * <p>
+     * If the current route's light is neither green nor yellow when the
+     * lights are bound, they never change, as when they are not bound.
+     *
+     * @param core simulation core to move the light timings into
+     * @throws IllegalStateException if these lights are already bound
+     */
+    public void bindTo(SimulationBinding core) {
+        if (this.core != null) {
+            throw new IllegalStateException("lights are already bound to a "
+                    + "simulation core");
+        }
+        timedItemManager.catchUp(this);
+        TrafficSignal signal = connections.isEmpty() ? null
+                : connections.get(lightIndex).getTrafficLight().getSignal();
+        boolean running = signal == TrafficSignal.GREEN
+                || signal == TrafficSignal.YELLOW;
+        int position = signal == TrafficSignal.YELLOW
+                ? duration - yellowTime + currentYellowTime : currentGreenTime;
+        coreIndex = core.addLights(duration, yellowTime, connections.size(),
+                lightIndex, position, running, this::applyPhase);
+        this.core = core;
+        timedItemManager.reschedule(this);
+    }
+
+    /*
+     * Changes the route signals as told by the simulation core: the lights
+     * of the routes passed turn red, and the given route's light turns
+     * yellow or green.
+     */
+    private void applyPhase(int previousRoute, long routesPassed, int route,
+            boolean yellow) {
         int routeSize = connections.size();
-        if (routeSize != 0) {
-            // if the signal is green.
-            if (connections.get(lightIndex).getTrafficLight().getSignal()
-                    == TrafficSignal.GREEN) {
-                currentGreenTime ++;
-                if (currentGreenTime + yellowTime == duration) {
-                    connections.get(lightIndex).getTrafficLight().setSignal
-                            (TrafficSignal.YELLOW);
-                    currentGreenTime = 0;
-                }
+        for (long k = 0; k < Math.min(routesPassed, routeSize); k++) {
+            connections.get((int) ((previousRoute + k) % routeSize))
+                    .getTrafficLight().setSignal(TrafficSignal.RED);
+        }
+        lightIndex = route;
+        connections.get(route).getTrafficLight().setSignal(yellow
+                ? TrafficSignal.YELLOW : TrafficSignal.GREEN);
+    }
+
+    /**
+     * Returns the number of seconds until the current green light turns
+     * yellow, or the current yellow light turns red.
+     * <p>
+     * If no routes are connected, the current route's light is neither
+     * green nor yellow, or its timings have already passed the point at which
+     * it would change, the lights never change. Lights bound to a simulation
+     * core are changed by the core, so never change on their own.
+     *
+     * Specified by:
+     * secondsUntilChange in interface ScheduledTimedItem
+     *
+     * @return seconds until the next signal change
+     */
+    @Override
+    public long secondsUntilChange() {
+        if (core != null || connections.size() == 0) {
+            return NEVER;
+        }
+        TrafficSignal signal = connections.get(lightIndex).getTrafficLight()
+                .getSignal();
+        long seconds = NEVER;
+        if (signal == TrafficSignal.GREEN) {
+            seconds = duration - yellowTime - currentGreenTime;
+        } else if (signal == TrafficSignal.YELLOW) {
+            seconds = yellowTime - currentYellowTime;
+        }
+        return seconds > 0 ? seconds : NEVER;
+    }
+
+    /**
+     * Simulates the given number of seconds passing, with the same result as
+     * calling {@link IntersectionLights#oneSecond()} that many times.
+     * <p>
+     * Each route's light goes through one green-yellow cycle of 'duration'
+     * seconds before the next route's light goes green, so the resulting
+     * route, signal and timings are worked out arithmetically from the
+     * position within the current cycle. The cost does not depend on the
+     * number of seconds.
+     *
+     * Specified by:
+     * advance in interface ScheduledTimedItem
+     *
+     * @param seconds number of seconds to advance by
+     */
+    @Override
+    public void advance(long seconds) {
+        if (seconds <= 0 || secondsUntilChange() == NEVER) {
+            return;
+        }
+        int greenTime = duration - yellowTime;
+        TrafficSignal signal = connections.get(lightIndex).getTrafficLight()
+                .getSignal();
+        // seconds since the current route's light went green
+        long position = signal == TrafficSignal.GREEN ? currentGreenTime
+                : greenTime + currentYellowTime;
+        long total = position + seconds;
+        long routesPassed = total / duration;
+        int newPosition = (int) (total % duration);
+        int routeSize = connections.size();
+        for (long k = 0; k < Math.min(routesPassed, routeSize); k++) {
+            connections.get((int) ((lightIndex + k) % routeSize))
+                    .getTrafficLight().setSignal(TrafficSignal.RED);
+        }
+        lightIndex = (int) ((lightIndex + routesPassed) % routeSize);
+        if (newPosition < greenTime) {
+            currentGreenTime = newPosition;
+            currentYellowTime = 0;
+            signal = TrafficSignal.GREEN;
+        } else {
+            currentGreenTime = 0;
+            currentYellowTime = newPosition - greenTime;
+            signal = TrafficSignal.YELLOW;
+        }
+        connections.get(lightIndex).getTrafficLight().setSignal(signal);
+    }
+
+    /**
+     * Works out the light timings and the signal change (if any) caused by
+     * one second passing, without changing the signals of any route.
+     *
+     * Specified by:
+     * prepareSecond in interface PhasedTimedItem
+     */
+    @Override
+    public void prepareSecond() {
+        pendingSignal = null;
+        pendingGreenTime = currentGreenTime;
+        pendingYellowTime = currentYellowTime;
+        if (core != null || connections.size() == 0) {
+            return;
+        }
+        TrafficSignal signal = connections.get(lightIndex).getTrafficLight()
+                .getSignal();
+        // if the signal is green.
+        if (signal == TrafficSignal.GREEN) {
+            pendingGreenTime++;
+            if (pendingGreenTime + yellowTime == duration) {
+                pendingSignal = TrafficSignal.YELLOW;
+                pendingGreenTime = 0;
+            }
+        }
+        // if the signal is yellow.
+        else if (signal == TrafficSignal.YELLOW) {
+            pendingYellowTime++;
+            if (pendingYellowTime == yellowTime) {
+                pendingSignal = TrafficSignal.RED;
+                pendingYellowTime = 0;
             }
-            // if the signal is yellow.
-            else if (connections.get(lightIndex).getTrafficLight().getSignal()
-                    == TrafficSignal.YELLOW) {
-                currentYellowTime ++;
-                if (currentYellowTime == yellowTime) {
-                    connections.get(lightIndex).getTrafficLight().setSignal
-                            (TrafficSignal.RED);
-                    currentYellowTime = 0;
-                    if(lightIndex == connections.size() - 1){
-                        lightIndex = 0;
-                    } else {
-                        lightIndex ++;
-                    }
-                    connections.get(lightIndex).getTrafficLight().setSignal
-                            (TrafficSignal.GREEN);
-                }
+        }
+    }
+
+    /**
+     * Applies the timings and signal change worked out by the last call to
+     * {@link IntersectionLights#prepareSecond()}. When the current route turns
+     * red, the next route in the order is given a green light.
+     *
+     * Specified by:
+     * commitSecond in interface PhasedTimedItem
+     */
+    @Override
+    public void commitSecond() {
+        currentGreenTime = pendingGreenTime;
+        currentYellowTime = pendingYellowTime;
+        if (pendingSignal == null) {
+            return;
+        }
+        connections.get(lightIndex).getTrafficLight().setSignal(pendingSignal);
+        if (pendingSignal == TrafficSignal.RED) {
+            if (lightIndex == connections.size() - 1) {
+                lightIndex = 0;
+            } else {
+                lightIndex++;
+            }
+            connections.get(lightIndex).getTrafficLight().setSignal
+                    (TrafficSignal.GREEN);
+        }
+        pendingSignal = null;
+    }
+
+    /**
+     * Returns true if these lights have the same duration as the given
+     * lights, and their routes go green in the same order of origin IDs.
+     *
+     * @param other lights to compare with
+     * @return whether the durations and orders are the same
+     */
+    boolean hasSameDurationAndOrder(IntersectionLights other) {
+        if (duration != other.duration
+                || connections.size() != other.connections.size()) {
+            return false;
+        }
+        for (int i = 0; i < connections.size(); i++) {
+            if (!connections.get(i).getFrom().getId().equals(
+                    other.connections.get(i).getFrom().getId())) {
+                return false;
             }
         }
+        return true;
     }
 
     /**
@@ -146,9 +449,9 @@ public class IntersectionLights extends Object implements TimedItem {
      */
     @Override
     public String toString() {
-        String intersectionName = "";
+        StringBuilder intersectionName = new StringBuilder();
         for (Route demo : connections) {
-            intersectionName += demo.getFrom() + ",";
+            intersectionName.append(demo.getFrom().getId()).append(",");
         }
         return duration + ":" + intersectionName.substring(0,
                 intersectionName.length() - 1);
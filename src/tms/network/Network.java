@@ -4,27 +4,106 @@ import tms.congestion.AveragingCongestionCalculator;
 import tms.intersection.Intersection;
 import tms.route.Route;
 import tms.sensors.Sensor;
+import tms.util.ChangeCounter;
 import tms.util.DuplicateSensorException;
 import tms.util.IntersectionNotFoundException;
 import tms.util.InvalidOrderException;
 import tms.util.RouteNotFoundException;
+import tms.util.LongHashMap;
+import tms.util.ParallelTickEngine;
+import tms.util.TimedItem;
+import tms.util.TimedItemManager;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.RecursiveAction;
 
 public class Network {
+    /** Number of routes read by a single task when reading congestion. */
+    public static final int CONGESTION_SHARD_SIZE = 4096;
+
     /**Tree map of Intersections and ID. */
     private TreeMap<String, Intersection> intersections;
-    /**Tree map of routes and ID. */
-    private TreeMap<String, Route> routes;
+    /** Number of routes in this network. */
+    private int routeCount;
     /** time in seconds for which lights will appear yellow. */
     private int yellowTime;
+    /** Dense index of each intersection, in order of creation. */
+    private Map<String, Integer> intersectionIndices;
+    /** Intersections by index. */
+    private List<Intersection> intersectionsByIndex;
+    /** Routes ending at each intersection, by intersection index. */
+    private List<List<Route>> incomingRoutes;
+    /** Routes starting at each intersection, by intersection index. */
+    private List<List<Route>> outgoingRoutes;
+    /** Every route, keyed by its origin and destination indices. */
+    private LongHashMap<Route> routesByEnds;
+    /** Manager the timed items of this network are registered with. */
+    private TimedItemManager timedItemManager;
+    /** Lifetime of the timed items owned by this network. */
+    private TimedItemManager.Lifetime lifetime;
+    /** Routes by dense route index, or null if not yet indexed. */
+    private Route[] denseRoutes;
+    /** Dense index of each route, keyed by route ID. */
+    private Map<String, Integer> routeIndices;
+    /**
+     * Counter of changes to this network, shared with its intersections,
+     * routes and traffic lights.
+     */
+    private ChangeCounter changes;
+    /** Change count when hashCode was cached, or -1. */
+    private long hashedChangeCount = -1;
+    /** Hash code cached by hashCode(). */
+    private int hashCode;
+    /** State last copied by NetworkState.of, kept up to date, or null. */
+    private NetworkState keptState;
+    /** Change count when keptState was last brought up to date. */
+    private long keptChangeCount;
 
     /**
-     * Creates a new empty network with no intersections.
+     * Creates a new empty network with no intersections, whose timed items
+     * are registered with the shared timed item manager.
      */
     public Network() {
+        this(TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Creates a new empty network with no intersections, whose traffic
+     * lights, and sensors created by NetworkInitialiser, are registered with
+     * the given timed item manager.
+     * <p>
+     * Giving each network its own manager lets several networks be
+     * simulated independently, each advanced by calling oneSecond() or
+     * advance(long) on its own manager.
+     * <p>
+     * The traffic lights and sensors added to the network belong to it: once
+     * the network is garbage collected they are deregistered from the
+     * manager, so discarded networks are not ticked forever.
+     *
+     * @param timedItemManager manager to register timed items with
+     */
+    public Network(TimedItemManager timedItemManager) {
+        this.timedItemManager = timedItemManager;
+        this.lifetime = timedItemManager.newLifetime(this);
         this.intersections = new TreeMap<>();
-        this.routes = new TreeMap<>();
+        this.intersectionIndices = new HashMap<>();
+        this.intersectionsByIndex = new ArrayList<>();
+        this.incomingRoutes = new ArrayList<>();
+        this.outgoingRoutes = new ArrayList<>();
+        this.routesByEnds = new LongHashMap<>();
+        this.changes = new ChangeCounter();
+    }
+
+    /**
+     * Returns the timed item manager that advances this network.
+     *
+     * @return manager the network's timed items are registered with
+     */
+    public TimedItemManager getTimedItemManager() {
+        return timedItemManager;
     }
 
     /**
@@ -73,8 +152,14 @@ public class Network {
             throw new IllegalArgumentException("id already exit or contain" +
                     " : or whitespace");
         }
-        Intersection newIntersection = new Intersection(id);
+        Intersection newIntersection = new Intersection(id,
+                timedItemManager, changes);
         intersections.put(id, newIntersection);
+        intersectionIndices.put(id, intersectionIndices.size());
+        intersectionsByIndex.add(newIntersection);
+        incomingRoutes.add(new ArrayList<>());
+        outgoingRoutes.add(new ArrayList<>());
+        modified();
     }
 
     /**
@@ -95,15 +180,195 @@ public class Network {
     public void connectIntersections(String from, String to, int defaultSpeed)
             throws IntersectionNotFoundException, IllegalStateException,
             IllegalArgumentException {
-        findIntersection(to).addConnection(findIntersection(from),
-                defaultSpeed);
-        try {
-            Route newRoute = findIntersection(to).getConnection(
-                    findIntersection(from));
-            routes.put(from + ":" + to, newRoute);
+        Intersection intersectionFrom = findIntersection(from);
+        Intersection intersectionTo = findIntersection(to);
+        intersectionTo.addConnection(intersectionFrom, defaultSpeed);
+        indexRoute(from, to, intersectionTo.getConnectionOrNull(
+                intersectionFrom));
+    }
+
+    /*
+     * Records a newly created route in the adjacency index.
+     */
+    private void indexRoute(String from, String to, Route route) {
+        int fromIndex = intersectionIndices.get(from);
+        int toIndex = intersectionIndices.get(to);
+        outgoingRoutes.get(fromIndex).add(route);
+        incomingRoutes.get(toIndex).add(route);
+        routesByEnds.put(endsKey(fromIndex, toIndex), route);
+        modified();
+        routeCount++;
+        denseRoutes = null;
+        routeIndices = null;
+    }
+
+    /**
+     * Returns the number of intersections in this network.
+     *
+     * @return number of intersections
+     */
+    public int getIntersectionCount() {
+        return intersectionIndices.size();
+    }
+
+    /**
+     * Returns the number of routes in this network.
+     *
+     * @return number of routes
+     */
+    public int getRouteCount() {
+        return routeCount;
+    }
+
+    /**
+     * Returns the dense index of the intersection with the given ID.
+     * <p>
+     * Intersections are numbered from zero in the order they were created, so
+     * the index can be used to look up per-intersection data in an array.
+     *
+     * @param id ID of the intersection
+     * @return index of the intersection, or -1 if there is no intersection
+     * with the given ID
+     */
+    public int getIntersectionIndex(String id) {
+        Integer index = intersectionIndices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the dense index of every route in this network, keyed by route
+     * ID ("from:to", as in the network file format).
+     * <p>
+     * Routes are numbered from zero by the index of their destination
+     * intersection, then in the order they were added to it. The numbering
+     * stays the same until a route is added to the network. Iterating over
+     * the returned map gives the routes in index order.
+     *
+     * @return unmodifiable map from route ID to route index
+     */
+    public Map<String, Integer> getRouteIndices() {
+        indexRoutes();
+        return routeIndices;
+    }
+
+    /**
+     * Returns the route with the given dense index.
+     *
+     * @param index index of the route, as given by
+     *              {@link Network#getRouteIndices()}
+     * @return route with the given index
+     * @throws IndexOutOfBoundsException if there is no route with the given
+     *          index
+     */
+    public Route getRoute(int index) {
+        indexRoutes();
+        Objects.checkIndex(index, denseRoutes.length);
+        return denseRoutes[index];
+    }
+
+    /**
+     * Copies the congestion level of every route into the given array, at
+     * the dense index of each route as given by
+     * {@link Network#getRouteIndices()}.
+     * <p>
+     * If the network's timed item manager has a {@link ParallelTickEngine},
+     * large networks are read in parallel on the engine's pool, in shards of
+     * {@link Network#CONGESTION_SHARD_SIZE} routes. Otherwise the routes are
+     * read one after another on the calling thread, like the manager
+     * advances them. Like the rest of the network, this must only be called
+     * from the thread that advances the simulation.
+     *
+     * @param congestion array to fill, with at least as many elements as
+     *                   there are routes
+     * @throws IllegalArgumentException if the array has fewer elements than
+     *          there are routes
+     */
+    public void getCongestion(int[] congestion) {
+        readCongestion(congestion, null, congestion.length);
+    }
+
+    /**
+     * Copies the congestion level of every route into the given array, as
+     * {@link Network#getCongestion(int[])} does. Congestion levels are
+     * between 0 and 100, so each fits in a byte.
+     *
+     * @param congestion array to fill, with at least as many elements as
+     *                   there are routes
+     * @throws IllegalArgumentException if the array has fewer elements than
+     *          there are routes
+     */
+    public void getCongestion(byte[] congestion) {
+        readCongestion(null, congestion, congestion.length);
+    }
+
+    /*
+     * Fills whichever of the two arrays is given with the congestion of
+     * every route, splitting the routes into shards if there are many.
+     */
+    private void readCongestion(int[] ints, byte[] bytes, int length) {
+        indexRoutes();
+        if (length < denseRoutes.length) {
+            throw new IllegalArgumentException("array has " + length
+                    + " elements but the network has " + denseRoutes.length
+                    + " routes");
+        }
+        CongestionShard shard = new CongestionShard(denseRoutes, ints, bytes,
+                0, denseRoutes.length);
+        ParallelTickEngine tickEngine = timedItemManager.getTickEngine();
+        if (tickEngine == null
+                || denseRoutes.length <= CONGESTION_SHARD_SIZE) {
+            shard.read();
+        } else {
+            tickEngine.getPool().invoke(shard);
+        }
+    }
+
+    /*
+     * Lists the routes in dense order if they have changed since last time.
+     */
+    private void indexRoutes() {
+        if (denseRoutes != null) {
+            return;
         }
-        catch (RouteNotFoundException ignore) {
+        Route[] routes = new Route[routeCount];
+        Map<String, Integer> indices = new LinkedHashMap<>();
+        int next = 0;
+        for (List<Route> incoming : incomingRoutes) {
+            for (Route route : incoming) {
+                indices.put(route.getFrom().getId()
+                        + NetworkInitialiser.LINE_INFO_SEPARATOR
+                        + route.getTo().getId(), next);
+                routes[next++] = route;
+            }
         }
+        denseRoutes = routes;
+        routeIndices = Collections.unmodifiableMap(indices);
+    }
+
+    /**
+     * Returns an unmodifiable view of the routes that end at the intersection
+     * with the given index, in the order they were added.
+     *
+     * @param index index of the destination intersection
+     * @return routes ending at the intersection
+     * @throws IndexOutOfBoundsException if there is no intersection with the
+     *          given index
+     */
+    public List<Route> getIncomingRoutes(int index) {
+        return Collections.unmodifiableList(incomingRoutes.get(index));
+    }
+
+    /**
+     * Returns an unmodifiable view of the routes that start at the
+     * intersection with the given index, in the order they were added.
+     *
+     * @param index index of the origin intersection
+     * @return routes starting at the intersection
+     * @throws IndexOutOfBoundsException if there is no intersection with the
+     *          given index
+     */
+    public List<Route> getOutgoingRoutes(int index) {
+        return Collections.unmodifiableList(outgoingRoutes.get(index));
     }
 
     /**
@@ -143,8 +408,10 @@ public class Network {
                 throw new InvalidOrderException("route not find");
             }
         }
-        findIntersection(intersectionId).addTrafficLights(routeOrder,
-                yellowTime, duration);
+        Intersection intersection = findIntersection(intersectionId);
+        intersection.addTrafficLights(routeOrder, yellowTime, duration);
+        adopt(intersection.getTrafficLights());
+        modified();
     }
 
     /**
@@ -166,6 +433,7 @@ public class Network {
     public void addSpeedSign(String from, String to, int initialSpeed)
             throws IntersectionNotFoundException, RouteNotFoundException {
         this.getConnection(from, to).addSpeedSign(initialSpeed);
+        modified();
     }
 
     /**
@@ -186,7 +454,31 @@ public class Network {
      */
     public void setSpeedLimit(String from, String to, int newLimit)
             throws IntersectionNotFoundException, RouteNotFoundException {
+        NetworkState state = currentKeptState();
         this.getConnection(from, to).setSpeedLimit(newLimit);
+        modified();
+        if (state != null) {
+            keepState(state.withSpeedLimit(from, to, newLimit));
+        }
+    }
+
+    /**
+     * Reduces the speed limits shown by the speed signs of the routes into
+     * the intersection with the given ID.
+     *
+     * @param intersectionId ID of target intersection
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'intersectionId'
+     * @see Intersection#reduceIncomingSpeedSigns()
+     */
+    public void reduceIncomingSpeedSigns(String intersectionId)
+            throws IntersectionNotFoundException {
+        NetworkState state = currentKeptState();
+        findIntersection(intersectionId).reduceIncomingSpeedSigns();
+        modified();
+        if (state != null) {
+            keepState(state.withReducedIncomingSpeedSigns(intersectionId));
+        }
     }
 
     /**
@@ -206,7 +498,12 @@ public class Network {
      */
     public void changeLightDuration(String intersectionId, int duration)
             throws IntersectionNotFoundException {
+        NetworkState state = currentKeptState();
         findIntersection(intersectionId).setLightDuration(duration);
+        modified();
+        if (state != null) {
+            keepState(state.withLightDuration(intersectionId, duration));
+        }
     }
 
     /**
@@ -224,12 +521,48 @@ public class Network {
             throws IntersectionNotFoundException, RouteNotFoundException {
         Intersection intersectionFrom = findIntersection(from);
         Intersection intersectionTo = findIntersection(to);
+        Route route = getConnectionOrNull(from, to);
+        if (route != null) {
+            return route;
+        }
         return intersectionTo.getConnection(intersectionFrom);
     }
 
+    /**
+     * Returns the route that connects the two given intersections, or null if
+     * either intersection or the route between them does not exist.
+     * <p>
+     * Unlike {@link Network#getConnection(String, String)}, a miss does not
+     * create an exception, so this is suitable for code that expects many
+     * lookups to fail.
+     *
+     * @param from ID of origin intersection
+     * @param to   ID of destination intersection
+     * @return Route that connects these intersections, or null
+     */
+    public Route getConnectionOrNull(String from, String to) {
+        Integer fromIndex = intersectionIndices.get(from);
+        Integer toIndex = intersectionIndices.get(to);
+        if (fromIndex == null || toIndex == null) {
+            return null;
+        }
+        return routesByEnds.get(endsKey(fromIndex, toIndex));
+    }
+
+    /*
+     * Packs the indices of a route's origin and destination into one key.
+     */
+    private static long endsKey(int fromIndex, int toIndex) {
+        return ((long) fromIndex << 32) | (toIndex & 0xffffffffL);
+    }
+
     /**
      * Adds a sensor to the route between the two intersections with the given
      * IDs.
+     * <p>
+     * A sensor that is a timed item must be registered with this network's
+     * timed item manager, otherwise it would keep being advanced by a
+     * different clock from the rest of the network.
      *
      * @param from   ID of intersection at which the route originates
      * @param to     ID of intersection at which the route ends
@@ -240,11 +573,67 @@ public class Network {
      *          ID given by 'from' or 'to'
      * @throws RouteNotFoundException - if no route exists between the given
      *          to/from intersections
+     * @throws IllegalArgumentException - if the sensor is a timed item that
+     *          is not registered with this network's timed item manager
      */
     public void addSensor(String from, String to, Sensor sensor)
             throws DuplicateSensorException, IntersectionNotFoundException,
             RouteNotFoundException {
+        if (sensor instanceof TimedItem
+                && !timedItemManager.isRegistered((TimedItem) sensor)) {
+            throw new IllegalArgumentException("Sensor is not registered "
+                    + "with the network's timed item manager");
+        }
         this.getConnection(from, to).addSensor(sensor);
+        adopt(sensor);
+        modified();
+    }
+
+    /*
+     * Records a change to the network that affects its hash code. Changes
+     * made directly to its intersections, routes and traffic lights are
+     * counted by those objects, through the counter they share with the
+     * network.
+     */
+    void modified() {
+        changes.increment();
+        keptState = null;
+    }
+
+    /*
+     * Returns the state kept for NetworkState.of, or null if there is none
+     * or the network has changed since it was kept.
+     */
+    NetworkState getKeptState() {
+        return keptChangeCount == changes.get() ? keptState : null;
+    }
+
+    /*
+     * Keeps a state for NetworkState.of, which is discarded when the network
+     * next changes, unless the change can be applied to it.
+     */
+    void keepState(NetworkState state) {
+        keptState = state;
+        keptChangeCount = changes.get();
+    }
+
+    /*
+     * Returns the kept state advanced to the current time, or null.
+     */
+    private NetworkState currentKeptState() {
+        NetworkState state = getKeptState();
+        return state == null ? null : state.advance(
+                timedItemManager.getTime() - state.getTime());
+    }
+
+    /*
+     * Makes the given object, if it is a timed item, belong to this network,
+     * so that it is deregistered once the network is collected.
+     */
+    void adopt(Object item) {
+        if (item instanceof TimedItem) {
+            lifetime.add((TimedItem) item);
+        }
     }
 
     /**
@@ -278,11 +667,24 @@ public class Network {
      */
     public Intersection findIntersection(String id)
             throws IntersectionNotFoundException {
-        if (! intersections.containsKey(id)) {
+        Intersection intersection = findIntersectionOrNull(id);
+        if (intersection == null) {
             throw new IntersectionNotFoundException("no intersection could be" +
                     " found with the given identifier");
         }
-        return intersections.get(id);
+        return intersection;
+    }
+
+    /**
+     * Attempts to find an Intersection instance in this network with the same
+     * identifier as the given 'id' string, returning null if there is none.
+     *
+     * @param id intersection identifier to search for
+     * @return the intersection that was found, or null if none was found
+     */
+    public Intersection findIntersectionOrNull(String id) {
+        Integer index = intersectionIndices.get(id);
+        return index == null ? null : intersectionsByIndex.get(index);
     }
 
     /**
@@ -310,16 +712,17 @@ public class Network {
             throws IntersectionNotFoundException, RouteNotFoundException {
         Intersection intersectionFrom = findIntersection(from);
         Intersection intersectionTo = findIntersection(to);
-        if (routes.containsKey(to + ":" + from)) {
+        if (getConnectionOrNull(to, from) != null) {
             throw new IllegalStateException("a route already exists in the " +
                     "opposite direction to the existing route");
         }
-        Route newRouteTo = intersectionTo.getConnection(intersectionFrom);
+        Route newRouteTo = getConnection(from, to);
         intersectionFrom.addConnection(intersectionTo, newRouteTo.getSpeed());
         Route newRouteFrom = intersectionFrom.getConnection(intersectionTo);
-        routes.put(intersectionTo + ":" + intersectionFrom, newRouteFrom);
+        indexRoute(to, from, newRouteFrom);
         if (newRouteTo.hasSpeedSign()) {
             newRouteFrom.addSpeedSign(newRouteTo.getSpeed());
+            modified();
         }
     }
 
@@ -344,7 +747,21 @@ public class Network {
      * network.
      * For two networks to be equal, they must have the same number of
      * intersections, and all intersections in the first network must be
-     * contained in the second network, and vice versa.
+     * contained in the second network, and vice versa, with the same traffic
+     * light durations and orders. Their routes must also match: the same
+     * number of routes, and for every route in one network a route between
+     * the same intersections in the other with the same structure, see
+     * Route.hasSameStructure(Route). Traffic light signals and the yellow
+     * time are not compared.
+     * <p>
+     * The number of intersections and routes and the hash codes are compared
+     * first, so most unequal networks are told apart without looking at any
+     * routes. Hash codes are cached by each network until it changes, so
+     * comparing one network with many others hashes each network once
+     * rather than on every comparison. A cached hash code is only used while
+     * it is current, including after changes made directly to a route or
+     * intersection, so it never makes equal networks compare unequal. The
+     * comparison itself is done field by field, without building strings.
      *
      * Overrides:
      * equals in class Object.
@@ -356,28 +773,34 @@ public class Network {
         if(this == obj){
             return true;
         }
-        if(obj == null){
+        if (!(obj instanceof Network)) {
             return false;
         }
-        if (obj instanceof Network) {
-            List<String> thisIntersection = new ArrayList<>();
-            List<String> otherIntersetion = new ArrayList<>();
-            for (Intersection demo : this.getIntersections()) {
-                thisIntersection.add(demo.toString());
-            }
-            for (Intersection demo : ((Network) obj).getIntersections()) {
-                otherIntersetion.add(demo.toString());
-            }
-            Collections.sort(thisIntersection);
-            Collections.sort(otherIntersetion);
-            if ( ! thisIntersection.equals(otherIntersetion)) {
+        Network other = (Network) obj;
+        if (intersectionsByIndex.size() != other.intersectionsByIndex.size()
+                || routeCount != other.routeCount
+                || hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < intersectionsByIndex.size(); i++) {
+            Intersection intersection = intersectionsByIndex.get(i);
+            Intersection otherIntersection = other.findIntersectionOrNull(
+                    intersection.getId());
+            if (otherIntersection == null
+                    || !intersection.hasSameStructure(otherIntersection)) {
                 return false;
-            } else {
-                return true;
             }
-        } else {
-            return false;
+            // origins are distinct and the route counts are equal, so a
+            // match for every route pairs the routes up one to one
+            for (Route route : incomingRoutes.get(i)) {
+                Route otherRoute = otherIntersection.getConnectionOrNull(
+                        route.getFrom());
+                if (otherRoute == null || !route.hasSameStructure(otherRoute)) {
+                    return false;
+                }
+            }
         }
+        return true;
     }
 
     /**
@@ -386,14 +809,35 @@ public class Network {
      *
      * Overrides:
      * hashCode in class Object
+     * <p>
+     * Sums the hash codes of the intersections and routes, which are
+     * computed from their fields and mostly cached, so hashing a network
+     * builds no strings. Networks that differ only in their routes, such as
+     * in a speed sign, get different hash codes.
+     * <p>
+     * The sum takes time linear in the size of the network, so it is cached
+     * until the network next changes. The network's intersections, routes
+     * and traffic lights share a change counter with it, so changes made
+     * directly to them, such as Route.setSpeedLimit(int), are seen as well
+     * as those made through the network.
      *
      * @return hash code of the network.
      */
     public int hashCode() {
+        if (hashedChangeCount == changes.get()) {
+            return hashCode;
+        }
         int hashCodeSum = 0;
-        for (Intersection demo : this.getIntersections()) {
+        for (Intersection demo : intersectionsByIndex) {
             hashCodeSum += demo.hashCode();
         }
+        for (List<Route> routes : incomingRoutes) {
+            for (Route route : routes) {
+                hashCodeSum += route.hashCode();
+            }
+        }
+        hashCode = hashCodeSum;
+        hashedChangeCount = changes.get();
         return hashCodeSum;
     }
 
@@ -415,6 +859,10 @@ public class Network {
      *
      * Overrides:
      * toString in class Object
+     * <p>
+     * To save a large network, write it with a NetworkWriter instead, which
+     * does not build the whole string in memory.
+     *
      * @return string representation of this network
      *
      * See Also:
@@ -422,17 +870,82 @@ public class Network {
      */
     @Override
     public String toString() {
-        String result = "";
-        result += intersections.size() + System.lineSeparator() + routes.size()
-                + System.lineSeparator() + this.getYellowTime()
-                + System.lineSeparator();
-        for (Intersection demo : intersections.values()) {
-            result += demo.toString() + System.lineSeparator();
+        StringWriter result = new StringWriter();
+        try {
+            new NetworkWriter(result).write(this);
+        } catch (IOException e) {
+            // a StringWriter never throws
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Fork-join task that reads the congestion of a range of routes,
+     * splitting the range in half until it is no bigger than
+     * {@link Network#CONGESTION_SHARD_SIZE}.
+     */
+    private static final class CongestionShard extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+
+        /** Routes by dense route index. */
+        private final Route[] routes;
+        /** Array to fill, or null if filling bytes. */
+        private final int[] ints;
+        /** Array to fill, or null if filling ints. */
+        private final byte[] bytes;
+        /** Index of the first route in this shard. */
+        private final int start;
+        /** Index one past the last route in this shard. */
+        private final int end;
+
+        /**
+         * Creates a task for the routes from start (inclusive) to end
+         * (exclusive).
+         *
+         * @param routes routes by dense route index
+         * @param ints array to fill, or null
+         * @param bytes array to fill if ints is null
+         * @param start index of the first route
+         * @param end index one past the last route
+         */
+        CongestionShard(Route[] routes, int[] ints, byte[] bytes, int start,
+                int end) {
+            this.routes = routes;
+            this.ints = ints;
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > CONGESTION_SHARD_SIZE) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new CongestionShard(routes, ints, bytes, start,
+                                middle),
+                        new CongestionShard(routes, ints, bytes, middle, end));
+                return;
+            }
+            read();
         }
-        for (Route demo : routes.values()) {
-            result += demo.toString() + System.lineSeparator();
+
+        /*
+         * Reads the congestion of every route in this shard on the calling
+         * thread.
+         */
+        void read() {
+            if (ints != null) {
+                for (int i = start; i < end; i++) {
+                    ints[i] = routes[i].getCongestion();
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    bytes[i] = (byte) routes[i].getCongestion();
+                }
+            }
         }
-        return result;
     }
 }
 
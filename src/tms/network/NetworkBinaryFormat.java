@@ -0,0 +1,457 @@
+package tms.network;
+
+import tms.intersection.Intersection;
+import tms.intersection.IntersectionLights;
+import tms.route.Route;
+import tms.sensors.DemoPressurePad;
+import tms.sensors.DemoSensor;
+import tms.sensors.DemoSpeedCamera;
+import tms.sensors.DemoVehicleCount;
+import tms.sensors.Sensor;
+import tms.sensors.SensorDataStore;
+import tms.util.DuplicateSensorException;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.InvalidOrderException;
+import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes networks in a compact binary snapshot format.
+ * <p>
+ * A snapshot holds the same information as the text format described in
+ * NetworkInitialiser.loadNetwork(String), but stores numbers as fixed size
+ * binary values and refers to intersections by index, so it can be loaded
+ * without any text parsing. Snapshots are read by memory mapping the file.
+ * <p>
+ * All numbers are big-endian 32-bit ints and strings are stored as their
+ * length in bytes followed by their UTF-8 encoding. A snapshot contains:
+ * <ol>
+ * <li>the magic number {@link NetworkBinaryFormat#MAGIC} and the format
+ * {@link NetworkBinaryFormat#VERSION};</li>
+ * <li>the yellow time, the number of intersections and the number of
+ * routes;</li>
+ * <li>the ID of each intersection, in index order;</li>
+ * <li>for each route: the indices of its origin and destination, its default
+ * speed, its speed sign speed (or -1 if it has no speed sign), its number of
+ * sensors, and for each sensor its type (0 = PP, 1 = SC, 2 = VC), threshold,
+ * number of data values and data values;</li>
+ * <li>the number of intersections with traffic lights, and for each of them
+ * the intersection index, the duration and the number and indices of the
+ * origin intersections in light order.</li>
+ * </ol>
+ * Only the demo sensors can be stored, as for the text format. Snapshots are
+ * limited to 2GB, the largest region that can be mapped at once.
+ */
+public class NetworkBinaryFormat {
+    /** First four bytes of every snapshot, "TMSN" in ASCII. */
+    public static final int MAGIC = 0x544D534E;
+    /** Version of the format written by this class. */
+    public static final int VERSION = 1;
+
+    /** Sensor type code of a pressure pad. */
+    private static final int PRESSURE_PAD = 0;
+    /** Sensor type code of a speed camera. */
+    private static final int SPEED_CAMERA = 1;
+    /** Sensor type code of a vehicle count. */
+    private static final int VEHICLE_COUNT = 2;
+    /** Text format names of the sensor types, by type code. */
+    private static final String[] SENSOR_TYPES = {"PP", "SC", "VC"};
+    /** Speed sign speed stored for routes without a speed sign. */
+    private static final int NO_SPEED_SIGN = -1;
+
+    private NetworkBinaryFormat() { }
+
+    /**
+     * Returns true if the file at the given path starts with the snapshot
+     * magic number.
+     *
+     * @param path file to check
+     * @return whether the file looks like a binary snapshot
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = in.readNBytes(Integer.BYTES);
+            return header.length == Integer.BYTES
+                    && ByteBuffer.wrap(header).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given network to the given path, replacing
+     * any existing file.
+     *
+     * @param network network to save
+     * @param path file to write the snapshot to
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a route in the network has a sensor
+     *          that is not one of the demo sensors
+     */
+    public static void write(Network network, Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            write(network, out);
+        }
+    }
+
+    /*
+     * Writes the snapshot sections in order.
+     */
+    private static void write(Network network, DataOutputStream out)
+            throws IOException {
+        int intersectionCount = network.getIntersectionCount();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(network.getYellowTime());
+        out.writeInt(intersectionCount);
+        out.writeInt(network.getRouteCount());
+        List<Intersection> intersections = new ArrayList<>(
+                network.getIntersections());
+        intersections.sort((first, second) -> Integer.compare(
+                network.getIntersectionIndex(first.getId()),
+                network.getIntersectionIndex(second.getId())));
+        for (Intersection intersection : intersections) {
+            byte[] id = intersection.getId().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(id.length);
+            out.write(id);
+        }
+        for (int to = 0; to < intersectionCount; to++) {
+            for (Route route : network.getIncomingRoutes(to)) {
+                out.writeInt(network.getIntersectionIndex(
+                        route.getFrom().getId()));
+                out.writeInt(to);
+                writeRoute(route, out);
+            }
+        }
+        List<Intersection> lit = new ArrayList<>();
+        for (Intersection intersection : intersections) {
+            if (intersection.hasTrafficLights()) {
+                lit.add(intersection);
+            }
+        }
+        out.writeInt(lit.size());
+        for (Intersection intersection : lit) {
+            IntersectionLights lights = intersection.getTrafficLights();
+            List<Route> order = lights.getOrder();
+            out.writeInt(network.getIntersectionIndex(intersection.getId()));
+            out.writeInt(lights.getDuration());
+            out.writeInt(order.size());
+            for (Route route : order) {
+                out.writeInt(network.getIntersectionIndex(
+                        route.getFrom().getId()));
+            }
+        }
+    }
+
+    /*
+     * Writes the speeds and sensors of a route.
+     */
+    private static void writeRoute(Route route, DataOutputStream out)
+            throws IOException {
+        out.writeInt(route.getDefaultSpeed());
+        out.writeInt(route.hasSpeedSign() ? route.getSpeed() : NO_SPEED_SIGN);
+        List<Sensor> sensors = route.getSensors();
+        out.writeInt(sensors.size());
+        for (Sensor sensor : sensors) {
+            if (sensor instanceof DemoPressurePad) {
+                out.writeInt(PRESSURE_PAD);
+            } else if (sensor instanceof DemoSpeedCamera) {
+                out.writeInt(SPEED_CAMERA);
+            } else if (sensor instanceof DemoVehicleCount) {
+                out.writeInt(VEHICLE_COUNT);
+            } else {
+                throw new IllegalArgumentException("cannot save sensor "
+                        + sensor);
+            }
+            DemoSensor demoSensor = (DemoSensor) sensor;
+            int[] data = demoSensor.getData();
+            out.writeInt(demoSensor.getThreshold());
+            out.writeInt(data.length);
+            for (int value : data) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    /**
+     * Loads a network from the snapshot at the given path.
+     * <p>
+     * The file is memory mapped, and sensor data is copied straight from the
+     * mapped file into the arrays used by the sensors.
+     *
+     * @param path file to read the snapshot from
+     * @return the network stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws InvalidNetworkException if the file is not a valid snapshot, or
+     *          describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(Path path)
+            throws IOException, InvalidNetworkException {
+        return read(path, null);
+    }
+
+    /**
+     * Loads a network from the snapshot at the given path, keeping the data
+     * values of every sensor in the given store.
+     *
+     * @param path file to read the snapshot from
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array
+     * @return the network stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws InvalidNetworkException if the file is not a valid snapshot, or
+     *          describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(Path path, SensorDataStore store)
+            throws IOException, InvalidNetworkException {
+        return read(path, store, TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Loads a network from the snapshot at the given path, keeping the data
+     * values of every sensor in the given store, and registering its sensors
+     * and traffic lights with the given timed item manager.
+     *
+     * @param path file to read the snapshot from
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array
+     * @param timedItemManager manager the network's timed items are
+     *                         registered with
+     * @return the network stored in the snapshot
+     * @throws IOException if the file cannot be read
+     * @throws InvalidNetworkException if the file is not a valid snapshot, or
+     *          describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(Path path, SensorDataStore store,
+            TimedItemManager timedItemManager)
+            throws IOException, InvalidNetworkException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new InvalidNetworkException("snapshot larger than 2GB");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size),
+                    store, timedItemManager);
+        }
+    }
+
+    /**
+     * Loads a network from a snapshot held in the given buffer, starting at
+     * its current position.
+     *
+     * @param buffer buffer containing the snapshot
+     * @return the network stored in the snapshot
+     * @throws InvalidNetworkException if the buffer does not hold a valid
+     *          snapshot, or describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(ByteBuffer buffer)
+            throws InvalidNetworkException {
+        return read(buffer, null);
+    }
+
+    /**
+     * Loads a network from a snapshot held in the given buffer, keeping the
+     * data values of every sensor in the given store.
+     *
+     * @param buffer buffer containing the snapshot
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array
+     * @return the network stored in the snapshot
+     * @throws InvalidNetworkException if the buffer does not hold a valid
+     *          snapshot, or describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(ByteBuffer buffer, SensorDataStore store)
+            throws InvalidNetworkException {
+        return read(buffer, store, TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Loads a network from a snapshot held in the given buffer, keeping the
+     * data values of every sensor in the given store, and registering its
+     * sensors and traffic lights with the given timed item manager.
+     *
+     * @param buffer buffer containing the snapshot
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array
+     * @param timedItemManager manager the network's timed items are
+     *                         registered with
+     * @return the network stored in the snapshot
+     * @throws InvalidNetworkException if the buffer does not hold a valid
+     *          snapshot, or describes a network that is invalid according to
+     *          NetworkInitialiser.loadNetwork(String)
+     */
+    public static Network read(ByteBuffer buffer, SensorDataStore store,
+            TimedItemManager timedItemManager)
+            throws InvalidNetworkException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new InvalidNetworkException("not a network snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new InvalidNetworkException(
+                        "unsupported snapshot version " + version);
+            }
+            Network network = new Network(timedItemManager);
+            int yellowTime = buffer.getInt();
+            if (yellowTime < 1) {
+                throw new InvalidNetworkException("yellow time < 1");
+            }
+            network.setYellowTime(yellowTime);
+            int intersectionCount = readLength(buffer, Integer.BYTES);
+            int routeCount = readLength(buffer, 5 * Integer.BYTES);
+            String[] ids = readIntersections(buffer, network,
+                    intersectionCount);
+            for (int i = 0; i < routeCount; i++) {
+                readRoute(buffer, network, ids, store);
+            }
+            readLights(buffer, network, ids);
+            if (buffer.hasRemaining()) {
+                throw new InvalidNetworkException("unexpected data after "
+                        + "snapshot");
+            }
+            return network;
+        } catch (BufferUnderflowException e) {
+            throw new InvalidNetworkException("snapshot is truncated", e);
+        } catch (RouteNotFoundException | DuplicateSensorException |
+                IntersectionNotFoundException | InvalidOrderException |
+                IllegalStateException | IllegalArgumentException e) {
+            throw new InvalidNetworkException(e.toString(), e);
+        }
+    }
+
+    /*
+     * Reads and creates the intersections, returning their IDs by index.
+     */
+    private static String[] readIntersections(ByteBuffer buffer,
+                                              Network network, int count)
+            throws InvalidNetworkException {
+        String[] ids = new String[count];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int length = readLength(buffer, 1);
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            ids[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            network.createIntersection(ids[i]);
+        }
+        return ids;
+    }
+
+    /*
+     * Reads a route and its sensors and adds them to the network.
+     */
+    private static void readRoute(ByteBuffer buffer, Network network,
+                                  String[] ids, SensorDataStore store)
+            throws InvalidNetworkException, IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        String from = readId(buffer, ids);
+        String to = readId(buffer, ids);
+        network.connectIntersections(from, to, buffer.getInt());
+        Route route = network.getConnection(from, to);
+        int speedSignSpeed = buffer.getInt();
+        if (speedSignSpeed != NO_SPEED_SIGN) {
+            route.addSpeedSign(speedSignSpeed);
+        }
+        int sensorCount = readLength(buffer, 3 * Integer.BYTES);
+        for (int i = 0; i < sensorCount; i++) {
+            int type = buffer.getInt();
+            int threshold = buffer.getInt();
+            if (threshold <= 0) {
+                throw new InvalidNetworkException("threshold<=0");
+            }
+            int[] data = new int[readLength(buffer, Integer.BYTES)];
+            if (data.length == 0) {
+                throw new InvalidNetworkException("sensor has no data");
+            }
+            buffer.asIntBuffer().get(data);
+            buffer.position(buffer.position() + data.length * Integer.BYTES);
+            for (int value : data) {
+                if (value < 0) {
+                    throw new InvalidNetworkException("sensor data < 0");
+                }
+            }
+            if (type < 0 || type >= SENSOR_TYPES.length) {
+                throw new InvalidNetworkException("invalid sensor type "
+                        + type);
+            }
+            route.addSensor(NetworkInitialiser.createSensor(
+                    SENSOR_TYPES[type], data, data.length, threshold, store,
+                    network));
+        }
+        network.modified();
+    }
+
+    /*
+     * Reads the traffic lights and adds them to their intersections.
+     */
+    private static void readLights(ByteBuffer buffer, Network network,
+                                   String[] ids)
+            throws InvalidNetworkException, IntersectionNotFoundException,
+            InvalidOrderException {
+        int count = readLength(buffer, 3 * Integer.BYTES);
+        for (int i = 0; i < count; i++) {
+            String id = readId(buffer, ids);
+            int duration = buffer.getInt();
+            if (duration < 1) {
+                throw new InvalidNetworkException("duration < 1");
+            }
+            List<String> order = new ArrayList<>();
+            int orderLength = readLength(buffer, Integer.BYTES);
+            for (int k = 0; k < orderLength; k++) {
+                order.add(readId(buffer, ids));
+            }
+            network.addLights(id, duration, order);
+        }
+    }
+
+    /*
+     * Reads an intersection index and returns the ID of that intersection.
+     */
+    private static String readId(ByteBuffer buffer, String[] ids)
+            throws InvalidNetworkException {
+        int index = buffer.getInt();
+        if (index < 0 || index >= ids.length) {
+            throw new InvalidNetworkException("invalid intersection index "
+                    + index);
+        }
+        return ids[index];
+    }
+
+    /*
+     * Reads the length of a sequence whose elements each take at least
+     * elementSize bytes, checking that the buffer is large enough to hold it
+     * so that a corrupt length cannot cause a huge allocation.
+     */
+    private static int readLength(ByteBuffer buffer, int elementSize)
+            throws InvalidNetworkException {
+        int length = buffer.getInt();
+        if (length < 0 || (long) length * elementSize > buffer.remaining()) {
+            throw new InvalidNetworkException("invalid length " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,685 @@
+package tms.network;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Generates synthetic networks in the text format read by
+ * NetworkInitialiser.loadNetwork(String), for scale and soak testing.
+ * <p>
+ * Three city layouts are available, see {@link Layout}. Every road is a pair
+ * of routes, one in each direction. Intersections with at least two incoming
+ * routes may have traffic lights, routes may have speed signs, and each route
+ * has up to three sensors whose data values follow a daily cycle with a
+ * morning and an evening peak plus some noise. A number of deliberate errors
+ * can be injected to test how invalid files are handled.
+ * <p>
+ * Output is streamed. The neighbours of an intersection are worked out from
+ * its index whenever they are needed, and every random choice is a hash of
+ * the seed and the item it is made for, so the memory used does not depend on
+ * the size of the network and networks with tens of millions of routes can
+ * be written. The same settings and seed always give the same file.
+ */
+public class NetworkGenerator {
+    /** Sensor types, in the order they are given to a route. */
+    private static final String[] SENSOR_TYPES = {"PP", "SC", "VC"};
+    /** Default speeds given to routes. */
+    private static final int[] SPEEDS = {40, 50, 60, 80, 100};
+    /** Number of spokes of the radial layout. */
+    private static final int RADIAL_SPOKES = 8;
+    /** Average number of intersections per cell of the random layout. */
+    private static final int POINTS_PER_CELL = 4;
+    /** Highest average degree of the random layout. */
+    private static final double MAX_AVERAGE_DEGREE = 12;
+
+    /** Salts separating the random choices made for the same item. */
+    private static final int SALT_X = 1, SALT_Y = 2, SALT_LIGHTS = 3,
+            SALT_DURATION = 4, SALT_SPEED = 5, SALT_SIGN = 6, SALT_SENSOR = 7,
+            SALT_DATA = 8, SALT_FAULT = 9, SALT_FAULT_KIND = 10;
+
+    /**
+     * Layouts of the generated networks.
+     */
+    public enum Layout {
+        /**
+         * A square grid, with each intersection joined to the intersections
+         * above, below, left and right of it. The last row is left partly
+         * empty if the number of intersections is not a square.
+         */
+        GRID,
+        /**
+         * A hub with eight spokes and rings around it, with each intersection
+         * joined to its neighbours on its ring and on its spoke.
+         */
+        RADIAL,
+        /**
+         * Intersections scattered at random over a square, each joined to
+         * every other intersection within a fixed distance of it. The
+         * distance is chosen to give the average degree set with
+         * {@link NetworkGenerator#setAverageDegree(double)}.
+         */
+        RANDOM_GEOMETRIC
+    }
+
+    /**
+     * Deliberate errors that can be injected into a generated network. Each
+     * one makes NetworkInitialiser.loadNetwork(String) throw an
+     * InvalidNetworkException.
+     */
+    public enum Fault {
+        /** A route has a negative default speed. */
+        NEGATIVE_SPEED,
+        /** A route's speed is not a number. */
+        MALFORMED_NUMBER,
+        /** A route ends at an intersection that does not exist. */
+        UNKNOWN_INTERSECTION,
+        /** A route line has an extra field. */
+        EXTRA_FIELD,
+        /** A route declares one more sensor than it has. */
+        MISSING_SENSOR,
+        /** A sensor has a threshold of zero. */
+        ZERO_THRESHOLD,
+        /** A sensor has a negative data value. */
+        NEGATIVE_SENSOR_DATA
+    }
+
+    /** Layout of the network. */
+    private Layout layout;
+    /** Number of intersections. */
+    private int intersections;
+    /** Seed of every random choice. */
+    private long seed;
+    /** Probability of an intersection having traffic lights. */
+    private double lightProbability = 0.5;
+    /** Probability of a route having a speed sign. */
+    private double speedSignProbability = 0.25;
+    /** Number of sensors on each route. */
+    private int sensorsPerRoute = 1;
+    /** Number of data values of each sensor. */
+    private int dataLength = 60;
+    /** Average degree of the random geometric layout. */
+    private double averageDegree = 4;
+    /** Yellow time of the network. */
+    private int yellowTime = 2;
+    /** Number of deliberate errors to inject. */
+    private int faultCount;
+
+    /** Side of the grid, or of the square of cells of the random layout. */
+    private int side;
+    /** Number of intersections in every cell of the random layout. */
+    private int cellBase;
+    /** Number of cells of the random layout with an extra intersection. */
+    private int cellRemainder;
+    /** Squared joining distance of the random layout, in cells. */
+    private double radiusSquared;
+    /** Indices of the routes that have a fault, in ascending order. */
+    private long[] faultRoutes;
+    /** Buffer of neighbour indices. */
+    private int[] neighbours = new int[16];
+
+    /**
+     * Creates a generator of networks with the given layout and number of
+     * intersections.
+     *
+     * @param layout layout of the network
+     * @param intersections number of intersections
+     * @param seed seed of the random choices
+     * @throws IllegalArgumentException if intersections is less than one
+     */
+    public NetworkGenerator(Layout layout, int intersections, long seed) {
+        if (intersections < 1) {
+            throw new IllegalArgumentException("a network needs at least one "
+                    + "intersection");
+        }
+        this.layout = layout;
+        this.intersections = intersections;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the probability of an intersection with two or more incoming
+     * routes having traffic lights. The default is 0.5.
+     *
+     * @param probability probability from 0 to 1
+     * @throws IllegalArgumentException if probability is not from 0 to 1
+     */
+    public void setLightProbability(double probability) {
+        this.lightProbability = checkProbability(probability);
+    }
+
+    /**
+     * Sets the probability of a route having a speed sign. The default is
+     * 0.25.
+     *
+     * @param probability probability from 0 to 1
+     * @throws IllegalArgumentException if probability is not from 0 to 1
+     */
+    public void setSpeedSignProbability(double probability) {
+        this.speedSignProbability = checkProbability(probability);
+    }
+
+    /*
+     * Checks that the given number is a probability.
+     */
+    private static double checkProbability(double probability) {
+        if (!(probability >= 0 && probability <= 1)) {
+            throw new IllegalArgumentException("probability must be from 0 "
+                    + "to 1");
+        }
+        return probability;
+    }
+
+    /**
+     * Sets the number of sensors on each route, each of a different type.
+     * The default is one.
+     *
+     * @param sensorsPerRoute number of sensors, from 0 to 3
+     * @throws IllegalArgumentException if sensorsPerRoute is not from 0 to 3
+     */
+    public void setSensorsPerRoute(int sensorsPerRoute) {
+        if (sensorsPerRoute < 0 || sensorsPerRoute > SENSOR_TYPES.length) {
+            throw new IllegalArgumentException("sensors per route must be "
+                    + "from 0 to " + SENSOR_TYPES.length);
+        }
+        this.sensorsPerRoute = sensorsPerRoute;
+    }
+
+    /**
+     * Sets the number of data values of each sensor, which make up one
+     * simulated day. The default is 60.
+     *
+     * @param dataLength number of data values
+     * @throws IllegalArgumentException if dataLength is less than one
+     */
+    public void setDataLength(int dataLength) {
+        if (dataLength < 1) {
+            throw new IllegalArgumentException("sensors need at least one "
+                    + "data value");
+        }
+        this.dataLength = dataLength;
+    }
+
+    /**
+     * Sets the average number of roads joined to each intersection in the
+     * random geometric layout, which sets the number of routes. The default
+     * is 4. The other layouts are not affected.
+     *
+     * @param averageDegree average degree, greater than 0 and at most 12
+     * @throws IllegalArgumentException if averageDegree is out of range
+     */
+    public void setAverageDegree(double averageDegree) {
+        if (!(averageDegree > 0 && averageDegree <= MAX_AVERAGE_DEGREE)) {
+            throw new IllegalArgumentException("average degree must be "
+                    + "greater than 0 and at most " + MAX_AVERAGE_DEGREE);
+        }
+        this.averageDegree = averageDegree;
+    }
+
+    /**
+     * Sets the yellow time of the network. The default is 2.
+     *
+     * @param yellowTime yellow time in seconds
+     * @throws IllegalArgumentException if yellowTime is less than one
+     */
+    public void setYellowTime(int yellowTime) {
+        if (yellowTime < 1) {
+            throw new IllegalArgumentException("yellow time must be at least "
+                    + "one");
+        }
+        this.yellowTime = yellowTime;
+    }
+
+    /**
+     * Sets the number of deliberate errors to inject, each on a different
+     * route chosen at random and of a {@link Fault} kind chosen at random.
+     * The default is none. Networks without routes cannot have errors.
+     *
+     * @param faultCount number of errors
+     * @throws IllegalArgumentException if faultCount is negative
+     */
+    public void setFaultCount(int faultCount) {
+        if (faultCount < 0) {
+            throw new IllegalArgumentException("fault count must not be "
+                    + "negative");
+        }
+        this.faultCount = faultCount;
+    }
+
+    /**
+     * Writes the network to the given writer.
+     * <p>
+     * The neighbours of every intersection are worked out twice, once to
+     * count the routes for the header and once to write them. The writer is
+     * flushed but not closed, and should be buffered.
+     *
+     * @param writer writer to write the network to
+     * @return number of routes written
+     * @throws IOException if the writer fails
+     */
+    public long write(Writer writer) throws IOException {
+        prepareLayout();
+        long routes = 0;
+        for (int node = 0; node < intersections; node++) {
+            routes += findNeighbours(node);
+        }
+        chooseFaultRoutes(routes);
+        String newLine = System.lineSeparator();
+        writer.write("; " + layout + " network of " + intersections
+                + " intersections, seed " + seed + newLine);
+        writer.write(intersections + newLine + routes + newLine + yellowTime
+                + newLine);
+        for (int node = 0; node < intersections; node++) {
+            writeIntersection(writer, node);
+            writer.write(newLine);
+        }
+        long route = 0;
+        for (int node = 0; node < intersections; node++) {
+            int count = findNeighbours(node);
+            for (int i = 0; i < count; i++) {
+                writeRoute(writer, node, neighbours[i], route++);
+            }
+        }
+        writer.flush();
+        return routes;
+    }
+
+    /*
+     * Works out the sizes used to find neighbours in the current layout.
+     */
+    private void prepareLayout() {
+        if (layout == Layout.GRID) {
+            side = (int) Math.ceil(Math.sqrt(intersections));
+        } else if (layout == Layout.RANDOM_GEOMETRIC) {
+            side = Math.max(1, (int) Math.sqrt(intersections
+                    / POINTS_PER_CELL));
+            int cells = side * side;
+            cellBase = intersections / cells;
+            cellRemainder = intersections % cells;
+            // the expected number of points within the radius is
+            // pi * radius^2 * POINTS_PER_CELL
+            radiusSquared = averageDegree / (Math.PI * POINTS_PER_CELL);
+        }
+    }
+
+    /*
+     * Picks the routes that get a fault, from the given number of routes.
+     */
+    private void chooseFaultRoutes(long routes) {
+        int count = routes == 0 ? 0 : (int) Math.min(faultCount, routes);
+        faultRoutes = new long[count];
+        long candidate = hash(SALT_FAULT, count, 0);
+        for (int i = 0; i < count; i++) {
+            // a random start and a step coprime to routes never repeat
+            faultRoutes[i] = Math.floorMod(candidate + i * stepCoprimeTo(
+                    routes), routes);
+        }
+        Arrays.sort(faultRoutes);
+    }
+
+    /*
+     * Returns a large step that is coprime to the given number.
+     */
+    private long stepCoprimeTo(long routes) {
+        long step = Math.floorMod(hash(SALT_FAULT, 1, 1), routes) | 1;
+        while (gcd(step, routes) != 1) {
+            step++;
+        }
+        return step;
+    }
+
+    /*
+     * Returns the greatest common divisor of two non-negative numbers.
+     */
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /*
+     * Returns the fault of the route with the given index, or null.
+     */
+    private Fault faultOf(long route) {
+        if (Arrays.binarySearch(faultRoutes, route) < 0) {
+            return null;
+        }
+        Fault[] faults = Fault.values();
+        return faults[(int) Math.floorMod(hash(SALT_FAULT_KIND, route, 0),
+                (long) faults.length)];
+    }
+
+    /*
+     * Writes an intersection line, without a line separator.
+     */
+    private void writeIntersection(Writer writer, int node)
+            throws IOException {
+        writer.write(id(node));
+        int count = findNeighbours(node);
+        if (count < 2 || unit(hash(SALT_LIGHTS, node, 0)) >= lightProbability) {
+            return;
+        }
+        int duration = yellowTime + 5 + (int) Math.floorMod(
+                hash(SALT_DURATION, node, 0), 31L);
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        writer.write(Integer.toString(duration));
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        // every road is two-way, so the incoming routes come from the
+        // neighbours
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                writer.write(NetworkInitialiser.LINE_LIST_SEPARATOR);
+            }
+            writer.write(id(neighbours[i]));
+        }
+    }
+
+    /*
+     * Writes a route line and its sensor lines.
+     */
+    private void writeRoute(Writer writer, int from, int to, long route)
+            throws IOException {
+        Fault fault = faultOf(route);
+        if ((fault == Fault.NEGATIVE_SENSOR_DATA
+                || fault == Fault.ZERO_THRESHOLD) && sensorsPerRoute == 0) {
+            fault = Fault.MISSING_SENSOR;
+        }
+        String newLine = System.lineSeparator();
+        String separator = NetworkInitialiser.LINE_INFO_SEPARATOR;
+        int speed = SPEEDS[(int) Math.floorMod(hash(SALT_SPEED, route, 0),
+                (long) SPEEDS.length)];
+        writer.write(id(from));
+        writer.write(separator);
+        writer.write(fault == Fault.UNKNOWN_INTERSECTION ? "missing" + route
+                : id(to));
+        writer.write(separator);
+        writer.write(fault == Fault.NEGATIVE_SPEED ? Integer.toString(-speed)
+                : fault == Fault.MALFORMED_NUMBER ? speed + "x"
+                : Integer.toString(speed));
+        writer.write(separator);
+        writer.write(Integer.toString(fault == Fault.MISSING_SENSOR
+                ? sensorsPerRoute + 1 : sensorsPerRoute));
+        long signHash = hash(SALT_SIGN, route, 0);
+        if (unit(signHash) < speedSignProbability) {
+            writer.write(separator);
+            // signs show the default speed or up to 20 below it
+            writer.write(Integer.toString(speed - 10 * (int) Math.floorMod(
+                    signHash >>> 32, 3L)));
+        }
+        if (fault == Fault.EXTRA_FIELD) {
+            writer.write(separator + "0" + separator + "0");
+        }
+        writer.write(newLine);
+        int firstType = (int) Math.floorMod(hash(SALT_SENSOR, route, 0),
+                (long) SENSOR_TYPES.length);
+        for (int i = 0; i < sensorsPerRoute; i++) {
+            String type = SENSOR_TYPES[(firstType + i) % SENSOR_TYPES.length];
+            writeSensor(writer, type, speed, route * SENSOR_TYPES.length + i,
+                    i == 0 ? fault : null);
+            writer.write(newLine);
+        }
+    }
+
+    /*
+     * Writes a sensor line, without a line separator.
+     *
+     * Values follow a day with peaks at a quarter and three quarters of the
+     * way through it. Pressure pads count queued vehicles, speed cameras
+     * measure speeds that drop below the route's speed at the peaks, and
+     * vehicle counts count vehicles per minute.
+     */
+    private void writeSensor(Writer writer, String type, int speed,
+            long sensor, Fault fault) throws IOException {
+        int threshold;
+        int peak;
+        if (type.equals("PP")) {
+            threshold = 10;
+            peak = 20;
+        } else if (type.equals("SC")) {
+            threshold = speed;
+            peak = speed;
+        } else {
+            threshold = 50;
+            peak = 60;
+        }
+        writer.write(type);
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        writer.write(fault == Fault.ZERO_THRESHOLD ? "0"
+                : Integer.toString(threshold));
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        double phase = unit(hash(SALT_DATA, sensor, -1)) * 0.1;
+        for (int i = 0; i < dataLength; i++) {
+            if (i > 0) {
+                writer.write(NetworkInitialiser.LINE_LIST_SEPARATOR);
+            }
+            double time = (double) i / dataLength + phase;
+            double load = Math.pow(Math.sin(2 * Math.PI * time), 2);
+            double noise = unit(hash(SALT_DATA, sensor, i)) * 0.2 - 0.1;
+            double level = Math.min(1, Math.max(0, load * 0.8 + 0.1 + noise));
+            int value = (int) Math.round(type.equals("SC")
+                    ? peak * (1 - 0.7 * level) : peak * level);
+            writer.write(Integer.toString(fault == Fault.NEGATIVE_SENSOR_DATA
+                    && i == 0 ? -1 - value : value));
+        }
+    }
+
+    /*
+     * Finds the neighbours of an intersection, in ascending order, and puts
+     * them at the start of the neighbours buffer.
+     *
+     * Returns the number of neighbours.
+     */
+    private int findNeighbours(int node) {
+        int count;
+        if (layout == Layout.GRID) {
+            count = gridNeighbours(node);
+        } else if (layout == Layout.RADIAL) {
+            count = radialNeighbours(node);
+        } else {
+            count = randomNeighbours(node);
+        }
+        Arrays.sort(neighbours, 0, count);
+        return count;
+    }
+
+    /*
+     * Finds the neighbours of an intersection in the grid layout.
+     */
+    private int gridNeighbours(int node) {
+        int count = 0;
+        int row = node / side;
+        int column = node % side;
+        if (row > 0) {
+            count = addNeighbour(count, node - side);
+        }
+        if (column > 0) {
+            count = addNeighbour(count, node - 1);
+        }
+        if (column < side - 1 && node + 1 < intersections) {
+            count = addNeighbour(count, node + 1);
+        }
+        if (node + side < intersections) {
+            count = addNeighbour(count, node + side);
+        }
+        return count;
+    }
+
+    /*
+     * Finds the neighbours of an intersection in the radial layout.
+     *
+     * Intersection 0 is the hub. Intersection i > 0 is on ring
+     * (i - 1) / RADIAL_SPOKES and spoke (i - 1) % RADIAL_SPOKES. The last
+     * ring may be incomplete, in which case it does not wrap around.
+     */
+    private int radialNeighbours(int node) {
+        int count = 0;
+        if (node == 0) {
+            for (int i = 1; i <= RADIAL_SPOKES && i < intersections; i++) {
+                count = addNeighbour(count, i);
+            }
+            return count;
+        }
+        int ring = (node - 1) / RADIAL_SPOKES;
+        int spoke = (node - 1) % RADIAL_SPOKES;
+        int ringStart = 1 + ring * RADIAL_SPOKES;
+        boolean fullRing = ringStart + RADIAL_SPOKES <= intersections;
+        count = addNeighbour(count, ring == 0 ? 0 : node - RADIAL_SPOKES);
+        if (node + RADIAL_SPOKES < intersections) {
+            count = addNeighbour(count, node + RADIAL_SPOKES);
+        }
+        if (fullRing) {
+            count = addNeighbour(count, ringStart
+                    + (spoke + RADIAL_SPOKES - 1) % RADIAL_SPOKES);
+            count = addNeighbour(count, ringStart
+                    + (spoke + 1) % RADIAL_SPOKES);
+        } else {
+            if (spoke > 0) {
+                count = addNeighbour(count, node - 1);
+            }
+            if (node + 1 < intersections) {
+                count = addNeighbour(count, node + 1);
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Finds the neighbours of an intersection in the random geometric
+     * layout.
+     *
+     * The square is divided into side * side cells of unit size, each
+     * holding cellBase or cellBase + 1 consecutive intersections at random
+     * positions within it. The joining distance is at most one cell, so only
+     * the surrounding cells need to be searched.
+     */
+    private int randomNeighbours(int node) {
+        int count = 0;
+        int cell = cellOf(node);
+        double x = cell % side + unit(hash(SALT_X, node, 0));
+        double y = cell / side + unit(hash(SALT_Y, node, 0));
+        for (int cy = Math.max(0, cell / side - 1);
+                cy <= Math.min(side - 1, cell / side + 1); cy++) {
+            for (int cx = Math.max(0, cell % side - 1);
+                    cx <= Math.min(side - 1, cell % side + 1); cx++) {
+                int other = cy * side + cx;
+                int end = firstOfCell(other + 1);
+                for (int i = firstOfCell(other); i < end; i++) {
+                    double dx = cx + unit(hash(SALT_X, i, 0)) - x;
+                    double dy = cy + unit(hash(SALT_Y, i, 0)) - y;
+                    if (i != node && dx * dx + dy * dy <= radiusSquared) {
+                        count = addNeighbour(count, i);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Returns the index of the first intersection in the given cell of the
+     * random layout.
+     */
+    private int firstOfCell(int cell) {
+        return cell * cellBase + Math.min(cell, cellRemainder);
+    }
+
+    /*
+     * Returns the cell of the random layout holding the given intersection.
+     */
+    private int cellOf(int node) {
+        int large = cellRemainder * (cellBase + 1);
+        if (node < large) {
+            return node / (cellBase + 1);
+        }
+        return cellRemainder + (node - large) / cellBase;
+    }
+
+    /*
+     * Adds a neighbour to the buffer, growing it if needed, and returns the
+     * new number of neighbours.
+     */
+    private int addNeighbour(int count, int neighbour) {
+        if (count == neighbours.length) {
+            neighbours = Arrays.copyOf(neighbours, count * 2);
+        }
+        neighbours[count] = neighbour;
+        return count + 1;
+    }
+
+    /*
+     * Returns the ID of the intersection with the given index.
+     */
+    private static String id(int node) {
+        return "I" + node;
+    }
+
+    /*
+     * Returns a well mixed hash of the seed, a salt and two numbers.
+     */
+    private long hash(int salt, long a, long b) {
+        long h = seed + salt * 0x9E3779B97F4A7C15L;
+        h = mix(h + a * 0xC2B2AE3D27D4EB4FL);
+        return mix(h + b * 0x165667B19E3779F9L);
+    }
+
+    /*
+     * Applies the finaliser of the SplitMix64 generator.
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+
+    /*
+     * Returns a number from 0 (inclusive) to 1 (exclusive) taken from a hash.
+     */
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Writes a generated network to a file.
+     * <p>
+     * Arguments: LAYOUT INTERSECTIONS OUTPUT_FILENAME [SEED [FAULTS]]
+     * <p>
+     * LAYOUT is GRID, RADIAL or RANDOM_GEOMETRIC. SEED defaults to 0 and
+     * FAULTS, the number of deliberate errors, to 0. The other settings have
+     * their default values.
+     *
+     * @param args from the command line.
+     */
+    public static void main(String... args) {
+        if (args.length < 3 || args.length > 5) {
+            System.out.println("Usage: LAYOUT INTERSECTIONS OUTPUT_FILENAME "
+                    + "[SEED [FAULTS]]");
+            System.exit(1);
+        }
+        NetworkGenerator generator = null;
+        try {
+            generator = new NetworkGenerator(Layout.valueOf(args[0]),
+                    Integer.parseInt(args[1]),
+                    args.length > 3 ? Long.parseLong(args[3]) : 0);
+            if (args.length > 4) {
+                generator.setFaultCount(Integer.parseInt(args[4]));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(1);
+        }
+        try (Writer writer = new BufferedWriter(new FileWriter(args[2]))) {
+            long routes = generator.write(writer);
+            System.out.println("Wrote " + args[1] + " intersections and "
+                    + routes + " routes to " + args[2]);
+        } catch (IOException e) {
+            System.err.println("Error writing to file \"" + args[2] + "\": "
+                    + e.toString());
+            System.exit(1);
+        }
+    }
+}
@@ -1,16 +1,20 @@
 package tms.network;
 
-import tms.intersection.Intersection;
 import tms.sensors.DemoPressurePad;
 import tms.sensors.DemoSpeedCamera;
 import tms.sensors.DemoVehicleCount;
 import tms.sensors.Sensor;
+import tms.sensors.SensorDataStore;
 import tms.util.*;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class NetworkInitialiser {
@@ -80,6 +84,12 @@ public class NetworkInitialiser {
      * An empty line occurs where a non-empty line is expected.
      * The file contains any more than two (2) newline characters at the end of
      * the file.
+     * <p>
+     * Text files are read as UTF-8, whatever the platform's default charset.
+     * <p>
+     * Binary snapshots written by NetworkBinaryFormat.write(Network, Path) are
+     * recognised by their magic number and loaded with
+     * NetworkBinaryFormat.read(Path) instead.
      *
      * @param filename  name of the file from which to load a network.
      * @return the Network loaded from file.
@@ -90,163 +100,323 @@ public class NetworkInitialiser {
      */
     public static Network loadNetwork(String filename)
             throws IOException, InvalidNetworkException {
+        return loadNetwork(filename, null);
+    }
+
+    /**
+     * Loads a saved Network from the file with the given filename, keeping
+     * the data values of every sensor in the given store.
+     * <p>
+     * Sharing one store between all sensors greatly reduces the heap used by
+     * networks with many sensors or long sensor histories.
+     *
+     * @param filename  name of the file from which to load a network.
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array.
+     * @return the Network loaded from file.
+     * @throws IOException any IOExceptions encountered when reading the file
+     *          are bubbled up.
+     * @throws InvalidNetworkException if the file format of the given file is
+     *          invalid.
+     * @see NetworkInitialiser#loadNetwork(String)
+     */
+    public static Network loadNetwork(String filename, SensorDataStore store)
+            throws IOException, InvalidNetworkException {
+        return loadNetwork(filename, store,
+                TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Loads a saved Network from the file with the given filename, keeping
+     * the data values of every sensor in the given store, and registering
+     * its sensors and traffic lights with the given timed item manager.
+     *
+     * @param filename  name of the file from which to load a network.
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array.
+     * @param timedItemManager manager the network's timed items are
+     *                         registered with.
+     * @return the Network loaded from file.
+     * @throws IOException any IOExceptions encountered when reading the file
+     *          are bubbled up.
+     * @throws InvalidNetworkException if the file format of the given file is
+     *          invalid.
+     * @see Network#Network(TimedItemManager)
+     */
+    public static Network loadNetwork(String filename, SensorDataStore store,
+            TimedItemManager timedItemManager)
+            throws IOException, InvalidNetworkException {
+        Path path = Paths.get(filename);
+        if (NetworkBinaryFormat.isSnapshot(path)) {
+            return NetworkBinaryFormat.read(path, store, timedItemManager);
+        }
+        try (Reader reader = Files.newBufferedReader(path,
+                StandardCharsets.UTF_8)) {
+            return loadNetwork(reader, store, timedItemManager);
+        }
+    }
+
+    /**
+     * Loads a Network from the given reader, which supplies the contents of a
+     * network file in the format described in loadNetwork(String).
+     * <p>
+     * The file is read in a single pass and only the current line is kept in
+     * memory. The reader is not closed by this method.
+     *
+     * @param reader reader supplying the network file.
+     * @return the Network that was read.
+     * @throws IOException any IOExceptions encountered when reading are
+     *          bubbled up.
+     * @throws InvalidNetworkException if the format of the network file is
+     *          invalid; the message gives the line (and for syntax errors the
+     *          column) at which the problem was found.
+     */
+    public static Network loadNetwork(Reader reader)
+            throws IOException, InvalidNetworkException {
+        return loadNetwork(reader, null);
+    }
+
+    /**
+     * Loads a Network from the given reader, keeping the data values of every
+     * sensor in the given store.
+     *
+     * @param reader reader supplying the network file.
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array.
+     * @return the Network that was read.
+     * @throws IOException any IOExceptions encountered when reading are
+     *          bubbled up.
+     * @throws InvalidNetworkException if the format of the network file is
+     *          invalid.
+     * @see NetworkInitialiser#loadNetwork(Reader)
+     */
+    public static Network loadNetwork(Reader reader, SensorDataStore store)
+            throws IOException, InvalidNetworkException {
+        return loadNetwork(reader, store,
+                TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Loads a Network from the given reader, keeping the data values of every
+     * sensor in the given store, and registering its sensors and traffic
+     * lights with the given timed item manager.
+     *
+     * @param reader reader supplying the network file.
+     * @param store store for sensor data values, or null to give each sensor
+     *              its own array.
+     * @param timedItemManager manager the network's timed items are
+     *                         registered with.
+     * @return the Network that was read.
+     * @throws IOException any IOExceptions encountered when reading are
+     *          bubbled up.
+     * @throws InvalidNetworkException if the format of the network file is
+     *          invalid.
+     * @see Network#Network(TimedItemManager)
+     */
+    public static Network loadNetwork(Reader reader, SensorDataStore store,
+            TimedItemManager timedItemManager)
+            throws IOException, InvalidNetworkException {
+        NetworkTokenizer tokenizer = new NetworkTokenizer(reader);
         int totalIntersection = 0, totalRoute = 0, nowLine = 1;
-        List<String[]> allLights = new ArrayList<>();
-        Network network = new Network();
+        int actualRouteNum = 0;
+        List<PendingLights> allLights = new ArrayList<>();
+        Network network = new Network(timedItemManager);
         try {
-            BufferedReader file = new BufferedReader(new FileReader(filename));
-            String line = file.readLine();
-            while (line != null) {
-                if (line.isEmpty()) {
-                    throw new InvalidNetworkException("empty line");
+            while (tokenizer.nextLine()) {
+                if (tokenizer.isLineEmpty()) {
+                    throw tokenizer.error("empty line");
                 }
-                if (line.charAt(0) == ';') {
-                    line = file.readLine();
+                if (tokenizer.lineStartsWith(';')) {
                     continue;
                 }
                 //record the intersections amount.
-                else if (nowLine == 1) {
-                    totalIntersection = Integer.parseInt(line);
+                if (nowLine == 1) {
+                    totalIntersection = readNumberLine(tokenizer);
                 }
                 //record the routes amount.
                 else if (nowLine == 2) {
-                    totalRoute = Integer.parseInt(line);
+                    totalRoute = readNumberLine(tokenizer);
                 }
                 //record the yellow time.
                 else if (nowLine == 3) {
-                    network.setYellowTime(Integer.parseInt(line));
-                    if (Integer.parseInt(line) < 1) {
-                        throw new InvalidNetworkException("yellow time < 1");
+                    int yellowTime = readNumberLine(tokenizer);
+                    if (yellowTime < 1) {
+                        throw lineError(tokenizer.getLineNumber(),
+                                "yellow time < 1");
                     }
+                    network.setYellowTime(yellowTime);
                 }
                 // add all intersections.
                 else if (nowLine - 3 <= totalIntersection) {
-                    if (line.split(LINE_INFO_SEPARATOR,-1).length == 3) {
-                        String[] intersectionContent = line.split(":|,", -1);
-                        allLights.add(intersectionContent);
-                    }
-                    createIntersection(line, network);
+                    createIntersection(tokenizer, network, allLights);
                 }
                 //add all routes and sensors.
                 else {
-                    String[] routeContent = line.split(LINE_INFO_SEPARATOR,-1);
-                    //after split, route line length is 4 or 5.
-                    if (routeContent.length == 5 || routeContent.length == 4) {
-                        network.connectIntersections(routeContent[0], routeContent[1],
-                                Integer.parseInt(routeContent[2]));
-                    }
-                    // add speed sign (if the route has speed sign)
-                    if (routeContent.length == 5) {
-                        network.getConnection(routeContent[0],
-                                routeContent[1]).addSpeedSign
-                                (Integer.parseInt(routeContent[4]));
-                    }
-                    else if (routeContent.length != 4) {
-                        throw new InvalidNetworkException("wrong Rounte" +
-                                " content");
-                    }
-                    // if the route has sensors, add sensors.
-                    if (Integer.parseInt(routeContent[3]) != 0) {
-                        if (Integer.parseInt(routeContent[3]) < 0) {
-                            throw new InvalidNetworkException("sensor num < 0");
-                        }
-                        for (int i = 0; i < Integer.parseInt(routeContent[3]);
-                             i++) {
-                            line = file.readLine();
-                            if (line == null) {
-                                throw new InvalidNetworkException("sensor is " +
-                                        "empty");
-                            }
-                            addSensor (line, network, routeContent[0],
-                                    routeContent[1]);
-                        }
-                    }
+                    addRoute(tokenizer, network, store);
+                    actualRouteNum++;
                 }
-                line = file.readLine();
                 nowLine++;
             }
-            // add traffic Light
-            addLight(allLights, network);
-            if (totalIntersection != network.getIntersections().size()) {
-                throw new InvalidNetworkException("intersection num wrong");
-            }
-            int actualRouteNum = 0;
-            for (Intersection demo : network.getIntersections()) {
-                actualRouteNum += demo.getConnections().size();
-            }
-            if (totalRoute != actualRouteNum) {
-                throw new InvalidNetworkException("file route num wrong");
-            }
-            if (nowLine < 4) {
-                throw new InvalidNetworkException("empty file");
-            }
-            file.close();
         }
         catch (RouteNotFoundException | DuplicateSensorException |
-                IntersectionNotFoundException | InvalidOrderException |
-                IllegalStateException | IllegalArgumentException  e) {
-            throw new InvalidNetworkException(e.toString());
+                IntersectionNotFoundException | IllegalStateException |
+                IllegalArgumentException  e) {
+            throw lineError(tokenizer.getLineNumber(), e.toString());
+        }
+        // add traffic Light
+        addLight(allLights, network);
+        if (totalIntersection != network.getIntersectionCount()) {
+            throw new InvalidNetworkException("intersection num wrong");
+        }
+        if (totalRoute != actualRouteNum) {
+            throw new InvalidNetworkException("file route num wrong");
+        }
+        if (nowLine < 4) {
+            throw new InvalidNetworkException("empty file");
         }
         return network;
     }
 
+    /*
+     * Creates an exception for a problem with the line with the given number.
+     */
+    private static InvalidNetworkException lineError(int lineNumber,
+                                                     String message) {
+        return new InvalidNetworkException("line " + lineNumber + ": "
+                + message);
+    }
+
+    /*
+     * Reads a line containing a single number.
+     */
+    private static int readNumberLine(NetworkTokenizer tokenizer)
+            throws InvalidNetworkException {
+        int number = tokenizer.readInt();
+        tokenizer.expectEndOfLine();
+        return number;
+    }
+
     /*
      * A method to create intersections.
      *
-     * @param line String of the intersection line.
+     * Traffic lights cannot be added until every route has been read, so the
+     * lights of this intersection (if any) are added to allLights instead.
+     *
+     * @param tokenizer tokenizer positioned at the intersection line.
      * @param network a network of intersections connected by routes.
+     * @param allLights record all intersection light information.
      * @throws InvalidNetworkException if the file format of the given file is
      *          invalid.
      */
-    private static void createIntersection(String line, Network network)
+    private static void createIntersection(NetworkTokenizer tokenizer,
+                                           Network network,
+                                           List<PendingLights> allLights)
             throws InvalidNetworkException {
-        // this intersection has light.
-        if (line.split(LINE_INFO_SEPARATOR,-1).length == 3) {
-            String[] intersectionContent = line.split(":|,",-1);
-            network.createIntersection(intersectionContent[0]);
-        }
-        else if (line.split(LINE_INFO_SEPARATOR,-1).length == 1) {
-            network.createIntersection(line);
-        } else {
-            throw new InvalidNetworkException("wrong intersection format");
+        String id = tokenizer.readField(':');
+        // this intersection has no light.
+        if (tokenizer.atEndOfLine()) {
+            network.createIntersection(id);
+            return;
         }
+        tokenizer.expect(':');
+        int duration = tokenizer.readInt();
+        tokenizer.expect(':');
+        List<String> order = new ArrayList<>();
+        do {
+            String from = tokenizer.readField(',');
+            if (from.indexOf(':') >= 0) {
+                throw tokenizer.error("wrong intersection format");
+            }
+            order.add(from);
+        } while (tokenizer.skip(','));
+        network.createIntersection(id);
+        allLights.add(new PendingLights(tokenizer.getLineNumber(), id,
+                duration, order));
     }
 
     /*
      * A method about add light to intersection.
      *
-     * @param allLignts record all intersection light information.
+     * @param allLights record all intersection light information.
+     * @param network a network of intersections connected by routes.
+     *
+     * @throws InvalidNetworkException if a duration is invalid, or if an order
+     *          is not a permutation of the intersection's incoming routes.
+     */
+    private static void addLight(List<PendingLights> allLights,
+                                 Network network)
+            throws InvalidNetworkException {
+        for (PendingLights lights : allLights) {
+            if (lights.duration < 1) {
+                throw lineError(lights.lineNumber, "duration < 1");
+            }
+            try {
+                network.addLights(lights.intersectionId, lights.duration,
+                        lights.order);
+            } catch (IntersectionNotFoundException | InvalidOrderException |
+                    IllegalStateException | IllegalArgumentException e) {
+                throw lineError(lights.lineNumber, e.toString());
+            }
+        }
+    }
+
+    /*
+     * A method to add a route, and the sensors on the lines below it.
+     *
+     * @param tokenizer tokenizer positioned at the route line.
      * @param network a network of intersections connected by routes.
+     * @param store store for sensor data values, or null.
      *
      * @throws IntersectionNotFoundException if no intersection with the given
      *           ID exists.
-     * @throws InvalidOrderException if the order specified is not a permutation
-     *           of the intersection's incoming routes; or if order is empty.
+     * @throws DuplicateSensorException if a sensor already exists on the route
+     *          with the same type.
+     * @throws RouteNotFoundException if no route exists between the given
+     *          to/from intersections.
+     * @throws InvalidNetworkException if the file format of the given file is
+     *          invalid.
+     * @throws IOException if the sensor lines could not be read.
      */
-    private static void addLight(List<String[]> allLights, Network network)
-            throws IntersectionNotFoundException, InvalidOrderException,
-            InvalidNetworkException {
-        for (int i = 0; i < allLights.size(); i++) {
-            //record each intersection light information.
-            List<String> order = new ArrayList<>();
-            for (int k = 2; k < allLights.get(i).length; k++) {
-                order.add(allLights.get(i)[k]);
-            }
-            if (Integer.parseInt(allLights.get(i)[1]) < 1) {
-                throw new InvalidNetworkException("duration < 1");
+    private static void addRoute(NetworkTokenizer tokenizer, Network network,
+                                 SensorDataStore store)
+            throws IntersectionNotFoundException, DuplicateSensorException,
+            RouteNotFoundException, InvalidNetworkException, IOException {
+        String from = tokenizer.readField(':');
+        tokenizer.expect(':');
+        String to = tokenizer.readField(':');
+        tokenizer.expect(':');
+        int defaultSpeed = tokenizer.readInt();
+        tokenizer.expect(':');
+        int numSensors = tokenizer.readInt();
+        boolean hasSpeedSign = tokenizer.skip(':');
+        int speedSignSpeed = hasSpeedSign ? tokenizer.readInt() : 0;
+        tokenizer.expectEndOfLine();
+        network.connectIntersections(from, to, defaultSpeed);
+        // add speed sign (if the route has speed sign)
+        if (hasSpeedSign) {
+            network.addSpeedSign(from, to, speedSignSpeed);
+        }
+        if (numSensors < 0) {
+            throw lineError(tokenizer.getLineNumber(), "sensor num < 0");
+        }
+        // if the route has sensors, add sensors.
+        for (int i = 0; i < numSensors; i++) {
+            if (!tokenizer.nextLine()) {
+                throw lineError(tokenizer.getLineNumber() + 1,
+                        "sensor is empty");
             }
-            network.addLights(allLights.get(i)[0],
-                    (Integer.parseInt(allLights.get(i)[1])), order);
+            addSensor(tokenizer, network, from, to, store);
         }
     }
 
     /*
      * A method about add sensors to route.
      *
-     * @param line String of sensor information.
+     * @param tokenizer tokenizer positioned at the sensor line.
      * @param network a network of intersections connected by routes.
      * @param from  ID of origin intersection.
      * @param to  ID of destination intersection.
+     * @param store store for sensor data values, or null.
      *
      * @throws IntersectionNotFoundException if no intersection with the given
      *           ID exists.
@@ -257,44 +427,112 @@ public class NetworkInitialiser {
      * @throws InvalidNetworkException if the file format of the given file is
      *          invalid.
      */
-    private static void addSensor(String line, Network network, String from,
-                                  String to)
+    private static void addSensor(NetworkTokenizer tokenizer, Network network,
+                                  String from, String to,
+                                  SensorDataStore store)
             throws IntersectionNotFoundException, DuplicateSensorException,
             RouteNotFoundException, InvalidNetworkException {
-        String[] sensorContent = line.split(LINE_INFO_SEPARATOR,-1);
-        if (sensorContent.length != 3) {
-            throw new InvalidNetworkException("sensor format wrong");
+        String type;
+        if (tokenizer.skip("PP" + LINE_INFO_SEPARATOR)) {
+            type = "PP";
+        } else if (tokenizer.skip("SC" + LINE_INFO_SEPARATOR)) {
+            type = "SC";
+        } else if (tokenizer.skip("VC" + LINE_INFO_SEPARATOR)) {
+            type = "VC";
+        } else {
+            throw tokenizer.error("invalid sensor");
         }
-        Sensor newSensor;
-        int threshold = Integer.parseInt(sensorContent[1]);
+        int threshold = tokenizer.readInt();
         if (threshold <= 0) {
-            throw new InvalidNetworkException("threshold<=0");
+            throw tokenizer.error("threshold<=0");
         }
-        String[] sensorValue = sensorContent[2].split(LINE_LIST_SEPARATOR,
-                -1);
-        int[] sensorData = new int[sensorValue.length];
-        for (int k = 0; k < sensorValue.length; k++) {
-            sensorData[k] = Integer.parseInt(sensorValue[k]);
-            if(sensorData[k] < 0) {
-                throw new InvalidNetworkException("sensor data < 0");
+        tokenizer.expect(':');
+        int[] sensorData = new int[16];
+        int length = 0;
+        do {
+            if (length == sensorData.length) {
+                sensorData = Arrays.copyOf(sensorData, length * 2);
             }
+            sensorData[length] = tokenizer.readInt();
+            if (sensorData[length] < 0) {
+                throw tokenizer.error("sensor data < 0");
+            }
+            length++;
+        } while (tokenizer.skip(','));
+        tokenizer.expectEndOfLine();
+        network.addSensor(from, to, createSensor(type, sensorData, length,
+                threshold, store, network));
+    }
+
+    /*
+     * Creates a demo sensor of the type with the given name ("PP", "SC" or
+     * "VC") from the first 'length' values of the given array, keeping its
+     * data in the given store if it is not null. A store copies the values
+     * itself, so the array is only trimmed for sensors without a store. The
+     * sensor is registered with the network's manager and belongs to the
+     * network even if it is never added to a route.
+     */
+    static Sensor createSensor(String type, int[] data, int length,
+                               int threshold, SensorDataStore store,
+                               Network network) {
+        Sensor sensor = createSensor(type, data, length, threshold, store,
+                network.getTimedItemManager());
+        network.adopt(sensor);
+        return sensor;
+    }
+
+    /*
+     * Creates a demo sensor of the given type registered with the given
+     * manager.
+     */
+    private static Sensor createSensor(String type, int[] data, int length,
+                                       int threshold, SensorDataStore store,
+                                       TimedItemManager manager) {
+        if (store == null && length != data.length) {
+            data = Arrays.copyOf(data, length);
         }
-        if (sensorContent[0].equals("PP")) {
-            newSensor = new DemoPressurePad
-                    (sensorData, threshold);
-        }
-        else if (sensorContent[0].equals("SC")) {
-            newSensor = new DemoSpeedCamera
-                    (sensorData, threshold);
+        if (type.equals("PP")) {
+            return store == null ? new DemoPressurePad(data, threshold,
+                    manager)
+                    : new DemoPressurePad(store, data, length, threshold,
+                    manager);
+        } else if (type.equals("SC")) {
+            return store == null ? new DemoSpeedCamera(data, threshold,
+                    manager)
+                    : new DemoSpeedCamera(store, data, length, threshold,
+                    manager);
+        } else if (type.equals("VC")) {
+            return store == null ? new DemoVehicleCount(data, threshold,
+                    manager)
+                    : new DemoVehicleCount(store, data, length, threshold,
+                    manager);
         }
-        else if (sensorContent[0].equals("VC")) {
-            newSensor = new DemoVehicleCount
-                    (sensorData, threshold);
-        } else {
-            throw new IllegalArgumentException
-                    ("invalid sensor");
+        throw new IllegalArgumentException("invalid sensor");
+    }
+
+    /*
+     * Traffic lights read from an intersection line, which are added to the
+     * network once all of its routes have been read.
+     */
+    private static class PendingLights {
+        /** Line of the file the lights were read from. */
+        private final int lineNumber;
+        /** ID of the intersection the lights belong to. */
+        private final String intersectionId;
+        /** Duration of each green-yellow cycle. */
+        private final int duration;
+        /** IDs of the origin intersections, in the order they go green. */
+        private final List<String> order;
+
+        /*
+         * Creates a record of the lights read from the given line.
+         */
+        PendingLights(int lineNumber, String intersectionId, int duration,
+                      List<String> order) {
+            this.lineNumber = lineNumber;
+            this.intersectionId = intersectionId;
+            this.duration = duration;
+            this.order = order;
         }
-        network.addSensor(from, to, newSensor);
     }
 }
-
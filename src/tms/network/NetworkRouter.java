@@ -0,0 +1,411 @@
+package tms.network;
+
+import tms.route.Route;
+import tms.util.IntersectionNotFoundException;
+import tms.util.RouteNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds fastest and shortest paths between the intersections of a network.
+ * <p>
+ * The routes of the network are copied into compact arrays when the router
+ * is created: for each intersection, the ranges of its outgoing and incoming
+ * routes, and for each route, the intersection at its other end and its
+ * travel cost. Queries run a bidirectional Dijkstra search over these arrays,
+ * growing one search forwards from the origin and one backwards from the
+ * destination until they meet, so they look at far fewer intersections than
+ * a one-way search and create no objects except the resulting path.
+ * <p>
+ * Routes have no length, so the cost of a route is the time taken to travel
+ * a unit distance along it: the inverse of its speed limit, as shown by its
+ * speed sign, scaled up by its congestion so that a fully congested route
+ * takes twice as long. Routes with a speed limit of zero cannot be used.
+ * Costs are read when the router is created and again on each call to
+ * {@link NetworkRouter#refresh()}. Routes added to the network later are
+ * not seen; a new router must be created for them.
+ * <p>
+ * A router keeps scratch space between queries and is not thread safe. Each
+ * thread answering queries should use its own router.
+ */
+public class NetworkRouter {
+    /** Network the router was created from. */
+    private final Network network;
+    /** Routes of the network, by route index. */
+    private final Route[] routes;
+    /** Start of each intersection's outgoing routes in outRoutes. */
+    private final int[] outStart;
+    /** Indices of the routes leaving each intersection, grouped. */
+    private final int[] outRoutes;
+    /** Start of each intersection's incoming routes in inRoutes. */
+    private final int[] inStart;
+    /** Indices of the routes entering each intersection, grouped. */
+    private final int[] inRoutes;
+    /** Origin intersection of each route. */
+    private final int[] origins;
+    /** Destination intersection of each route. */
+    private final int[] destinations;
+    /** Travel time of each route. */
+    private final double[] times;
+    /** Cost of each route when counting routes. */
+    private final double[] hops;
+    /** Search from the origin of a query. */
+    private final Search forward;
+    /** Search from the destination of a query. */
+    private final Search backward;
+    /** Cost of the best path found by the last search. */
+    private double best;
+    /** Intersection where the best path's two halves meet, or -1. */
+    private int meeting;
+
+    /**
+     * Creates a router for the given network, using the current speed
+     * limits and congestion of its routes.
+     *
+     * @param network network to find paths in
+     */
+    public NetworkRouter(Network network) {
+        this.network = network;
+        int intersectionCount = network.getIntersectionCount();
+        routes = new Route[network.getRouteCount()];
+        origins = new int[routes.length];
+        destinations = new int[routes.length];
+        inStart = new int[intersectionCount + 1];
+        inRoutes = new int[routes.length];
+        int route = 0;
+        for (int i = 0; i < intersectionCount; i++) {
+            inStart[i] = route;
+            for (Route incoming : network.getIncomingRoutes(i)) {
+                routes[route] = incoming;
+                origins[route] = network.getIntersectionIndex(
+                        incoming.getFrom().getId());
+                destinations[route] = i;
+                inRoutes[route] = route;
+                route++;
+            }
+        }
+        inStart[intersectionCount] = route;
+        outStart = new int[intersectionCount + 1];
+        outRoutes = new int[routes.length];
+        for (int origin : origins) {
+            outStart[origin + 1]++;
+        }
+        for (int i = 0; i < intersectionCount; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        int[] next = Arrays.copyOf(outStart, intersectionCount);
+        for (int i = 0; i < routes.length; i++) {
+            outRoutes[next[origins[i]]++] = i;
+        }
+        times = new double[routes.length];
+        hops = new double[routes.length];
+        Arrays.fill(hops, 1);
+        forward = new Search(intersectionCount);
+        backward = new Search(intersectionCount);
+        refresh();
+    }
+
+    /**
+     * Reads the current speed limits and congestion of the network's routes
+     * into their travel times. Takes time linear in the number of routes.
+     */
+    public void refresh() {
+        for (int i = 0; i < routes.length; i++) {
+            int speed = routes[i].getSpeed();
+            times[i] = speed <= 0 ? Double.POSITIVE_INFINITY
+                    : (1 + routes[i].getCongestion() / 100.0) / speed;
+        }
+    }
+
+    /**
+     * Returns the routes of a path with the least total travel time between
+     * the given intersections.
+     *
+     * @param from ID of the origin intersection
+     * @param to   ID of the destination intersection
+     * @return routes to follow in order; empty if from and to are the same
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if the destination cannot be reached
+     *          from the origin
+     */
+    public List<Route> findFastestPath(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        return findPath(from, to, times);
+    }
+
+    /**
+     * Returns the routes of a path with the fewest routes between the given
+     * intersections, ignoring speed limits and congestion. Routes with a
+     * speed limit of zero can be used.
+     *
+     * @param from ID of the origin intersection
+     * @param to   ID of the destination intersection
+     * @return routes to follow in order; empty if from and to are the same
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if the destination cannot be reached
+     *          from the origin
+     */
+    public List<Route> findShortestPath(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        return findPath(from, to, hops);
+    }
+
+    /**
+     * Returns the least total travel time of a path between the given
+     * intersections, as worked out from the costs described above.
+     *
+     * @param from ID of the origin intersection
+     * @param to   ID of the destination intersection
+     * @return travel time of a fastest path, or Double.POSITIVE_INFINITY if
+     *         the destination cannot be reached
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     */
+    public double getTravelTime(String from, String to)
+            throws IntersectionNotFoundException {
+        search(findIntersection(from), findIntersection(to), times);
+        return best;
+    }
+
+    /*
+     * Finds a least-cost path and converts it into a list of routes.
+     */
+    private List<Route> findPath(String from, String to, double[] costs)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        int origin = findIntersection(from);
+        int destination = findIntersection(to);
+        search(origin, destination, costs);
+        if (meeting < 0) {
+            throw new RouteNotFoundException("no path from \"" + from
+                    + "\" to \"" + to + "\"");
+        }
+        List<Route> path = new ArrayList<>();
+        for (int node = meeting; node != origin;
+                node = origins[forward.via[node]]) {
+            path.add(routes[forward.via[node]]);
+        }
+        Collections.reverse(path);
+        for (int node = meeting; node != destination;
+                node = destinations[backward.via[node]]) {
+            path.add(routes[backward.via[node]]);
+        }
+        return path;
+    }
+
+    /*
+     * Runs a bidirectional search between two intersections, leaving the
+     * cost of the best path in best and the intersection where it was found
+     * in meeting.
+     *
+     * The two searches take turns settling their closest intersection. Once
+     * the sum of their closest distances is no less than the best path seen,
+     * no shorter path can exist, so the search stops.
+     */
+    private void search(int origin, int destination, double[] costs) {
+        forward.start(origin);
+        backward.start(destination);
+        best = origin == destination ? 0 : Double.POSITIVE_INFINITY;
+        meeting = origin == destination ? origin : -1;
+        while (!forward.isEmpty() && !backward.isEmpty()
+                && forward.peekDistance() + backward.peekDistance() < best) {
+            if (forward.size <= backward.size) {
+                expand(forward, backward, outStart, outRoutes, destinations,
+                        costs);
+            } else {
+                expand(backward, forward, inStart, inRoutes, origins,
+                        costs);
+            }
+        }
+    }
+
+    /*
+     * Settles the closest intersection of one search and relaxes the routes
+     * leading on from it, recording any path that meets the other search.
+     */
+    private void expand(Search search, Search other, int[] start,
+            int[] adjacent, int[] ends, double[] costs) {
+        int node = search.poll();
+        double distance = search.distance[node];
+        for (int i = start[node]; i < start[node + 1]; i++) {
+            int route = adjacent[i];
+            double candidate = distance + costs[route];
+            int end = ends[route];
+            if (candidate < search.distanceOf(end)) {
+                search.update(end, candidate, route);
+                double total = candidate + other.distanceOf(end);
+                if (total < best) {
+                    best = total;
+                    meeting = end;
+                }
+            }
+        }
+    }
+
+    /*
+     * Returns the index of the intersection with the given ID.
+     */
+    private int findIntersection(String id)
+            throws IntersectionNotFoundException {
+        int index = network.getIntersectionIndex(id);
+        if (index < 0 || index >= outStart.length - 1) {
+            throw new IntersectionNotFoundException("no intersection could be"
+                    + " found with the given identifier");
+        }
+        return index;
+    }
+
+    /*
+     * State of one direction of a search: tentative distances, the route
+     * each intersection was reached by, and a binary heap of intersections
+     * ordered by distance. Arrays are reused between queries; an entry is
+     * only valid if its stamp matches the current query's.
+     */
+    private static final class Search {
+        /** Tentative distance of each intersection. */
+        private final double[] distance;
+        /** Route each intersection was last reached by. */
+        private final int[] via;
+        /** Query each intersection's entries belong to. */
+        private final int[] stamp;
+        /** Position of each intersection in the heap, or -1 if settled. */
+        private final int[] position;
+        /** Heap of intersections not yet settled. */
+        private final int[] heap;
+        /** Number of intersections in the heap. */
+        private int size;
+        /** Number of the current query. */
+        private int query;
+
+        /*
+         * Creates search state for the given number of intersections.
+         */
+        private Search(int intersectionCount) {
+            distance = new double[intersectionCount];
+            via = new int[intersectionCount];
+            stamp = new int[intersectionCount];
+            position = new int[intersectionCount];
+            heap = new int[intersectionCount];
+        }
+
+        /*
+         * Clears the state of the previous query and starts from the given
+         * intersection.
+         */
+        private void start(int node) {
+            query++;
+            if (query == 0) {
+                Arrays.fill(stamp, 0);
+                query = 1;
+            }
+            size = 0;
+            update(node, 0, -1);
+        }
+
+        /*
+         * Returns the tentative distance of an intersection, or infinity if
+         * it has not been reached in this query.
+         */
+        private double distanceOf(int node) {
+            return stamp[node] == query ? distance[node]
+                    : Double.POSITIVE_INFINITY;
+        }
+
+        /*
+         * Returns whether every reached intersection has been settled.
+         */
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        /*
+         * Returns the least distance of an intersection not yet settled.
+         */
+        private double peekDistance() {
+            return distance[heap[0]];
+        }
+
+        /*
+         * Lowers the distance of an intersection, adding it to the heap if
+         * it has not been reached before.
+         */
+        private void update(int node, double newDistance, int route) {
+            if (stamp[node] != query) {
+                stamp[node] = query;
+                position[node] = size;
+                heap[size++] = node;
+            }
+            distance[node] = newDistance;
+            via[node] = route;
+            siftUp(position[node]);
+        }
+
+        /*
+         * Removes and returns the intersection with the least distance.
+         */
+        private int poll() {
+            int node = heap[0];
+            position[node] = -1;
+            size--;
+            if (size > 0) {
+                heap[0] = heap[size];
+                position[heap[0]] = 0;
+                siftDown(0);
+            }
+            return node;
+        }
+
+        /*
+         * Moves the intersection at the given heap index towards the root
+         * until its parent is no further away.
+         */
+        private void siftUp(int index) {
+            int node = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (distance[heap[parent]] <= distance[node]) {
+                    break;
+                }
+                move(heap[parent], index);
+                index = parent;
+            }
+            move(node, index);
+        }
+
+        /*
+         * Moves the intersection at the given heap index towards the leaves
+         * until neither child is closer.
+         */
+        private void siftDown(int index) {
+            int node = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size
+                        && distance[heap[child + 1]] < distance[heap[child]]) {
+                    child++;
+                }
+                if (distance[node] <= distance[heap[child]]) {
+                    break;
+                }
+                move(heap[child], index);
+                index = child;
+            }
+            move(node, index);
+        }
+
+        /*
+         * Places an intersection at the given heap index.
+         */
+        private void move(int node, int index) {
+            heap[index] = node;
+            position[node] = index;
+        }
+    }
+}
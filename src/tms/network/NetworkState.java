@@ -0,0 +1,521 @@
+package tms.network;
+
+import tms.intersection.Intersection;
+import tms.intersection.IntersectionLights;
+import tms.route.Route;
+import tms.route.TrafficLight;
+import tms.route.TrafficSignal;
+import tms.sensors.DemoSensor;
+import tms.sensors.Sensor;
+import tms.util.IntersectionNotFoundException;
+import tms.util.PersistentArray;
+import tms.util.RouteNotFoundException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable copy of the state of a network that operators can change: the
+ * speed limits of its routes and the timings of its traffic lights, at a
+ * point in simulated time.
+ * <p>
+ * A state is taken from a live network with {@link NetworkState#of(Network)}.
+ * Methods such as {@link NetworkState#withSpeedLimit(String, String, int)}
+ * return a changed copy and leave the original untouched, so any state can
+ * be used as a fork for trying out changes without affecting the network or
+ * other forks. {@link NetworkState#advance(long)} simulates time passing in
+ * a fork, and the signals and speed limits it reports are the ones the live
+ * network would have after the same changes. Demo sensors read from fixed
+ * data, so the congestion of a route can be worked out for any time as
+ * well, with {@link NetworkState#getCongestion(String, String)}.
+ * <p>
+ * Speed limits and light timings are kept in {@link PersistentArray}s, so a
+ * change copies only a few small nodes and shares everything else with the
+ * state it was made from. Advancing time copies nothing, because the signals
+ * and congestion are worked out from each set of lights' timings and each
+ * sensor's data when asked for.
+ * <p>
+ * The first state taken from a network takes time linear in the size of
+ * the network. The network keeps that state, and its speed limit and light
+ * duration changes are applied to it as they are made, so later calls to
+ * {@link NetworkState#of(Network)} cost only as much as those changes.
+ * Adding intersections, routes, speed signs, sensors or traffic lights
+ * discards the kept state, and the next call takes a full copy again. The
+ * routes and intersections of a state are fixed when it is taken.
+ */
+public final class NetworkState {
+    /** Structure of the network, shared by every state taken from it. */
+    private final Layout layout;
+    /** Seconds elapsed in the simulation. */
+    private final long time;
+    /** Speed limit of each route, by route index. */
+    private final PersistentArray<Integer> speeds;
+    /** Timings of each intersection's lights, null if it has none. */
+    private final PersistentArray<LightPhase> phases;
+
+    /*
+     * Creates a state from its parts.
+     */
+    private NetworkState(Layout layout, long time,
+            PersistentArray<Integer> speeds,
+            PersistentArray<LightPhase> phases) {
+        this.layout = layout;
+        this.time = time;
+        this.speeds = speeds;
+        this.phases = phases;
+    }
+
+    /**
+     * Takes a copy of the current state of the given network.
+     * <p>
+     * Must be called from the thread that advances the simulation.
+     *
+     * @param network network to copy
+     * @return state of the network at the current simulation time
+     */
+    public static NetworkState of(Network network) {
+        long time = network.getTimedItemManager().getTime();
+        NetworkState state = network.getKeptState();
+        if (state == null || state.time > time) {
+            state = copy(network, time);
+            network.keepState(state);
+        }
+        return state.advance(time - state.time);
+    }
+
+    /*
+     * Copies the whole state of a network, building its layout.
+     */
+    private static NetworkState copy(Network network, long time) {
+        Layout layout = new Layout(network.getIntersectionCount(),
+                network.getRouteCount(), time);
+        List<Integer> speeds = new ArrayList<>(network.getRouteCount());
+        int route = 0;
+        for (int i = 0; i < layout.incoming.length; i++) {
+            List<Route> incoming = network.getIncomingRoutes(i);
+            layout.incoming[i] = new int[incoming.size()];
+            for (int j = 0; j < incoming.size(); j++) {
+                Route connection = incoming.get(j);
+                TrafficLight light = connection.getTrafficLight();
+                layout.routeIndices.put(connection.getFrom().getId()
+                        + NetworkInitialiser.LINE_INFO_SEPARATOR
+                        + connection.getTo().getId(), route);
+                layout.incoming[i][j] = route;
+                layout.destinations[route] = i;
+                layout.speedSigns[route] = connection.hasSpeedSign();
+                layout.lightPositions[route] = -1;
+                layout.signals[route] = light == null ? null
+                        : light.getSignal();
+                layout.addSensors(route, connection.getSensors());
+                speeds.add(connection.getSpeed());
+                route++;
+            }
+        }
+        List<LightPhase> phases = new ArrayList<>(layout.incoming.length);
+        for (int i = 0; i < layout.incoming.length; i++) {
+            phases.add(null);
+        }
+        for (Intersection intersection : network.getIntersections()) {
+            int index = network.getIntersectionIndex(intersection.getId());
+            layout.intersectionIndices.put(intersection.getId(), index);
+            if (intersection.hasTrafficLights()) {
+                phases.set(index, layout.addLights(index,
+                        intersection.getTrafficLights(), time));
+            }
+        }
+        return new NetworkState(layout, time, PersistentArray.of(speeds),
+                PersistentArray.of(phases));
+    }
+
+    /**
+     * Returns the number of seconds elapsed in the simulation at this state.
+     *
+     * @return simulation time of this state
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the state reached after the given number of seconds pass with
+     * no further changes.
+     *
+     * @param seconds number of seconds to simulate
+     * @return state after the given time
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public NetworkState advance(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("seconds must not be negative");
+        }
+        return seconds == 0 ? this
+                : new NetworkState(layout, time + seconds, speeds, phases);
+    }
+
+    /**
+     * Returns the speed limit of the route between the two given
+     * intersections, as returned by Route.getSpeed().
+     *
+     * @param from ID of origin intersection
+     * @param to   ID of destination intersection
+     * @return speed limit of the route
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if no route exists between the two given
+     *          intersections
+     */
+    public int getSpeed(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        return speeds.get(findRoute(from, to));
+    }
+
+    /**
+     * Returns the congestion level of the route between the two given
+     * intersections at the time of this state, as Route.getCongestion()
+     * would return: the rounded average of its sensors' congestion levels.
+     *
+     * @param from ID of origin intersection
+     * @param to   ID of destination intersection
+     * @return congestion level of the route, 0 to 100
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if no route exists between the two given
+     *          intersections
+     * @throws IllegalStateException if the route has a sensor that is not a
+     *          demo sensor, whose future readings are not known
+     */
+    public int getCongestion(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        int route = findRoute(from, to);
+        DemoSensor[] sensors = layout.sensors[route];
+        if (sensors == null) {
+            throw new IllegalStateException("route has a sensor whose future"
+                    + " readings are not known");
+        }
+        if (sensors.length == 0) {
+            return 0;
+        }
+        long elapsed = time - layout.time;
+        int[] indices = layout.sensorIndices[route];
+        int total = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            total += sensors[i].getCongestionAt(Math.floorMod(
+                    indices[i] + elapsed, sensors[i].getDataLength()));
+        }
+        return Math.round((float) total / sensors.length);
+    }
+
+    /**
+     * Returns the traffic signal of the route between the two given
+     * intersections.
+     *
+     * @param from ID of origin intersection
+     * @param to   ID of destination intersection
+     * @return signal of the route, or null if it has no traffic light
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if no route exists between the two given
+     *          intersections
+     */
+    public TrafficSignal getSignal(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        int route = findRoute(from, to);
+        int position = layout.lightPositions[route];
+        if (position < 0) {
+            return null;
+        }
+        int intersection = layout.destinations[route];
+        LightPhase phase = phases.get(intersection);
+        if (!phase.cycling) {
+            return layout.signals[route];
+        }
+        if (phase.currentRoute(time, layout.lightRouteCounts[intersection])
+                != position) {
+            return TrafficSignal.RED;
+        }
+        return phase.position(time)
+                < phase.duration - layout.yellowTimes[intersection]
+                ? TrafficSignal.GREEN : TrafficSignal.YELLOW;
+    }
+
+    /**
+     * Returns the green-yellow duration of the given intersection's traffic
+     * lights.
+     *
+     * @param intersectionId ID of the intersection
+     * @return duration of the intersection's lights
+     * @throws IntersectionNotFoundException if no intersection exists with
+     *          the given ID
+     * @throws IllegalStateException if the intersection has no traffic lights
+     */
+    public int getLightDuration(String intersectionId)
+            throws IntersectionNotFoundException {
+        return findLights(intersectionId).duration;
+    }
+
+    /**
+     * Returns a copy of this state with the speed limit of the route between
+     * the two given intersections changed, as by
+     * Network.setSpeedLimit(String, String, int).
+     *
+     * @param from     ID of origin intersection
+     * @param to       ID of destination intersection
+     * @param newLimit new speed limit
+     * @return changed copy of this state
+     * @throws IntersectionNotFoundException if no intersection exists with an
+     *          ID given by 'from' or 'to'
+     * @throws RouteNotFoundException if no route exists between the two given
+     *          intersections
+     * @throws IllegalStateException if the route has no electronic speed sign
+     * @throws IllegalArgumentException if the given speed is negative
+     */
+    public NetworkState withSpeedLimit(String from, String to, int newLimit)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        int route = findRoute(from, to);
+        if (!layout.speedSigns[route]) {
+            throw new IllegalStateException(
+                    "Route must have electronic speed sign");
+        }
+        if (newLimit < 0) {
+            throw new IllegalArgumentException("Speed sign speed must be >= 0");
+        }
+        return withSpeeds(speeds.set(route, newLimit));
+    }
+
+    /**
+     * Returns a copy of this state with the speed signs on the routes into
+     * the given intersection reduced, as by
+     * Intersection.reduceIncomingSpeedSigns().
+     *
+     * @param intersectionId ID of the intersection
+     * @return changed copy of this state
+     * @throws IntersectionNotFoundException if no intersection exists with
+     *          the given ID
+     */
+    public NetworkState withReducedIncomingSpeedSigns(String intersectionId)
+            throws IntersectionNotFoundException {
+        PersistentArray<Integer> reduced = speeds;
+        for (int route : layout.incoming[findIntersection(intersectionId)]) {
+            int speed = reduced.get(route);
+            if (layout.speedSigns[route]
+                    && speed >= Intersection.SPEED_REDUCTION_CUTOFF) {
+                reduced = reduced.set(route, Math.max(
+                        Intersection.SPEED_REDUCTION_CUTOFF,
+                        speed - Intersection.SPEED_REDUCTION_AMOUNT));
+            }
+        }
+        return withSpeeds(reduced);
+    }
+
+    /**
+     * Returns a copy of this state with the duration of the given
+     * intersection's traffic lights changed, as by
+     * Network.changeLightDuration(String, int). The current route's light
+     * starts its green time again with the new duration.
+     *
+     * @param intersectionId ID of the intersection
+     * @param duration new duration of the traffic lights
+     * @return changed copy of this state
+     * @throws IntersectionNotFoundException if no intersection exists with
+     *          the given ID
+     * @throws IllegalStateException if the intersection has no traffic lights
+     * @throws IllegalArgumentException if the given duration is less than the
+     *          lights' yellow time plus one
+     */
+    public NetworkState withLightDuration(String intersectionId, int duration)
+            throws IntersectionNotFoundException {
+        int intersection = findIntersection(intersectionId);
+        LightPhase phase = findLights(intersectionId);
+        if (duration < layout.yellowTimes[intersection] + 1) {
+            throw new IllegalArgumentException("duration is less than the "
+                    + "traffic lights' yellow time plus one");
+        }
+        int route = phase.cycling ? phase.currentRoute(time,
+                layout.lightRouteCounts[intersection]) : phase.route;
+        return new NetworkState(layout, time, speeds, phases.set(intersection,
+                new LightPhase(duration, time, route, phase.cycling)));
+    }
+
+    /*
+     * Returns a copy of this state with the given speed limits.
+     */
+    private NetworkState withSpeeds(PersistentArray<Integer> newSpeeds) {
+        return newSpeeds == speeds ? this
+                : new NetworkState(layout, time, newSpeeds, phases);
+    }
+
+    /*
+     * Returns the index of the intersection with the given ID.
+     */
+    private int findIntersection(String id)
+            throws IntersectionNotFoundException {
+        Integer index = layout.intersectionIndices.get(id);
+        if (index == null) {
+            throw new IntersectionNotFoundException("no intersection could be"
+                    + " found with the given identifier");
+        }
+        return index;
+    }
+
+    /*
+     * Returns the timings of the given intersection's lights.
+     */
+    private LightPhase findLights(String intersectionId)
+            throws IntersectionNotFoundException {
+        LightPhase phase = phases.get(findIntersection(intersectionId));
+        if (phase == null) {
+            throw new IllegalStateException("this intersection has no traffic"
+                    + " lights");
+        }
+        return phase;
+    }
+
+    /*
+     * Returns the index of the route between the given intersections.
+     */
+    private int findRoute(String from, String to)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        findIntersection(from);
+        findIntersection(to);
+        Integer route = layout.routeIndices.get(from
+                + NetworkInitialiser.LINE_INFO_SEPARATOR + to);
+        if (route == null) {
+            throw new RouteNotFoundException("Route not found from \""
+                    + from + "\" to \"" + to + "\"");
+        }
+        return route;
+    }
+
+    /*
+     * Structure of a network that does not change between states: the
+     * indices of its intersections and routes, and which routes have speed
+     * signs and traffic lights. Routes are indexed by destination
+     * intersection, then in the order they were added.
+     */
+    private static final class Layout {
+        /** Simulation time at which the layout was built. */
+        private final long time;
+        /** Index of each intersection, keyed by ID. */
+        private final Map<String, Integer> intersectionIndices;
+        /** Index of each route, keyed by "from:to". */
+        private final Map<String, Integer> routeIndices;
+        /** Indices of the routes into each intersection. */
+        private final int[][] incoming;
+        /** Destination intersection of each route. */
+        private final int[] destinations;
+        /** Whether each route has an electronic speed sign. */
+        private final boolean[] speedSigns;
+        /** Position of each route in its lights' order, or -1 if none. */
+        private final int[] lightPositions;
+        /** Signal of each route when the first state was taken. */
+        private final TrafficSignal[] signals;
+        /** Number of routes controlled by each intersection's lights. */
+        private final int[] lightRouteCounts;
+        /** Yellow time of each intersection's lights. */
+        private final int[] yellowTimes;
+        /** Sensors of each route, or null if any is not a demo sensor. */
+        private final DemoSensor[][] sensors;
+        /** Index of each sensor's data value when the layout was built. */
+        private final int[][] sensorIndices;
+
+        /*
+         * Creates an empty layout for the given numbers of intersections and
+         * routes, built at the given time.
+         */
+        private Layout(int intersectionCount, int routeCount, long time) {
+            this.time = time;
+            intersectionIndices = new HashMap<>();
+            routeIndices = new HashMap<>();
+            incoming = new int[intersectionCount][];
+            destinations = new int[routeCount];
+            speedSigns = new boolean[routeCount];
+            lightPositions = new int[routeCount];
+            signals = new TrafficSignal[routeCount];
+            lightRouteCounts = new int[intersectionCount];
+            yellowTimes = new int[intersectionCount];
+            sensors = new DemoSensor[routeCount][];
+            sensorIndices = new int[routeCount][];
+        }
+
+        /*
+         * Records the sensors of a route and the data value each is at.
+         */
+        private void addSensors(int route, List<Sensor> routeSensors) {
+            DemoSensor[] demoSensors = new DemoSensor[routeSensors.size()];
+            int[] indices = new int[demoSensors.length];
+            for (int i = 0; i < demoSensors.length; i++) {
+                if (!(routeSensors.get(i) instanceof DemoSensor)) {
+                    return;
+                }
+                demoSensors[i] = (DemoSensor) routeSensors.get(i);
+                indices[i] = demoSensors[i].getCurrentIndex();
+            }
+            sensors[route] = demoSensors;
+            sensorIndices[route] = indices;
+        }
+
+        /*
+         * Records the order and yellow time of an intersection's lights and
+         * returns their current timings.
+         */
+        private LightPhase addLights(int intersection,
+                IntersectionLights lights, long time) {
+            List<Route> order = lights.getOrder();
+            for (int i = 0; i < order.size(); i++) {
+                Route route = order.get(i);
+                lightPositions[routeIndices.get(route.getFrom().getId()
+                        + NetworkInitialiser.LINE_INFO_SEPARATOR
+                        + route.getTo().getId())] = i;
+            }
+            lightRouteCounts[intersection] = order.size();
+            yellowTimes[intersection] = lights.getYellowTime();
+            int position = lights.getCyclePosition();
+            return new LightPhase(lights.getDuration(), time - Math.max(0,
+                    position), lights.getCurrentIndex(), position >= 0);
+        }
+    }
+
+    /*
+     * Timings of a set of lights: the route in the light order that went
+     * green at a given time, and the duration of every cycle since then.
+     */
+    private static final class LightPhase {
+        /** Green-yellow duration of each route. */
+        private final int duration;
+        /** Simulation time at which the route went green. */
+        private final long start;
+        /** Position in the light order of the route. */
+        private final int route;
+        /** Whether the lights change at all. */
+        private final boolean cycling;
+
+        /*
+         * Creates timings from their parts.
+         */
+        private LightPhase(int duration, long start, int route,
+                boolean cycling) {
+            this.duration = duration;
+            this.start = start;
+            this.route = route;
+            this.cycling = cycling;
+        }
+
+        /*
+         * Returns the position in the light order of the route that is green
+         * or yellow at the given time.
+         */
+        private int currentRoute(long time, int routeCount) {
+            return (int) ((route + (time - start) / duration) % routeCount);
+        }
+
+        /*
+         * Returns the seconds since the current route went green at the
+         * given time.
+         */
+        private int position(long time) {
+            return (int) ((time - start) % duration);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package tms.network;
+
+import tms.util.InvalidNetworkException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads a network file one line at a time and splits each line into fields
+ * in a single pass.
+ * <p>
+ * Lines are terminated by a line feed, a carriage return or a carriage return
+ * followed by a line feed, exactly as for BufferedReader.readLine(). The
+ * current line is kept in a reusable character buffer, so memory use only
+ * depends on the length of the longest line, not on the size of the file.
+ * Numbers are parsed directly from the buffer without creating strings.
+ * <p>
+ * Syntax errors are reported as InvalidNetworkExceptions whose message
+ * starts with the line and column at which the error was found.
+ */
+class NetworkTokenizer implements Closeable {
+    /** Number of characters read from the underlying reader at a time. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Initial capacity of the line buffer. */
+    private static final int INITIAL_LINE_SIZE = 256;
+
+    /** Reader the file is read from. */
+    private Reader reader;
+    /** Characters read from the reader but not yet consumed. */
+    private char[] buffer;
+    /** Index of the next unconsumed character in the buffer. */
+    private int bufferPosition;
+    /** Number of valid characters in the buffer. */
+    private int bufferLength;
+    /** Whether a line feed directly following a carriage return is skipped. */
+    private boolean skipLineFeed;
+    /** Characters of the current line, without the line terminator. */
+    private char[] line;
+    /** Number of characters in the current line. */
+    private int lineLength;
+    /** Line number of the current line, starting from one. */
+    private int lineNumber;
+    /** Index of the next unread character in the current line. */
+    private int position;
+
+    /**
+     * Creates a tokenizer reading from the given reader.
+     *
+     * @param reader reader to read the network file from
+     */
+    NetworkTokenizer(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.line = new char[INITIAL_LINE_SIZE];
+    }
+
+    /**
+     * Moves to the next line of the file.
+     *
+     * @return true if there was another line; false at the end of the file
+     * @throws IOException if the underlying reader fails
+     */
+    boolean nextLine() throws IOException {
+        lineLength = 0;
+        position = 0;
+        while (true) {
+            if (bufferPosition == bufferLength) {
+                bufferLength = Math.max(0, reader.read(buffer));
+                bufferPosition = 0;
+                if (bufferLength == 0) {
+                    if (lineLength == 0) {
+                        return false;
+                    }
+                    lineNumber++;
+                    return true;
+                }
+            }
+            char c = buffer[bufferPosition++];
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (c == '\n') {
+                    continue;
+                }
+            }
+            if (c == '\n' || c == '\r') {
+                skipLineFeed = c == '\r';
+                lineNumber++;
+                return true;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, lineLength * 2);
+            }
+            line[lineLength++] = c;
+        }
+    }
+
+    /**
+     * Returns the line number of the current line, starting from one.
+     *
+     * @return current line number
+     */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns true if the current line contains no characters.
+     *
+     * @return whether the current line is empty
+     */
+    boolean isLineEmpty() {
+        return lineLength == 0;
+    }
+
+    /**
+     * Returns true if the current line starts with the given character.
+     *
+     * @param c character to check for
+     * @return whether the current line starts with c
+     */
+    boolean lineStartsWith(char c) {
+        return lineLength > 0 && line[0] == c;
+    }
+
+    /**
+     * Returns true if every character on the current line has been read.
+     *
+     * @return whether the end of the line has been reached
+     */
+    boolean atEndOfLine() {
+        return position == lineLength;
+    }
+
+    /**
+     * Reads characters up to, but not including, the next occurrence of the
+     * given separator or the end of the line.
+     *
+     * @param separator character that ends the field
+     * @return the characters read
+     */
+    String readField(char separator) {
+        int start = position;
+        while (position < lineLength && line[position] != separator) {
+            position++;
+        }
+        return new String(line, start, position - start);
+    }
+
+    /**
+     * Reads a decimal integer with an optional leading sign, accepting the
+     * same numbers as Integer.parseInt(String).
+     *
+     * @return the number read
+     * @throws InvalidNetworkException if there is no number at the current
+     *          position or the number does not fit in an int
+     */
+    int readInt() throws InvalidNetworkException {
+        int start = position;
+        boolean negative = false;
+        if (position < lineLength
+                && (line[position] == '-' || line[position] == '+')) {
+            negative = line[position] == '-';
+            position++;
+        }
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        int digitsStart = position;
+        while (position < lineLength
+                && line[position] >= '0' && line[position] <= '9') {
+            value = value * 10 + (line[position] - '0');
+            if (value > limit) {
+                position = start;
+                throw error("number out of range");
+            }
+            position++;
+        }
+        if (position == digitsStart) {
+            position = start;
+            throw error("expected a number");
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    /**
+     * Skips the given separator if it is the next character on the line.
+     *
+     * @param separator separator to skip
+     * @return true if the separator was skipped; false otherwise
+     */
+    boolean skip(char separator) {
+        if (position < lineLength && line[position] == separator) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Skips the given text if the line continues with it.
+     *
+     * @param text text to skip
+     * @return true if the text was skipped; false otherwise
+     */
+    boolean skip(String text) {
+        if (lineLength - position < text.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (line[position + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        position += text.length();
+        return true;
+    }
+
+    /**
+     * Skips the given separator, which must be the next character on the
+     * line.
+     *
+     * @param separator separator to skip
+     * @throws InvalidNetworkException if the next character is not the given
+     *          separator
+     */
+    void expect(char separator) throws InvalidNetworkException {
+        if (!skip(separator)) {
+            throw error("expected '" + separator + "'");
+        }
+    }
+
+    /**
+     * Checks that every character on the current line has been read.
+     *
+     * @throws InvalidNetworkException if there are unread characters
+     */
+    void expectEndOfLine() throws InvalidNetworkException {
+        if (position < lineLength) {
+            throw error("unexpected '" + line[position] + "'");
+        }
+    }
+
+    /**
+     * Creates an exception for an error at the current line and column.
+     *
+     * @param message description of the error
+     * @return exception to throw
+     */
+    InvalidNetworkException error(String message) {
+        return new InvalidNetworkException("line " + lineNumber + ", column "
+                + (position + 1) + ": " + message);
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if the reader could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
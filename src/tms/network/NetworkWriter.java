@@ -0,0 +1,158 @@
+package tms.network;
+
+import tms.intersection.Intersection;
+import tms.intersection.IntersectionLights;
+import tms.route.Route;
+import tms.sensors.Sensor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes networks in the text format read by
+ * NetworkInitialiser.loadNetwork(String).
+ * <p>
+ * Output is written straight to a Writer, line by line, so saving takes
+ * time linear in the size of the output. Apart from one reference per
+ * intersection for sorting, the only text held in memory at once is that of
+ * a single route.
+ * <p>
+ * Intersections and routes are written in the order used by
+ * Network.toString(): intersections sorted by ID, and routes sorted by their
+ * "from:to" string.
+ */
+public class NetworkWriter {
+    /** Orders origins so that their routes are written in "from:to" order. */
+    private static final Comparator<Intersection> ROUTE_ORIGIN_ORDER =
+            (first, second) -> compareWithSeparator(first.getId(),
+                    second.getId());
+    /** Orders routes by the ID of the intersection they end at. */
+    private static final Comparator<Route> ROUTE_DESTINATION_ORDER =
+            Comparator.comparing(route -> route.getTo().getId());
+
+    /** Writer the network is written to. */
+    private Writer writer;
+
+    /**
+     * Creates a network writer that writes to the given writer.
+     * <p>
+     * The writer is not buffered by this class, so a BufferedWriter should be
+     * given when writing to a file.
+     *
+     * @param writer writer to write networks to
+     */
+    public NetworkWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the given network, in the same format as Network.toString().
+     *
+     * @param network network to write
+     * @throws IOException if the underlying writer fails
+     */
+    public void write(Network network) throws IOException {
+        List<Intersection> intersections = network.getIntersections();
+        writeLine(Integer.toString(intersections.size()));
+        writeLine(Integer.toString(network.getRouteCount()));
+        writeLine(Integer.toString(network.getYellowTime()));
+        for (Intersection intersection : intersections) {
+            writeIntersection(intersection);
+        }
+        intersections.sort(ROUTE_ORIGIN_ORDER);
+        for (Intersection from : intersections) {
+            List<Route> routes = new ArrayList<>(network.getOutgoingRoutes(
+                    network.getIntersectionIndex(from.getId())));
+            routes.sort(ROUTE_DESTINATION_ORDER);
+            for (Route route : routes) {
+                writeRoute(from, route);
+            }
+        }
+        writer.flush();
+    }
+
+    /*
+     * Writes an intersection line, including its traffic lights.
+     */
+    private void writeIntersection(Intersection intersection)
+            throws IOException {
+        writer.write(intersection.getId());
+        if (intersection.hasTrafficLights()) {
+            IntersectionLights lights = intersection.getTrafficLights();
+            writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+            writer.write(Integer.toString(lights.getDuration()));
+            writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+            List<Route> order = lights.getOrder();
+            for (int i = 0; i < order.size(); i++) {
+                if (i > 0) {
+                    writer.write(NetworkInitialiser.LINE_LIST_SEPARATOR);
+                }
+                writer.write(order.get(i).getFrom().getId());
+            }
+        }
+        writer.write(System.lineSeparator());
+    }
+
+    /*
+     * Writes a route line followed by its sensor lines.
+     */
+    private void writeRoute(Intersection from, Route route)
+            throws IOException {
+        List<Sensor> sensors = route.getSensors();
+        writer.write(from.getId());
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        writer.write(route.getTo().getId());
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        writer.write(Integer.toString(route.getDefaultSpeed()));
+        writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+        writer.write(Integer.toString(sensors.size()));
+        if (route.hasSpeedSign()) {
+            writer.write(NetworkInitialiser.LINE_INFO_SEPARATOR);
+            writer.write(Integer.toString(route.getSpeed()));
+        }
+        writer.write(System.lineSeparator());
+        String[] sensorLines = new String[sensors.size()];
+        for (int i = 0; i < sensorLines.length; i++) {
+            sensorLines[i] = sensors.get(i).toString();
+        }
+        Arrays.sort(sensorLines);
+        for (String sensorLine : sensorLines) {
+            writeLine(sensorLine);
+        }
+    }
+
+    /*
+     * Writes the given text followed by a line separator.
+     */
+    private void writeLine(String line) throws IOException {
+        writer.write(line);
+        writer.write(System.lineSeparator());
+    }
+
+    /*
+     * Compares first + ":" with second + ":" without creating either string.
+     *
+     * Sorting origins this way and then sorting each origin's routes by
+     * destination gives the same order as sorting "from:to" strings, because
+     * intersection IDs cannot contain ':'.
+     */
+    private static int compareWithSeparator(String first, String second) {
+        int length = Math.min(first.length(), second.length());
+        for (int i = 0; i < length; i++) {
+            if (first.charAt(i) != second.charAt(i)) {
+                return first.charAt(i) - second.charAt(i);
+            }
+        }
+        char separator = NetworkInitialiser.LINE_INFO_SEPARATOR.charAt(0);
+        if (first.length() < second.length()) {
+            return separator - second.charAt(length);
+        } else if (first.length() > second.length()) {
+            return first.charAt(length) - separator;
+        }
+        return 0;
+    }
+}
@@ -4,7 +4,10 @@ import tms.congestion.AveragingCongestionCalculator;
 import tms.intersection.Intersection;
 import tms.network.NetworkInitialiser;
 import tms.sensors.DemoPressurePad;
+import tms.sensors.DemoSensor;
 import tms.sensors.Sensor;
+import tms.sensors.SensorListener;
+import tms.util.ChangeCounter;
 import tms.util.DuplicateSensorException;
 
 import java.util.ArrayList;
@@ -24,6 +27,8 @@ public class Route {
     private String id;
     /** Intersection at which this route begins. */
     private Intersection from;
+    /** Intersection at which this route ends, null if not known. */
+    private Intersection to;
     /** List of sensors on this route, limited to up to one of each type. */
     private List<Sensor> sensors;
     /** Electronic speed sign on this route, null if none exists. */
@@ -34,6 +39,21 @@ public class Route {
     private int defaultSpeed;
     /** Calculate the averaging congestion. */
     private AveragingCongestionCalculator calculator;
+    /** Congestion level last returned by the calculator. */
+    private int congestion;
+    /** Whether the cached congestion level is still up to date. */
+    private boolean congestionValid;
+    /**
+     * Whether a sensor on this route cannot report changes to its value, in
+     * which case the congestion level cannot be cached.
+     */
+    private boolean hasUnobservedSensor;
+    /** Marks the cached congestion as out of date when a sensor changes. */
+    private SensorListener sensorListener;
+    /** Hash code worked out on first use; 0 if not yet worked out. */
+    private int hashCode;
+    /** Counter shared with the network this route belongs to. */
+    private ChangeCounter changes;
 
     /**
      * Creates a new route with the given ID, origin intersection and default
@@ -46,11 +66,43 @@ public class Route {
      * @ass1_2
      */
     public Route(String id, Intersection from, int defaultSpeed) {
+        this(id, from, null, defaultSpeed);
+    }
+
+    /**
+     * Creates a new route with the given ID, origin and destination
+     * intersections and default speed.
+     *
+     * @param id the identifier string to represent the route
+     * @param from the intersection from which this route originates
+     * @param to the intersection at which this route ends
+     * @param defaultSpeed the default speed limit for vehicles on this route
+     */
+    public Route(String id, Intersection from, Intersection to,
+                 int defaultSpeed) {
+        this(id, from, to, defaultSpeed, new ChangeCounter());
+    }
+
+    /**
+     * Creates a new route like
+     * {@link Route#Route(String, Intersection, Intersection, int)}, which
+     * increments the given counter whenever its speed sign or sensors
+     * change.
+     *
+     * @param id the identifier string to represent the route
+     * @param from the intersection from which this route originates
+     * @param to the intersection at which this route ends
+     * @param defaultSpeed the default speed limit for vehicles on this route
+     * @param changes counter of changes to the network the route belongs to
+     */
+    public Route(String id, Intersection from, Intersection to,
+                 int defaultSpeed, ChangeCounter changes) {
         this.id = id;
         this.from = from;
+        this.to = to;
         this.defaultSpeed = defaultSpeed;
+        this.changes = changes;
         sensors = new ArrayList<>();
-
     }
 
     /**
@@ -63,6 +115,16 @@ public class Route {
         return this.from;
     }
 
+    /**
+     * Returns the intersection at which this route ends.
+     *
+     * @return the intersection this route goes to, or null if the route was
+     * created without one
+     */
+    public Intersection getTo() {
+        return this.to;
+    }
+
     /**
      * Returns the traffic light signal on the route, or null if none exists.
      *
@@ -73,16 +135,36 @@ public class Route {
         return this.trafficLight;
     }
 
+    /**
+     * Returns the speed limit this route was created with, which applies
+     * when it has no electronic speed sign.
+     *
+     * @return the default speed of this route
+     */
+    public int getDefaultSpeed() {
+        return this.defaultSpeed;
+    }
+
     /**
      * Get the congestion level reported by sensors on this route.
      * By default, an AveragingCongestionCalculator should be used to find the
      * route's congestion level. See CongestionCalculator.calculateCongestion().
+     * <p>
+     * The result is cached until a sensor is added to this route or the value
+     * of one of its sensors changes, so repeated calls do not ask the sensors
+     * again.
      *
      * @return the congestion level on this route as returned by the calculator
      */
     public int getCongestion() {
-        calculator = new AveragingCongestionCalculator(this.getSensors());
-        return calculator.calculateCongestion();
+        if (!congestionValid) {
+            if (calculator == null) {
+                calculator = new AveragingCongestionCalculator(sensors);
+            }
+            congestion = calculator.calculateCongestion();
+            congestionValid = !hasUnobservedSensor;
+        }
+        return congestion;
     }
 
     /**
@@ -162,6 +244,8 @@ public class Route {
             throw new IllegalArgumentException("Speed sign speed must be >= 0");
         }
         this.speedSign = new SpeedSign(initialSpeed);
+        hashCode = 0;
+        changes.increment();
     }
 
     /**
@@ -185,6 +269,8 @@ public class Route {
             throw new IllegalArgumentException("Speed sign speed must be >= 0");
         }
         this.speedSign.setCurrentSpeed(newSpeed);
+        hashCode = 0;
+        changes.increment();
     }
 
     /**
@@ -205,6 +291,17 @@ public class Route {
             }
         }
         sensors.add(sensor);
+        if (sensor instanceof DemoSensor) {
+            if (sensorListener == null) {
+                sensorListener = changed -> congestionValid = false;
+            }
+            ((DemoSensor) sensor).addListener(sensorListener);
+        } else {
+            hasUnobservedSensor = true;
+        }
+        congestionValid = false;
+        hashCode = 0;
+        changes.increment();
     }
 
 
@@ -252,17 +349,65 @@ public class Route {
         }
     }
 
+    /**
+     * Returns true if this route has the same ID, default speed, speed sign
+     * speed and sensors as the given route, whichever network each belongs
+     * to.
+     * <p>
+     * Unlike {@link Route#equals(Object)}, the traffic light signals are not
+     * compared, as they are simulation state rather than structure. The
+     * cached hash codes are compared first, and nothing is copied.
+     *
+     * @param other route to compare with
+     * @return whether the routes have the same structure
+     */
+    public boolean hasSameStructure(Route other) {
+        if (this.hashCode() != other.hashCode()
+                || this.defaultSpeed != other.defaultSpeed
+                || this.hasSpeedSign() != other.hasSpeedSign()
+                || this.getSpeed() != other.getSpeed()
+                || this.sensors.size() != other.sensors.size()
+                || !this.id.equals(other.id)) {
+            return false;
+        }
+        // sensors have distinct types, so matching each one is enough
+        for (Sensor sensor : sensors) {
+            if (!other.sensors.contains(sensor)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns the hash code of this route.
      * Two routes that are equal must have the same hash code.
      *
      * Overrides:
      * hashCode in class Object.
+     * <p>
+     * The hash is computed from the ID, default speed, speed sign and
+     * sensors, and cached until one of them changes. The traffic light
+     * signal is left out, as it changes every few seconds.
+     *
      * @return hash code of the route.
      */
     @Override
     public int hashCode() {
-        return this.toString().hashCode();
+        int hash = hashCode;
+        if (hash == 0) {
+            hash = 31 * id.hashCode() + defaultSpeed;
+            hash = 31 * hash + (speedSign == null ? -1
+                    : speedSign.getCurrentSpeed());
+            // sensors are compared regardless of order
+            int sensorHash = 0;
+            for (Sensor sensor : sensors) {
+                sensorHash += sensor.hashCode();
+            }
+            hash = 31 * hash + sensorHash;
+            hashCode = hash;
+        }
+        return hash;
     }
 
     /**
@@ -307,9 +452,10 @@ public class Route {
 
         String[] sensorLines = this.sensors.stream().map(Object::toString)
                 .sorted().toArray(String[]::new);
+        StringBuilder result = new StringBuilder(str);
         for (String sensorLine : sensorLines) {
-            str += System.lineSeparator() + sensorLine;
+            result.append(System.lineSeparator()).append(sensorLine);
         }
-        return str;
+        return result.toString();
     }
 }
@@ -1,5 +1,7 @@
 package tms.sensors;
 
+import tms.util.TimedItemManager;
+
 /**
  * An implementation of a pressure pad sensor.
  * @ass1
@@ -19,6 +21,71 @@ public class DemoPressurePad extends DemoSensor implements PressurePad {
         super(data, threshold);
     }
 
+    /**
+     * Creates a new pressure pad sensor with the given threshold, keeping its
+     * data in the given store.
+     *
+     * @see DemoSensor#DemoSensor(SensorDataStore, int[], int)
+     * @param store store to keep the data values in
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicates which values represent
+     *                  high congestion
+     */
+    public DemoPressurePad(SensorDataStore store, int[] data, int threshold) {
+        super(store, data, threshold);
+    }
+
+    /**
+     * Creates a new pressure pad sensor with the given threshold and data,
+     * registered with the given timed item manager.
+     *
+     * @see DemoSensor#DemoSensor(int[], int, TimedItemManager)
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicates which values represent
+     *                  high congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    public DemoPressurePad(int[] data, int threshold,
+            TimedItemManager timedItemManager) {
+        super(data, threshold, timedItemManager);
+    }
+
+    /**
+     * Creates a new pressure pad sensor with the given threshold, keeping its
+     * data in the given store, registered with the given timed item manager.
+     *
+     * @see DemoSensor#DemoSensor(SensorDataStore, int[], int,
+     *      TimedItemManager)
+     * @param store store to keep the data values in
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicates which values represent
+     *                  high congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    public DemoPressurePad(SensorDataStore store, int[] data, int threshold,
+            TimedItemManager timedItemManager) {
+        super(store, data, threshold, timedItemManager);
+    }
+
+    /**
+     * Creates a new pressure pad sensor with the given threshold, keeping the first
+     * 'length' values of the given array in the given store, registered with
+     * the given timed item manager.
+     *
+     * @see DemoSensor#DemoSensor(SensorDataStore, int[], int, int,
+     *      TimedItemManager)
+     * @param store store to keep the data values in
+     * @param data array holding the data values
+     * @param length number of data values
+     * @param threshold a threshold value that indicates which values represent
+     *                  high congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    public DemoPressurePad(SensorDataStore store, int[] data, int length,
+            int threshold, TimedItemManager timedItemManager) {
+        super(store, data, length, threshold, timedItemManager);
+    }
+
     /**
      * {@inheritDoc}
      * @ass1
@@ -45,7 +112,17 @@ public class DemoPressurePad extends DemoSensor implements PressurePad {
      */
     @Override
     public int getCongestion() {
-        float congestion = (float) this.countTraffic() / this.getThreshold();
+        return getCurrentCongestion();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see DemoPressurePad#getCongestion()
+     */
+    @Override
+    protected int calculateCongestion(int value) {
+        float congestion = (float) value / this.getThreshold();
         int congestionPct = Math.round(100 * congestion);
         return Math.min(Math.max(congestionPct, 0), 100);
     }
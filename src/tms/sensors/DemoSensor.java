@@ -1,5 +1,7 @@
 package tms.sensors;
 
+import tms.util.ScheduledTimedItem;
+import tms.util.SimulationBinding;
 import tms.util.TimedItem;
 import tms.util.TimedItemManager;
 
@@ -11,22 +13,49 @@ import java.util.Objects;
  * types.
  * @ass1_2
  */
-public abstract class DemoSensor implements TimedItem {
+public abstract class DemoSensor implements ScheduledTimedItem {
 
-    /** Array of observed data values */
+    /** Array of observed data values, null if they are held in a store */
     private int[] data;
+    /** Store holding the observed data values, null if data is used */
+    private SensorDataStore store;
+    /** Handle of this sensor's data values in the store */
+    private long handle;
+    /** Number of observed data values */
+    private int length;
     /** Threshold data value for determining congestion */
     private int threshold;
     /** Internal count of seconds passed for setting the current data value */
-    private int secondsPassed;
+    private long secondsPassed;
     /** Current data value indicated by the sensor */
     private int currentValue;
+    /** Index of the current data value, unless bound to a core */
+    private int cursor;
+    /**
+     * Congestion level reported for each data value, by index; null until
+     * first needed. The data values are copied once, when the sensor is
+     * created, so the series never has to be recalculated
+     */
+    private volatile byte[] congestionSeries;
+    /** Shared listener array of sensors without listeners */
+    private static final SensorListener[] NO_LISTENERS = new SensorListener[0];
+    /** Listeners notified when the current data value changes */
+    private SensorListener[] listeners = NO_LISTENERS;
+    /** Simulation core holding this sensor's state, null if not bound */
+    private SimulationBinding core;
+    /** Index of this sensor in the simulation core */
+    private int coreIndex;
+    /** Hash code worked out on first use; 0 if not yet worked out */
+    private int hashCode;
+    /** Manager this sensor is registered with */
+    private TimedItemManager timedItemManager;
 
     /**
      * Creates a new sensor, using the given list of data values and threshold.
      * <p>
      * The initial value returned by {@link DemoSensor#getCurrentValue()}
-     * should be the first element of the given data array.
+     * should be the first element of the given data array. The sensor keeps
+     * a copy of the array, so later changes to it are not seen.
      * <p>
      * The sensor should be registered as a timed item, see
      * {@link TimedItemManager#registerTimedItem(TimedItem)}.
@@ -38,21 +67,139 @@ public abstract class DemoSensor implements TimedItem {
      * @ass1
      */
     protected DemoSensor(int[] data, int threshold) {
+        this(data, threshold, TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Creates a new sensor like {@link DemoSensor#DemoSensor(int[], int)},
+     * registered with the given timed item manager instead of the shared
+     * one.
+     *
+     * @requires data.length &gt; 0
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicated what value is high
+     *                  congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    protected DemoSensor(int[] data, int threshold,
+            TimedItemManager timedItemManager) {
         this.addData(data);
         this.threshold = threshold;
         this.secondsPassed = 0;
+        this.timedItemManager = timedItemManager;
+
+        timedItemManager.registerTimedItem(this);
+    }
+
+    /**
+     * Creates a new sensor whose data values are copied into the given store
+     * rather than kept in an array of the sensor's own. The sensor behaves
+     * exactly like one created with {@link DemoSensor#DemoSensor(int[], int)}.
+     *
+     * @requires data.length &gt; 0
+     * @param store store to keep the data values in
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicated what value is high
+     *                  congestion
+     */
+    protected DemoSensor(SensorDataStore store, int[] data, int threshold) {
+        this(store, data, threshold, TimedItemManager.getTimedItemManager());
+    }
 
-        TimedItemManager.getTimedItemManager().registerTimedItem(this);
+    /**
+     * Creates a new sensor like
+     * {@link DemoSensor#DemoSensor(SensorDataStore, int[], int)}, registered
+     * with the given timed item manager instead of the shared one.
+     *
+     * @requires data.length &gt; 0
+     * @param store store to keep the data values in
+     * @param data a non-empty array of data values
+     * @param threshold a threshold value that indicated what value is high
+     *                  congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    protected DemoSensor(SensorDataStore store, int[] data, int threshold,
+            TimedItemManager timedItemManager) {
+        this(store, data, data.length, threshold, timedItemManager);
     }
 
     /**
-     * Sets this sensor's data array to the given array.
+     * Creates a new sensor like
+     * {@link DemoSensor#DemoSensor(SensorDataStore, int[], int,
+     * TimedItemManager)}, whose data values are the first 'length' elements
+     * of the given array. Loaders can pass the buffer they read into without
+     * first trimming it to size.
+     *
+     * @requires 0 &lt; length &lt;= data.length
+     * @param store store to keep the data values in
+     * @param data array holding the data values
+     * @param length number of data values
+     * @param threshold a threshold value that indicated what value is high
+     *                  congestion
+     * @param timedItemManager manager to register the sensor with
+     */
+    protected DemoSensor(SensorDataStore store, int[] data, int length,
+            int threshold, TimedItemManager timedItemManager) {
+        this.store = store;
+        this.handle = store.add(data, length);
+        this.length = length;
+        this.currentValue = data[0];
+        this.threshold = threshold;
+        this.secondsPassed = 0;
+        this.timedItemManager = timedItemManager;
+
+        timedItemManager.registerTimedItem(this);
+    }
+
+    /*
+     * Returns the data value at the given index.
+     */
+    private int dataAt(int index) {
+        if (data != null) {
+            return data[index];
+        } else if (core != null) {
+            return core.getSensorData(coreIndex, index);
+        }
+        return store.get(handle, index);
+    }
+
+    /**
+     * Moves the state of this sensor into the given simulation core.
+     * <p>
+     * From then on the core advances this sensor and holds its data values
+     * and current value, and this sensor is no longer advanced by the
+     * {@link TimedItemManager} on its own: {@link DemoSensor#oneSecond()}
+     * and {@link DemoSensor#advance(long)} do nothing, and
+     * {@link DemoSensor#secondsUntilChange()} returns
+     * {@link ScheduledTimedItem#NEVER}. Listeners are still notified of
+     * changes to the current value.
+     *
+     * @param core simulation core to move this sensor's state into
+     * @throws IllegalStateException if this sensor is already bound
+     */
+    public void bindTo(SimulationBinding core) {
+        if (this.core != null) {
+            throw new IllegalStateException("sensor is already bound to a "
+                    + "simulation core");
+        }
+        timedItemManager.catchUp(this);
+        coreIndex = core.addSensor(getData(), (int) (secondsPassed % length),
+                this::notifyListeners);
+        this.core = core;
+        this.data = null;
+        this.store = null;
+        timedItemManager.reschedule(this);
+    }
+
+    /**
+     * Sets this sensor's data array to a copy of the given array.
      *
      * @param data the array of sensor values to have the sensor use
      * @ass1
      */
     private void addData(int[] data) {
-        this.data = data;
+        this.data = data.clone();
+        this.length = data.length;
         this.currentValue = data[0];
     }
 
@@ -63,9 +210,45 @@ public abstract class DemoSensor implements TimedItem {
      * @ass1
      */
     protected int getCurrentValue() {
+        if (core != null) {
+            return core.getSensorValue(coreIndex);
+        }
         return currentValue;
     }
 
+    /**
+     * Adds a listener to be notified whenever the current data value of this
+     * sensor changes.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(SensorListener listener) {
+        SensorListener[] newListeners = Arrays.copyOf(listeners,
+                listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    /*
+     * Sets the current data value, notifying the listeners if it changed.
+     */
+    private void setCurrentValue(int value) {
+        if (value == currentValue) {
+            return;
+        }
+        currentValue = value;
+        notifyListeners();
+    }
+
+    /*
+     * Tells every listener that the current data value has changed.
+     */
+    private void notifyListeners() {
+        for (SensorListener listener : listeners) {
+            listener.sensorChanged(this);
+        }
+    }
+
     /**
      * Returns the threshold data value.
      *
@@ -76,6 +259,19 @@ public abstract class DemoSensor implements TimedItem {
         return threshold;
     }
 
+    /**
+     * Returns a copy of the data values this sensor cycles through.
+     *
+     * @return the sensor's data values
+     */
+    public int[] getData() {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = dataAt(i);
+        }
+        return values;
+    }
+
     /**
      * Sets the current data value returned by
      * {@link DemoSensor#getCurrentValue()} to be the next value in the data
@@ -87,9 +283,154 @@ public abstract class DemoSensor implements TimedItem {
      */
     @Override
     public void oneSecond() {
+        if (core != null) {
+            return;
+        }
         secondsPassed++;
-        int secs = secondsPassed % data.length;
-        currentValue = data[secs];
+        int secs = (int) (secondsPassed % length);
+        cursor = secs;
+        setCurrentValue(dataAt(secs));
+    }
+
+    /**
+     * Returns the data value measured by this sensor the given number of
+     * seconds after it was created.
+     * <p>
+     * Sensor values repeat with the length of the data array, so this does
+     * not depend on how far the sensor has actually been advanced.
+     *
+     * @param seconds number of seconds since this sensor was created
+     * @return the data value at that time
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public int getValueAt(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("time must not be negative");
+        }
+        return dataAt((int) (seconds % length));
+    }
+
+    /**
+     * Returns the congestion level this sensor reports the given number of
+     * seconds after it was created.
+     *
+     * @param seconds number of seconds since this sensor was created
+     * @return congestion level at that time, 0 to 100
+     * @throws IllegalArgumentException if seconds is negative
+     * @see DemoSensor#getValueAt(long)
+     */
+    public int getCongestionAt(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("time must not be negative");
+        }
+        return getCongestionSeries()[(int) (seconds % length)];
+    }
+
+    /**
+     * Returns the number of data values this sensor cycles through.
+     *
+     * @return length of the sensor's data
+     */
+    public int getDataLength() {
+        return length;
+    }
+
+    /**
+     * Returns the index of the current data value among the data values,
+     * after bringing the sensor up to the current simulation time. Together
+     * with {@link DemoSensor#getCongestionAt(long)}, this gives the
+     * congestion level the sensor will report at any later time.
+     *
+     * @return index of the current data value
+     */
+    public int getCurrentIndex() {
+        if (core != null) {
+            core.catchUp();
+            return core.getSensorCursor(coreIndex);
+        }
+        timedItemManager.catchUp(this);
+        return cursor;
+    }
+
+    /**
+     * Returns the congestion level for the current data value, as
+     * calculated by {@link DemoSensor#calculateCongestion(int)}.
+     * <p>
+     * The congestion level of every data value is calculated once, the first
+     * time it is needed, and kept as one byte per value, so each call is a
+     * single array read.
+     *
+     * @return the current congestion level, 0 to 100
+     */
+    protected int getCurrentCongestion() {
+        int index = core != null ? core.getSensorCursor(coreIndex) : cursor;
+        return getCongestionSeries()[index];
+    }
+
+    /*
+     * Returns the congestion level of each data value, calculating them if
+     * they are not yet known.
+     */
+    private byte[] getCongestionSeries() {
+        byte[] series = congestionSeries;
+        if (series == null) {
+            series = new byte[length];
+            for (int i = 0; i < length; i++) {
+                series[i] = (byte) calculateCongestion(dataAt(i));
+            }
+            congestionSeries = series;
+        }
+        return series;
+    }
+
+    /**
+     * Calculates the congestion level this sensor reports when it measures
+     * the given data value.
+     *
+     * @param value a data value measured by this sensor
+     * @return the congestion level for that value, 0 to 100
+     */
+    protected abstract int calculateCongestion(int value);
+
+    /**
+     * Returns the number of seconds until the current data value changes,
+     * i.e. until the next element of the data array that differs from the
+     * current one is reached.
+     *
+     * @return seconds until the current value changes, or
+     * {@link ScheduledTimedItem#NEVER} if every data value is the same or
+     * the sensor is bound to a simulation core
+     */
+    @Override
+    public long secondsUntilChange() {
+        if (core != null) {
+            return NEVER;
+        }
+        int index = (int) (secondsPassed % length);
+        for (int seconds = 1; seconds < length; seconds++) {
+            if (dataAt((index + seconds) % length) != currentValue) {
+                return seconds;
+            }
+        }
+        return NEVER;
+    }
+
+    /**
+     * Moves the current data value the given number of elements forward in
+     * the data array, wrapping around as in {@link DemoSensor#oneSecond()}.
+     * The new value is read straight from the data array, whatever the number
+     * of seconds.
+     *
+     * @param seconds number of seconds to advance by
+     */
+    @Override
+    public void advance(long seconds) {
+        if (core != null) {
+            return;
+        }
+        secondsPassed += seconds;
+        cursor = (int) (secondsPassed % length);
+        setCurrentValue(dataAt(cursor));
     }
 
     /**
@@ -100,18 +441,33 @@ public abstract class DemoSensor implements TimedItem {
      * the same type (ie. the same subclass of DemoSensor)
      * the same threshold value
      * the same data values array (each data value should match)
+     * <p>
+     * The cached hash codes are compared before the data values, and the
+     * values are compared in place without copying them.
      * @param obj other object to compare equality
      * @return true if equal, false otherwise
      */
     public boolean equals(Object obj) {
-        if (this.getClass().equals(obj.getClass())
-                && this.threshold == ((DemoSensor)obj).threshold
-                && Arrays.equals(this.data, (((DemoSensor) obj).data))
-                && obj != null) {
+        if (this == obj) {
             return true;
-        } else {
-            return  false;
         }
+        if (obj == null || !this.getClass().equals(obj.getClass())) {
+            return false;
+        }
+        DemoSensor other = (DemoSensor) obj;
+        if (this.threshold != other.threshold || this.length != other.length
+                || this.hashCode() != other.hashCode()) {
+            return false;
+        }
+        if (this.data != null && other.data != null) {
+            return Arrays.equals(this.data, other.data);
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.dataAt(i) != other.dataAt(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -121,10 +477,21 @@ public abstract class DemoSensor implements TimedItem {
      * the same type (ie. the same subclass of DemoSensor)
      * the same threshold value
      * the same data values array (each data value should match)
+     * <p>
+     * The hash is computed from those fields the first time it is needed and
+     * then cached, since they never change.
      * @return int hashcode of this
      */
     public int hashCode() {
-        return this.toString().hashCode();
+        int hash = hashCode;
+        if (hash == 0) {
+            hash = 31 * getClass().getName().hashCode() + threshold;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + dataAt(i);
+            }
+            hashCode = hash;
+        }
+        return hash;
     }
 
     /**
@@ -136,11 +503,14 @@ public abstract class DemoSensor implements TimedItem {
      */
     @Override
     public String toString() {
-        return String.format("%s%s%s",
-                this.threshold,
-                ":",
-                String.join(",",
-                        Arrays.stream(this.data).mapToObj(String::valueOf)
-                                .toArray(String[]::new)));
+        StringBuilder result = new StringBuilder();
+        result.append(this.threshold).append(":");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                result.append(",");
+            }
+            result.append(dataAt(i));
+        }
+        return result.toString();
     }
 }
@@ -0,0 +1,133 @@
+package tms.sensors;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Packs the data series of many sensors into large blocks of memory outside
+ * the Java heap.
+ * <p>
+ * Each series is stored as a contiguous run of ints inside one block and is
+ * identified by a handle returned from {@link SensorDataStore#add(int[])}.
+ * Sensors created with a store keep only the handle and length of their
+ * series, instead of an int array of their own, so millions of sensors with
+ * long histories add little to the heap and nothing to garbage collection
+ * work.
+ * <p>
+ * Series are never removed; the memory used by a store is released when the
+ * store itself is garbage collected. Adding series is not thread safe, but
+ * once a store has been safely published, for example by starting a thread
+ * after loading a network, its series may be read from any thread.
+ */
+public class SensorDataStore {
+    /** Default number of ints in each block. */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /** Number of ints in each block, except blocks for oversized series. */
+    private final int blockSize;
+    /** Blocks holding the stored series. */
+    private IntBuffer[] blocks;
+    /** Number of blocks in use. */
+    private int blockCount;
+    /** Number of ints used in the last block. */
+    private int blockUsed;
+    /** Total number of ints stored. */
+    private long size;
+
+    /**
+     * Creates an empty store with the default block size.
+     */
+    public SensorDataStore() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an empty store that allocates memory in blocks of the given
+     * number of ints. Series longer than a block get a block of their own.
+     *
+     * @param blockSize number of ints in each block
+     * @throws IllegalArgumentException if blockSize is less than one
+     */
+    public SensorDataStore(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be positive");
+        }
+        this.blockSize = blockSize;
+        this.blocks = new IntBuffer[4];
+    }
+
+    /**
+     * Copies the given series into this store.
+     *
+     * @param values values of the series
+     * @return handle used to read the series back
+     */
+    public long add(int[] values) {
+        return add(values, values.length);
+    }
+
+    /**
+     * Copies the first 'length' values of the given array into this store as
+     * one series. The array can be larger than the series, so a reader can
+     * fill a growing buffer and pass it straight in.
+     *
+     * @param values array holding the values of the series
+     * @param length number of values in the series
+     * @return handle used to read the series back
+     * @throws IndexOutOfBoundsException if length is negative or greater than
+     *          the length of the array
+     */
+    public long add(int[] values, int length) {
+        Objects.checkFromIndexSize(0, length, values.length);
+        if (blockCount == 0 || blockUsed + length > blockSize) {
+            addBlock(Math.max(blockSize, length));
+        }
+        int block = blockCount - 1;
+        int start = blockUsed;
+        IntBuffer target = blocks[block].duplicate();
+        target.position(start);
+        target.put(values, 0, length);
+        blockUsed += length;
+        size += length;
+        return ((long) block << Integer.SIZE) | start;
+    }
+
+    /*
+     * Allocates a new block of the given number of ints and makes it the one
+     * that new series are added to.
+     */
+    private void addBlock(int length) {
+        if (blockCount == blocks.length) {
+            blocks = Arrays.copyOf(blocks, blockCount * 2);
+        }
+        blocks[blockCount++] = ByteBuffer
+                .allocateDirect(length * Integer.BYTES)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        blockUsed = 0;
+    }
+
+    /**
+     * Returns an element of a stored series.
+     *
+     * @param handle handle returned when the series was added
+     * @param index index of the element within the series
+     * @return the value at that index
+     * @requires 0 &lt;= index &lt; length of the series
+     */
+    public int get(long handle, int index) {
+        return blocks[(int) (handle >>> Integer.SIZE)].get((int) handle
+                + index);
+    }
+
+    /**
+     * Returns the total number of values stored.
+     *
+     * @return number of ints in all series
+     */
+    public long size() {
+        return size;
+    }
+}
@@ -0,0 +1,19 @@
+package tms.sensors;
+
+/**
+ * Listener notified when the data value measured by a sensor changes, and
+ * with it possibly the congestion the sensor reports.
+ */
+public interface SensorListener {
+
+    /**
+     * Called after the given sensor's current data value has changed.
+     * <p>
+     * This may be called from any thread that advances the sensor, so
+     * implementations should only do a small amount of work, such as marking
+     * a cached value as out of date.
+     *
+     * @param sensor the sensor whose value changed
+     */
+    void sensorChanged(DemoSensor sensor);
+}
@@ -0,0 +1,141 @@
+package tms.simulation;
+
+import tms.intersection.Intersection;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.route.Route;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Runs a simulation without a display, as fast as the CPU allows, and writes
+ * the congestion of every route at regular intervals.
+ * <p>
+ * Unlike {@link tms.Launcher}, this class does not use JavaFX, so it can be
+ * run on headless servers and in CI.
+ * <p>
+ * The output is comma-separated, with a header line followed by one line per
+ * route for each interval: "second,from,to,congestion".
+ */
+public class BatchRunner {
+    /** Header line of the congestion output. */
+    public static final String HEADER = "second,from,to,congestion";
+
+    /** Network being simulated. */
+    private Network network;
+    /** Manager advancing the timed items of the network. */
+    private TimedItemManager timedItemManager;
+    /** Where the congestion output is written. */
+    private Writer output;
+
+    /**
+     * Creates a new batch runner for the given network.
+     *
+     * @param network network to simulate
+     * @param output where the congestion output is written
+     */
+    public BatchRunner(Network network, Writer output) {
+        this.network = network;
+        this.timedItemManager = network.getTimedItemManager();
+        this.output = output;
+    }
+
+    /**
+     * Runs the simulation for the given number of seconds, writing the
+     * congestion of every route at the start and then every 'interval'
+     * seconds. The congestion at the end of the run is always written.
+     *
+     * @param seconds number of seconds to simulate
+     * @param interval number of seconds between congestion outputs
+     * @throws IOException if the output cannot be written
+     * @throws IllegalArgumentException if seconds is negative or interval is
+     *          less than one
+     */
+    public void run(long seconds, long interval) throws IOException {
+        if (seconds < 0 || interval < 1) {
+            throw new IllegalArgumentException("seconds must be >= 0 and "
+                    + "interval must be >= 1");
+        }
+        output.write(HEADER + System.lineSeparator());
+        long elapsed = 0;
+        writeCongestion(elapsed);
+        while (elapsed < seconds) {
+            long step = Math.min(interval, seconds - elapsed);
+            timedItemManager.advance(step);
+            elapsed += step;
+            writeCongestion(elapsed);
+        }
+        output.flush();
+    }
+
+    /*
+     * Writes one output line for every route in the network.
+     */
+    private void writeCongestion(long second) throws IOException {
+        for (Intersection to : network.getIntersections()) {
+            for (Route route : to.getConnections()) {
+                output.write(Long.toString(second));
+                output.write(',');
+                output.write(route.getFrom().getId());
+                output.write(',');
+                output.write(to.getId());
+                output.write(',');
+                output.write(Integer.toString(route.getCongestion()));
+                output.write(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Loads a network and simulates it without a display.
+     * <p>
+     * Arguments: NETWORK_LOAD_FILENAME SECONDS [INTERVAL [OUTPUT_FILENAME]]
+     * <p>
+     * INTERVAL defaults to one second. If no output file is given, the
+     * congestion output is written to standard output.
+     *
+     * @param args from the command line.
+     */
+    public static void main(String... args) {
+        if (args.length < 2 || args.length > 4) {
+            System.out.println("Usage: NETWORK_LOAD_FILENAME SECONDS "
+                    + "[INTERVAL [OUTPUT_FILENAME]]");
+            System.exit(1);
+        }
+        long seconds = 0;
+        long interval = 1;
+        try {
+            seconds = Long.parseLong(args[1]);
+            if (args.length > 2) {
+                interval = Long.parseLong(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("SECONDS and INTERVAL must be whole numbers");
+            System.exit(1);
+        }
+
+        Network network = null;  // Safe due to System.exit in catch block below.
+        try {
+            network = NetworkInitialiser.loadNetwork(args[0]);
+        } catch (IOException | InvalidNetworkException e) {
+            System.err.println("Error loading from file \"" + args[0]
+                    + "\": " + e.toString());
+            System.exit(1);
+        }
+
+        try (Writer output = args.length > 3
+                ? new BufferedWriter(new FileWriter(args[3]))
+                : new BufferedWriter(new OutputStreamWriter(System.out))) {
+            new BatchRunner(network, output).run(seconds, interval);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error running simulation: " + e.toString());
+            System.exit(1);
+        }
+    }
+}
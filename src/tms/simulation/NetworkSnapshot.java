@@ -0,0 +1,234 @@
+package tms.simulation;
+
+import tms.network.NetworkInitialiser;
+import tms.route.TrafficSignal;
+import tms.util.LongHashMap;
+
+import java.util.Map;
+
+/**
+ * An immutable copy of the signals, speeds and congestion of every route in
+ * a network at one point in time, published by a {@link SnapshotPublisher}.
+ * <p>
+ * Routes are identified by a dense index, which is the same in every
+ * snapshot from a publisher as long as no routes are added to the network.
+ * All values of a snapshot were read after the same tick, and a snapshot
+ * never changes once published, so it can be read from any thread without
+ * locking.
+ * <p>
+ * Looking a route up by intersection IDs builds a key string on every call.
+ * Readers that query often should look up the intersection indices once with
+ * {@link NetworkSnapshot#getIntersectionIndex(String)} and then use
+ * {@link NetworkSnapshot#getRouteIndex(int, int)}, which allocates nothing.
+ */
+public final class NetworkSnapshot {
+    /** Signal code of routes without a traffic light. */
+    private static final byte NO_SIGNAL = -1;
+    /** Traffic signals by ordinal. */
+    private static final TrafficSignal[] SIGNALS = TrafficSignal.values();
+
+    /** Number of this snapshot among those published by its publisher. */
+    private final long version;
+    /** Seconds elapsed in the simulation when this snapshot was taken. */
+    private final long time;
+    /** Route numbering; shared between snapshots. */
+    private final Layout layout;
+    /** Congestion of each route, by index. */
+    private final int[] congestion;
+    /** Speed limit of each route, by index. */
+    private final int[] speeds;
+    /** Ordinal of the traffic signal of each route, or NO_SIGNAL. */
+    private final byte[] signals;
+
+    /**
+     * Creates a snapshot from arrays that are not changed afterwards.
+     *
+     * @param version number of this snapshot
+     * @param time seconds elapsed in the simulation
+     * @param layout numbering of the routes
+     * @param congestion congestion of each route
+     * @param speeds speed limit of each route
+     * @param signals traffic signal ordinal of each route, or -1 for none
+     */
+    NetworkSnapshot(long version, long time, Layout layout, int[] congestion,
+            int[] speeds, byte[] signals) {
+        this.version = version;
+        this.time = time;
+        this.layout = layout;
+        this.congestion = congestion;
+        this.speeds = speeds;
+        this.signals = signals;
+    }
+
+    /**
+     * Returns the signal code stored for the given signal.
+     *
+     * @param signal a traffic signal, or null for none
+     * @return code of the signal
+     */
+    static byte encode(TrafficSignal signal) {
+        return signal == null ? NO_SIGNAL : (byte) signal.ordinal();
+    }
+
+    /**
+     * Returns the number of this snapshot. Each snapshot published by a
+     * publisher has a higher version than the one before it.
+     *
+     * @return version of this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of seconds elapsed in the simulation when this
+     * snapshot was taken.
+     *
+     * @return simulation time of this snapshot
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the number of routes in this snapshot.
+     *
+     * @return number of routes
+     */
+    public int getRouteCount() {
+        return layout.routeIds.length;
+    }
+
+    /**
+     * Returns the index of the route between the given intersections.
+     * <p>
+     * This builds the route's ID to look it up; see
+     * {@link NetworkSnapshot#getRouteIndex(int, int)} for a lookup that
+     * allocates nothing.
+     *
+     * @param from ID of the origin intersection
+     * @param to ID of the destination intersection
+     * @return index of the route, or -1 if there is no such route
+     */
+    public int getRouteIndex(String from, String to) {
+        Integer index = layout.routeIndices.get(from
+                + NetworkInitialiser.LINE_INFO_SEPARATOR + to);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the index of the route between the intersections with the
+     * given indices, as returned by
+     * {@link NetworkSnapshot#getIntersectionIndex(String)}.
+     *
+     * @param fromIndex index of the origin intersection
+     * @param toIndex index of the destination intersection
+     * @return index of the route, or -1 if there is no such route
+     */
+    public int getRouteIndex(int fromIndex, int toIndex) {
+        Integer index = layout.routesByEnds.get(
+                Layout.endsKey(fromIndex, toIndex));
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the dense index of the intersection with the given ID, which
+     * is the same as {@link tms.network.Network#getIntersectionIndex(String)}
+     * returned when the routes were numbered.
+     *
+     * @param id ID of the intersection
+     * @return index of the intersection, or -1 if no route starts or ends
+     *         at an intersection with the given ID
+     */
+    public int getIntersectionIndex(String id) {
+        Integer index = layout.intersectionIndices.get(id);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the ID of the route with the given index, in the form
+     * "from:to".
+     *
+     * @param route index of the route
+     * @return ID of the route
+     */
+    public String getRouteId(int route) {
+        return layout.routeIds[route];
+    }
+
+    /**
+     * Returns the congestion of the route with the given index.
+     *
+     * @param route index of the route
+     * @return congestion of the route, 0 to 100
+     */
+    public int getCongestion(int route) {
+        return congestion[route];
+    }
+
+    /**
+     * Returns the speed limit of the route with the given index.
+     *
+     * @param route index of the route
+     * @return speed limit of the route
+     */
+    public int getSpeed(int route) {
+        return speeds[route];
+    }
+
+    /**
+     * Returns the traffic signal of the route with the given index.
+     *
+     * @param route index of the route
+     * @return the route's signal, or null if it has no traffic light
+     */
+    public TrafficSignal getSignal(int route) {
+        byte signal = signals[route];
+        return signal == NO_SIGNAL ? null : SIGNALS[signal];
+    }
+
+    /**
+     * Numbering of the routes and their end intersections, built once by a
+     * publisher and shared by every snapshot until routes are added. Never
+     * changed once built.
+     */
+    static final class Layout {
+        /** Index of each route, keyed by route ID. */
+        private final Map<String, Integer> routeIndices;
+        /** ID of each route, by index. */
+        private final String[] routeIds;
+        /** Index of each intersection that a route starts or ends at. */
+        private final Map<String, Integer> intersectionIndices;
+        /** Index of each route, keyed by its end intersections' indices. */
+        private final LongHashMap<Integer> routesByEnds;
+
+        /**
+         * Creates a layout for routes whose end intersections have the given
+         * indices.
+         *
+         * @param routeIndices index of each route, keyed by route ID
+         * @param routeIds ID of each route, by index
+         * @param intersectionIndices index of each intersection, keyed by ID
+         * @param origins index of each route's origin intersection
+         * @param destinations index of each route's destination intersection
+         */
+        Layout(Map<String, Integer> routeIndices, String[] routeIds,
+                Map<String, Integer> intersectionIndices, int[] origins,
+                int[] destinations) {
+            this.routeIndices = routeIndices;
+            this.routeIds = routeIds;
+            this.intersectionIndices = intersectionIndices;
+            this.routesByEnds = new LongHashMap<>();
+            for (int i = 0; i < routeIds.length; i++) {
+                routesByEnds.put(endsKey(origins[i], destinations[i]), i);
+            }
+        }
+
+        /*
+         * Packs the indices of a route's ends into one key.
+         */
+        private static long endsKey(int fromIndex, int toIndex) {
+            return ((long) fromIndex << 32) | (toIndex & 0xffffffffL);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package tms.simulation;
+
+import tms.intersection.Intersection;
+import tms.network.Network;
+import tms.route.Route;
+import tms.sensors.DemoSensor;
+import tms.sensors.Sensor;
+import tms.util.ScheduledTimedItem;
+import tms.util.SimulationBinding;
+import tms.util.TimedItem;
+import tms.util.TimedItemManager;
+
+import java.util.Arrays;
+
+/**
+ * Holds the time-dependent state of many demo sensors and traffic lights in
+ * parallel primitive arrays, and advances all of it as a single timed item.
+ * <p>
+ * Every bound sensor and set of lights is given a dense index into the
+ * arrays. A second is simulated by a few tight loops over those arrays, one
+ * for each kind of state, rather than by calling {@code oneSecond()} on each
+ * object in turn through the {@link TimedItem} interface. Objects are only
+ * touched when their visible state changes: a sensor's listeners are told of
+ * a new value and a route's traffic light is given a new signal.
+ * <p>
+ * Binding is optional. {@link DemoSensor#bindTo(SimulationBinding)} and
+ * {@link tms.intersection.IntersectionLights#bindTo(SimulationBinding)} move the
+ * state of an object into a core, after which the object is a facade that
+ * reads its state from the core, and is no longer advanced by the
+ * {@link TimedItemManager} on its own. {@link SimulationCore#bind(Network)}
+ * binds every demo sensor and set of lights in a network.
+ * <p>
+ * The core itself is registered with the {@link TimedItemManager} when it is
+ * created, and is not thread safe.
+ */
+public class SimulationCore implements ScheduledTimedItem,
+        SimulationBinding {
+    /** Initial number of entries in the arrays. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Number of bound sensors. */
+    private int sensorCount;
+    /** Start of each sensor's values in sensorData. */
+    private int[] sensorOffset;
+    /** Number of values of each sensor. */
+    private int[] sensorLength;
+    /** Index of each sensor's current value within its values. */
+    private int[] sensorCursor;
+    /** Current value of each sensor. */
+    private int[] sensorValue;
+    /** Called when a sensor's current value changes. */
+    private Runnable[] sensorCallbacks;
+    /** Values of all sensors, one after another. */
+    private int[] sensorData;
+    /** Number of entries used in sensorData. */
+    private int sensorDataSize;
+
+    /** Number of bound sets of lights. */
+    private int lightsCount;
+    /** Green-yellow duration of each set of lights. */
+    private int[] lightsDuration;
+    /** Yellow time of each set of lights. */
+    private int[] lightsYellowTime;
+    /** Seconds since the current route of each set of lights went green. */
+    private int[] lightsPosition;
+    /** Seconds each set of lights moves on per second: one, or zero. */
+    private int[] lightsStep;
+    /** Index of the route with a green or yellow light in each set. */
+    private int[] lightsRoute;
+    /** Number of routes controlled by each set of lights. */
+    private int[] lightsRouteCount;
+    /** Called when the signals of a set of lights change. */
+    private PhaseListener[] lightsListeners;
+
+    /** Manager this core is registered with. */
+    private TimedItemManager timedItemManager;
+
+
+    /**
+     * Creates an empty simulation core and registers it with the shared
+     * {@link TimedItemManager}.
+     */
+    public SimulationCore() {
+        this(TimedItemManager.getTimedItemManager());
+    }
+
+    /**
+     * Creates an empty simulation core and registers it with the given
+     * timed item manager, which should be the one the sensors and lights
+     * bound to the core are registered with.
+     *
+     * @param timedItemManager manager to register the core with
+     */
+    public SimulationCore(TimedItemManager timedItemManager) {
+        sensorOffset = new int[INITIAL_CAPACITY];
+        sensorLength = new int[INITIAL_CAPACITY];
+        sensorCursor = new int[INITIAL_CAPACITY];
+        sensorValue = new int[INITIAL_CAPACITY];
+        sensorCallbacks = new Runnable[INITIAL_CAPACITY];
+        sensorData = new int[INITIAL_CAPACITY];
+        lightsDuration = new int[INITIAL_CAPACITY];
+        lightsYellowTime = new int[INITIAL_CAPACITY];
+        lightsPosition = new int[INITIAL_CAPACITY];
+        lightsStep = new int[INITIAL_CAPACITY];
+        lightsRoute = new int[INITIAL_CAPACITY];
+        lightsRouteCount = new int[INITIAL_CAPACITY];
+        lightsListeners = new PhaseListener[INITIAL_CAPACITY];
+        this.timedItemManager = timedItemManager;
+        timedItemManager.registerTimedItem(this);
+    }
+
+    /**
+     * Binds every demo sensor on a route of the given network and every set
+     * of traffic lights in it to this core.
+     *
+     * @param network network whose sensors and lights to bind
+     * @throws IllegalStateException if one of them is already bound
+     */
+    public void bind(Network network) {
+        for (Intersection intersection : network.getIntersections()) {
+            if (intersection.hasTrafficLights()) {
+                intersection.getTrafficLights().bindTo(this);
+            }
+            for (Route route : intersection.getConnections()) {
+                for (Sensor sensor : route.getSensors()) {
+                    if (sensor instanceof DemoSensor) {
+                        ((DemoSensor) sensor).bindTo(this);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a sensor's state to this core.
+     * <p>
+     * This is called by {@link DemoSensor#bindTo(SimulationBinding)}, and
+     * should not normally be called directly.
+     *
+     * @param data the sensor's data values, which are copied
+     * @param cursor index of the sensor's current value in data
+     * @param callback called whenever the current value changes
+     * @return index of the sensor in this core
+     * @requires data.length &gt; 0 &amp;&amp; 0 &lt;= cursor &lt; data.length
+     */
+    @Override
+    public int addSensor(int[] data, int cursor, Runnable callback) {
+        timedItemManager.catchUp(this);
+        if (sensorCount == sensorOffset.length) {
+            int capacity = sensorCount * 2;
+            sensorOffset = Arrays.copyOf(sensorOffset, capacity);
+            sensorLength = Arrays.copyOf(sensorLength, capacity);
+            sensorCursor = Arrays.copyOf(sensorCursor, capacity);
+            sensorValue = Arrays.copyOf(sensorValue, capacity);
+            sensorCallbacks = Arrays.copyOf(sensorCallbacks, capacity);
+        }
+        if (sensorData.length - sensorDataSize < data.length) {
+            sensorData = Arrays.copyOf(sensorData, Math.max(
+                    Math.addExact(sensorDataSize, data.length),
+                    sensorData.length * 2));
+        }
+        System.arraycopy(data, 0, sensorData, sensorDataSize, data.length);
+        int sensor = sensorCount++;
+        sensorOffset[sensor] = sensorDataSize;
+        sensorLength[sensor] = data.length;
+        sensorCursor[sensor] = cursor;
+        sensorValue[sensor] = data[cursor];
+        sensorCallbacks[sensor] = callback;
+        sensorDataSize += data.length;
+        timedItemManager.reschedule(this);
+        return sensor;
+    }
+
+    /**
+     * Returns the current value of a bound sensor.
+     *
+     * @param sensor index of the sensor in this core
+     * @return the sensor's current value
+     */
+    @Override
+    public int getSensorValue(int sensor) {
+        return sensorValue[sensor];
+    }
+
+    /**
+     * Returns the index of a bound sensor's current value among its data
+     * values.
+     *
+     * @param sensor index of the sensor in this core
+     * @return index of the sensor's current data value
+     */
+    @Override
+    public int getSensorCursor(int sensor) {
+        return sensorCursor[sensor];
+    }
+
+    /**
+     * Brings the state of every bound sensor and set of lights up to the
+     * current time of the manager this core is registered with.
+     */
+    @Override
+    public void catchUp() {
+        timedItemManager.catchUp(this);
+    }
+
+    /**
+     * Returns one of the data values of a bound sensor.
+     *
+     * @param sensor index of the sensor in this core
+     * @param index index of the value within the sensor's data values
+     * @return the data value
+     */
+    @Override
+    public int getSensorData(int sensor, int index) {
+        return sensorData[sensorOffset[sensor] + index];
+    }
+
+    /**
+     * Adds the state of a set of traffic lights to this core.
+     * <p>
+     * This is called by
+     * {@link tms.intersection.IntersectionLights#bindTo(SimulationBinding)},
+     * and should not normally be called directly.
+     *
+     * @param duration green-yellow duration of each route
+     * @param yellowTime yellow time of each route
+     * @param routeCount number of routes controlled by the lights
+     * @param route index of the route with a green or yellow light
+     * @param position seconds since that route's light went green
+     * @param running false if the lights are stopped and never change
+     * @param listener called whenever the signals change
+     * @return index of the lights in this core
+     * @requires duration &gt; yellowTime &amp;&amp; yellowTime &gt;= 1
+     *           &amp;&amp; 0 &lt;= position &lt; duration
+     */
+    @Override
+    public int addLights(int duration, int yellowTime, int routeCount,
+            int route, int position, boolean running,
+            PhaseListener listener) {
+        timedItemManager.catchUp(this);
+        if (lightsCount == lightsDuration.length) {
+            int capacity = lightsCount * 2;
+            lightsDuration = Arrays.copyOf(lightsDuration, capacity);
+            lightsYellowTime = Arrays.copyOf(lightsYellowTime, capacity);
+            lightsPosition = Arrays.copyOf(lightsPosition, capacity);
+            lightsStep = Arrays.copyOf(lightsStep, capacity);
+            lightsRoute = Arrays.copyOf(lightsRoute, capacity);
+            lightsRouteCount = Arrays.copyOf(lightsRouteCount, capacity);
+            lightsListeners = Arrays.copyOf(lightsListeners, capacity);
+        }
+        int lights = lightsCount++;
+        lightsDuration[lights] = duration;
+        lightsYellowTime[lights] = yellowTime;
+        lightsPosition[lights] = position;
+        lightsStep[lights] = running && routeCount > 0 ? 1 : 0;
+        lightsRoute[lights] = route;
+        lightsRouteCount[lights] = routeCount;
+        lightsListeners[lights] = listener;
+        timedItemManager.reschedule(this);
+        return lights;
+    }
+
+    /**
+     * Sets a new green-yellow duration for a bound set of lights, and resets
+     * the current route's light to the start of its green time.
+     * <p>
+     * The caller is responsible for turning a yellow light back to green.
+     *
+     * @param lights index of the lights in this core
+     * @param duration the new duration
+     * @requires duration &gt; yellow time of the lights
+     */
+    @Override
+    public void setLightsDuration(int lights, int duration) {
+        lightsDuration[lights] = duration;
+        lightsPosition[lights] = 0;
+    }
+
+    /**
+     * Returns the number of seconds since the current route of a bound set
+     * of lights went green.
+     *
+     * @param lights index of the lights in this core
+     * @return position of the lights within the current route's cycle
+     */
+    @Override
+    public int getLightsPosition(int lights) {
+        return lightsPosition[lights];
+    }
+
+    /**
+     * Simulates one second passing for every bound sensor and set of lights.
+     */
+    @Override
+    public void oneSecond() {
+        tickSensors();
+        tickLights();
+    }
+
+    /*
+     * Moves every sensor to its next value, then tells the sensors whose
+     * value changed.
+     */
+    private void tickSensors() {
+        int count = sensorCount;
+        int[] cursor = sensorCursor;
+        int[] length = sensorLength;
+        for (int i = 0; i < count; i++) {
+            int next = cursor[i] + 1;
+            cursor[i] = next == length[i] ? 0 : next;
+        }
+        int[] offset = sensorOffset;
+        int[] value = sensorValue;
+        int[] data = sensorData;
+        for (int i = 0; i < count; i++) {
+            int next = data[offset[i] + cursor[i]];
+            if (next != value[i]) {
+                value[i] = next;
+                sensorCallbacks[i].run();
+            }
+        }
+    }
+
+    /*
+     * Moves every running set of lights on by a second, then changes the
+     * signals of the lights that reached the end of a green or yellow time.
+     */
+    private void tickLights() {
+        int count = lightsCount;
+        int[] position = lightsPosition;
+        int[] step = lightsStep;
+        int[] duration = lightsDuration;
+        for (int i = 0; i < count; i++) {
+            int next = position[i] + step[i];
+            position[i] = next == duration[i] ? 0 : next;
+        }
+        int[] yellowTime = lightsYellowTime;
+        for (int i = 0; i < count; i++) {
+            if (step[i] == 0) {
+                continue;
+            }
+            if (position[i] == 0) {
+                int previous = lightsRoute[i];
+                int route = previous + 1 == lightsRouteCount[i] ? 0
+                        : previous + 1;
+                lightsRoute[i] = route;
+                lightsListeners[i].phaseChanged(previous, 1, route, false);
+            } else if (position[i] == duration[i] - yellowTime[i]) {
+                int route = lightsRoute[i];
+                lightsListeners[i].phaseChanged(route, 0, route, true);
+            }
+        }
+    }
+
+    /**
+     * Returns one if anything is bound to this core, since the state of a
+     * core is moved on every second.
+     *
+     * @return one, or {@link ScheduledTimedItem#NEVER} if nothing is bound
+     */
+    @Override
+    public long secondsUntilChange() {
+        return sensorCount + lightsCount > 0 ? 1 : NEVER;
+    }
+
+    /**
+     * Simulates the given number of seconds passing for every bound sensor
+     * and set of lights, with the same result as calling
+     * {@link SimulationCore#oneSecond()} that many times. The cost does not
+     * depend on the number of seconds.
+     *
+     * @param seconds number of seconds to advance by
+     */
+    @Override
+    public void advance(long seconds) {
+        if (seconds <= 0) {
+            return;
+        }
+        for (int i = 0; i < sensorCount; i++) {
+            sensorCursor[i] = (int) ((sensorCursor[i] + seconds)
+                    % sensorLength[i]);
+            int next = sensorData[sensorOffset[i] + sensorCursor[i]];
+            if (next != sensorValue[i]) {
+                sensorValue[i] = next;
+                sensorCallbacks[i].run();
+            }
+        }
+        for (int i = 0; i < lightsCount; i++) {
+            if (lightsStep[i] != 0) {
+                advanceLights(i, seconds);
+            }
+        }
+    }
+
+    /*
+     * Moves a running set of lights on by the given number of seconds,
+     * working out the new route and position arithmetically.
+     */
+    private void advanceLights(int lights, long seconds) {
+        int duration = lightsDuration[lights];
+        int greenTime = duration - lightsYellowTime[lights];
+        int position = lightsPosition[lights];
+        long total = position + seconds;
+        long routesPassed = total / duration;
+        int newPosition = (int) (total % duration);
+        int previous = lightsRoute[lights];
+        int route = (int) ((previous + routesPassed)
+                % lightsRouteCount[lights]);
+        boolean wasYellow = position >= greenTime;
+        boolean yellow = newPosition >= greenTime;
+        lightsPosition[lights] = newPosition;
+        lightsRoute[lights] = route;
+        if (routesPassed > 0 || yellow != wasYellow) {
+            lightsListeners[lights].phaseChanged(previous, routesPassed, route,
+                    yellow);
+        }
+    }
+}
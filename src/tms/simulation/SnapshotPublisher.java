@@ -0,0 +1,145 @@
+package tms.simulation;
+
+import tms.intersection.Intersection;
+import tms.network.Network;
+import tms.route.Route;
+import tms.route.TrafficLight;
+import tms.util.TickListener;
+import tms.util.TimedItemManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishes a {@link NetworkSnapshot} of a network after every tick, so that
+ * other threads can query signals, speeds and congestion while the
+ * simulation runs.
+ * <p>
+ * The network model itself is not thread safe and must only be used by the
+ * thread advancing the simulation. After each tick, that thread copies the
+ * state of every route into new arrays and publishes them as an immutable
+ * snapshot through a volatile field. Readers call
+ * {@link SnapshotPublisher#getSnapshot()} from any thread: they never take a
+ * lock, never block the tick thread, and always see every value from the
+ * same tick.
+ * <p>
+ * Changes made outside a tick, such as a new speed limit, are published with
+ * the next tick, or straight away by calling
+ * {@link SnapshotPublisher#publish()} from the thread that made them.
+ */
+public class SnapshotPublisher implements TickListener, AutoCloseable {
+    /** Network whose state is published. */
+    private final Network network;
+    /** Manager whose ticks trigger publishing. */
+    private final TimedItemManager timedItemManager;
+    /** Routes of the network, in snapshot order. */
+    private Route[] routes;
+    /** Index of each route, keyed by route ID, as the layout was built. */
+    private Map<String, Integer> routeIndices;
+    /** Route numbering shared by the snapshots. */
+    private NetworkSnapshot.Layout layout;
+    /** Version of the last snapshot published. */
+    private long version;
+    /** Last snapshot published. */
+    private volatile NetworkSnapshot snapshot;
+
+    /**
+     * Creates a publisher for the given network, publishes its current state
+     * and starts publishing after every tick of the
+     * network's {@link TimedItemManager}.
+     * <p>
+     * Must be called from the thread that advances the simulation.
+     *
+     * @param network network to publish
+     */
+    public SnapshotPublisher(Network network) {
+        this.network = network;
+        this.timedItemManager = network.getTimedItemManager();
+        publish();
+        timedItemManager.addTickListener(this);
+    }
+
+    /**
+     * Returns the most recently published snapshot. May be called from any
+     * thread.
+     *
+     * @return latest snapshot of the network
+     */
+    public NetworkSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Copies the current state of the network into a new snapshot and
+     * publishes it. Must be called from the thread that advances the
+     * simulation.
+     */
+    public void publish() {
+        if (routeIndices != network.getRouteIndices()) {
+            indexRoutes();
+        }
+        int[] congestion = new int[routes.length];
+        int[] speeds = new int[routes.length];
+        byte[] signals = new byte[routes.length];
+        network.getCongestion(congestion);
+        for (int i = 0; i < routes.length; i++) {
+            Route route = routes[i];
+            speeds[i] = route.getSpeed();
+            TrafficLight light = route.getTrafficLight();
+            signals[i] = NetworkSnapshot.encode(light == null ? null
+                    : light.getSignal());
+        }
+        snapshot = new NetworkSnapshot(++version, timedItemManager.getTime(),
+                layout, congestion, speeds, signals);
+    }
+
+    /*
+     * Lists the routes of the network in snapshot order, which is the
+     * network's dense route order.
+     */
+    private void indexRoutes() {
+        routeIndices = network.getRouteIndices();
+        routes = new Route[routeIndices.size()];
+        String[] routeIds = routeIndices.keySet().toArray(new String[0]);
+        Map<String, Integer> intersectionIndices = new HashMap<>();
+        int[] origins = new int[routes.length];
+        int[] destinations = new int[routes.length];
+        for (int i = 0; i < routes.length; i++) {
+            routes[i] = network.getRoute(i);
+            origins[i] = indexOf(routes[i].getFrom(), intersectionIndices);
+            destinations[i] = indexOf(routes[i].getTo(), intersectionIndices);
+        }
+        layout = new NetworkSnapshot.Layout(routeIndices, routeIds,
+                Collections.unmodifiableMap(intersectionIndices), origins,
+                destinations);
+    }
+
+    /*
+     * Returns the index of an intersection, recording it in the given map.
+     */
+    private int indexOf(Intersection intersection,
+            Map<String, Integer> indices) {
+        int index = network.getIntersectionIndex(intersection.getId());
+        indices.put(intersection.getId(), index);
+        return index;
+    }
+
+    /**
+     * Publishes a snapshot after each tick.
+     *
+     * @param time seconds elapsed in the simulation
+     */
+    @Override
+    public void tickCompleted(long time) {
+        publish();
+    }
+
+    /**
+     * Stops publishing after each tick. The last snapshot stays available.
+     */
+    @Override
+    public void close() {
+        timedItemManager.removeTickListener(this);
+    }
+}
@@ -0,0 +1,487 @@
+package tms.simulation;
+
+import tms.intersection.Intersection;
+import tms.network.Network;
+import tms.network.NetworkBinaryFormat;
+import tms.network.NetworkInitialiser;
+import tms.route.Route;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.InvalidOrderException;
+import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many variants of one network at the same time and writes a summary
+ * of the congestion of each.
+ * <p>
+ * A sweep starts from a network file and a grid of parameters: light
+ * durations of intersections, speed limits of routes with speed signs, and
+ * the yellow time of all traffic lights. Each parameter has a list of
+ * values, and one variant is run for every combination of values.
+ * <p>
+ * The file is read into memory once, and every variant is loaded from that
+ * copy with its own {@link TimedItemManager}, so variants share no
+ * simulation state and do not read the file again. Variants are run on a
+ * fixed pool of threads, one variant per thread at a time. By default the
+ * pool has one thread per available processor.
+ * <p>
+ * The output is comma-separated, with a header line followed by one line per
+ * variant, in grid order: "variant", one column per parameter, then
+ * "mean,peak,worstRoute,worstRouteMean". The mean is the congestion of all
+ * routes averaged over every sample, the peak is the highest average
+ * congestion of all routes in one sample, and the worst route is the one
+ * with the highest mean congestion.
+ */
+public class SweepRunner {
+    /** Columns of the output after the parameter columns. */
+    public static final String SUMMARY_HEADER =
+            "mean,peak,worstRoute,worstRouteMean";
+
+    /** Contents of the network file if it is a snapshot, otherwise null. */
+    private final byte[] snapshot;
+    /** Contents of the network file if it is a text file, otherwise null. */
+    private final String text;
+    /** Network loaded once to check the parameters against. */
+    private final Network base;
+    /** Parameters varied by the sweep, in column order. */
+    private final List<Parameter> parameters;
+    /** Number of threads variants are run on. */
+    private int threads;
+
+    /**
+     * Creates a sweep of the network in the given file with no parameters,
+     * which has a single variant: the network as loaded.
+     *
+     * @param filename name of the network file
+     * @throws IOException if the file cannot be read
+     * @throws InvalidNetworkException if the file is not a valid network
+     */
+    public SweepRunner(String filename)
+            throws IOException, InvalidNetworkException {
+        byte[] contents = Files.readAllBytes(Paths.get(filename));
+        if (contents.length >= Integer.BYTES && ByteBuffer.wrap(contents)
+                .getInt() == NetworkBinaryFormat.MAGIC) {
+            this.snapshot = contents;
+            this.text = null;
+        } else {
+            this.snapshot = null;
+            this.text = new String(contents, StandardCharsets.UTF_8);
+        }
+        this.base = load();
+        this.parameters = new ArrayList<>();
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the number of threads variants are run on.
+     *
+     * @param threads number of threads
+     * @throws IllegalArgumentException if threads is less than one
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be >= 1");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Adds a parameter that sets the light duration of the given
+     * intersection to each of the given values.
+     *
+     * @param intersectionId ID of an intersection with traffic lights
+     * @param durations light durations to try
+     * @throws IllegalArgumentException if the intersection does not exist or
+     *          has no traffic lights, or no durations are given
+     */
+    public void addLightDurations(String intersectionId, int... durations) {
+        Intersection intersection = base.findIntersectionOrNull(
+                intersectionId);
+        if (intersection == null || !intersection.hasTrafficLights()) {
+            throw new IllegalArgumentException("no traffic lights at \""
+                    + intersectionId + "\"");
+        }
+        addParameter("lights:" + intersectionId, durations,
+                (network, duration) -> network.changeLightDuration(
+                        intersectionId, duration));
+    }
+
+    /**
+     * Adds a parameter that sets the speed limit of the route between the
+     * given intersections to each of the given values.
+     *
+     * @param from ID of the origin intersection
+     * @param to ID of the destination intersection
+     * @param speeds speed limits to try
+     * @throws IllegalArgumentException if the route does not exist or has no
+     *          speed sign, a speed is negative, or no speeds are given
+     */
+    public void addSpeedLimits(String from, String to, int... speeds) {
+        Route route = base.getConnectionOrNull(from, to);
+        if (route == null || !route.hasSpeedSign()) {
+            throw new IllegalArgumentException("no speed sign from \"" + from
+                    + "\" to \"" + to + "\"");
+        }
+        for (int speed : speeds) {
+            if (speed < 0) {
+                throw new IllegalArgumentException("speed must be >= 0");
+            }
+        }
+        addParameter("speed:" + from + ":" + to, speeds,
+                (network, speed) -> network.setSpeedLimit(from, to, speed));
+    }
+
+    /**
+     * Adds a parameter that sets the yellow time of every set of traffic
+     * lights in the network to each of the given values.
+     * <p>
+     * The lights are added again with the new yellow time and their
+     * existing order and duration, so every light duration in the file, and
+     * every duration given to
+     * {@link SweepRunner#addLightDurations(String, int...)}, must be at least
+     * the largest yellow time plus one.
+     *
+     * @param yellowTimes yellow times to try
+     * @throws IllegalArgumentException if a yellow time is less than one, or
+     *          no yellow times are given
+     */
+    public void addYellowTimes(int... yellowTimes) {
+        for (int yellowTime : yellowTimes) {
+            if (yellowTime < 1) {
+                throw new IllegalArgumentException("yellow time must be >= 1");
+            }
+        }
+        addParameter("yellow", yellowTimes, SweepRunner::setYellowTime);
+    }
+
+    /*
+     * Adds a parameter with the given column name, values and way of
+     * applying a value to a network.
+     */
+    private void addParameter(String name, int[] values, Setting setting) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("no values given for " + name);
+        }
+        parameters.add(new Parameter(name, values.clone(), setting));
+    }
+
+    /*
+     * Adds the traffic lights of every intersection again with the given
+     * yellow time.
+     */
+    private static void setYellowTime(Network network, int yellowTime)
+            throws IntersectionNotFoundException, InvalidOrderException {
+        network.setYellowTime(yellowTime);
+        for (Intersection intersection : network.getIntersections()) {
+            if (intersection.hasTrafficLights()) {
+                List<String> order = new ArrayList<>();
+                for (Route route : intersection.getTrafficLights()
+                        .getOrder()) {
+                    order.add(route.getFrom().getId());
+                }
+                network.addLights(intersection.getId(),
+                        intersection.getTrafficLights().getDuration(), order);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of variants in the sweep: the product of the
+     * numbers of values of all parameters.
+     *
+     * @return number of variants
+     */
+    public int getVariantCount() {
+        int count = 1;
+        for (Parameter parameter : parameters) {
+            count = Math.multiplyExact(count, parameter.values.length);
+        }
+        return count;
+    }
+
+    /**
+     * Runs every variant for the given number of seconds, sampling the
+     * congestion of every route at the start and then every 'interval'
+     * seconds, and writes one summary line per variant.
+     * <p>
+     * Yellow times are applied before the other parameters of a variant.
+     *
+     * @param seconds number of seconds to simulate each variant for
+     * @param interval number of seconds between congestion samples
+     * @param output where the summary table is written
+     * @throws IOException if the output cannot be written
+     * @throws InterruptedException if interrupted while waiting for variants
+     * @throws IllegalArgumentException if seconds is negative, interval is
+     *          less than one, or a variant's parameters are invalid together
+     */
+    public void run(long seconds, long interval, Writer output)
+            throws IOException, InterruptedException {
+        if (seconds < 0 || interval < 1) {
+            throw new IllegalArgumentException("seconds must be >= 0 and "
+                    + "interval must be >= 1");
+        }
+        int count = getVariantCount();
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(threads, count));
+        List<Future<String>> results = new ArrayList<>(count);
+        try {
+            for (int variant = 0; variant < count; variant++) {
+                int index = variant;
+                results.add(pool.submit(
+                        () -> runVariant(index, seconds, interval)));
+            }
+            output.write(header() + System.lineSeparator());
+            for (Future<String> result : results) {
+                output.write(result.get() + System.lineSeparator());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) cause;
+            }
+            throw new IllegalStateException("variant failed", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        output.flush();
+    }
+
+    /*
+     * Loads a new copy of the network from the file contents, with its own
+     * timed item manager.
+     */
+    private Network load() throws IOException, InvalidNetworkException {
+        if (snapshot != null) {
+            return NetworkBinaryFormat.read(ByteBuffer.wrap(snapshot), null,
+                    new TimedItemManager());
+        }
+        return NetworkInitialiser.loadNetwork(new StringReader(text), null,
+                new TimedItemManager());
+    }
+
+    /*
+     * Returns the header line of the output.
+     */
+    private String header() {
+        StringBuilder header = new StringBuilder("variant");
+        for (Parameter parameter : parameters) {
+            header.append(',').append(parameter.name);
+        }
+        return header.append(',').append(SUMMARY_HEADER).toString();
+    }
+
+    /*
+     * Loads, sets up and simulates one variant and returns its output line.
+     *
+     * The variant's value of each parameter is one digit of its index, in a
+     * mixed radix where the last parameter varies fastest.
+     */
+    private String runVariant(int variant, long seconds, long interval)
+            throws Exception {
+        Network network = load();
+        int[] values = new int[parameters.size()];
+        int rest = variant;
+        for (int i = parameters.size() - 1; i >= 0; i--) {
+            int[] choices = parameters.get(i).values;
+            values[i] = choices[rest % choices.length];
+            rest /= choices.length;
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < parameters.size(); i++) {
+                Parameter parameter = parameters.get(i);
+                boolean yellow = parameter.name.equals("yellow");
+                if (yellow == (pass == 0)) {
+                    apply(parameter, network, values[i]);
+                }
+            }
+        }
+        StringBuilder line = new StringBuilder(Integer.toString(variant));
+        for (int value : values) {
+            line.append(',').append(value);
+        }
+        return line.append(',').append(simulate(network, seconds, interval))
+                .toString();
+    }
+
+    /*
+     * Applies one parameter value, turning the network's own exceptions
+     * into IllegalArgumentExceptions.
+     */
+    private static void apply(Parameter parameter, Network network,
+            int value) {
+        try {
+            parameter.setting.apply(network, value);
+        } catch (IntersectionNotFoundException | RouteNotFoundException
+                | InvalidOrderException | IllegalStateException
+                | IllegalArgumentException e) {
+            throw new IllegalArgumentException(parameter.name + "=" + value
+                    + ": " + e, e);
+        }
+    }
+
+    /*
+     * Simulates a network on its own manager and returns its congestion
+     * summary columns.
+     */
+    private static String simulate(Network network, long seconds,
+            long interval) {
+        TimedItemManager timedItemManager = network.getTimedItemManager();
+        List<Route> routes = new ArrayList<>(network.getRouteCount());
+        for (int i = 0; i < network.getIntersectionCount(); i++) {
+            routes.addAll(network.getIncomingRoutes(i));
+        }
+        long[] totals = new long[routes.size()];
+        long samples = 0;
+        double peak = 0;
+        long elapsed = 0;
+        while (true) {
+            long sum = 0;
+            for (int i = 0; i < totals.length; i++) {
+                int congestion = routes.get(i).getCongestion();
+                totals[i] += congestion;
+                sum += congestion;
+            }
+            samples++;
+            if (!routes.isEmpty()) {
+                peak = Math.max(peak, (double) sum / routes.size());
+            }
+            if (elapsed >= seconds) {
+                break;
+            }
+            long step = Math.min(interval, seconds - elapsed);
+            timedItemManager.advance(step);
+            elapsed += step;
+        }
+        long total = 0;
+        int worst = -1;
+        for (int i = 0; i < totals.length; i++) {
+            total += totals[i];
+            if (worst < 0 || totals[i] > totals[worst]) {
+                worst = i;
+            }
+        }
+        double mean = routes.isEmpty() ? 0
+                : (double) total / samples / routes.size();
+        String worstRoute = worst < 0 ? ","
+                : routes.get(worst).getFrom().getId() + ":"
+                + routes.get(worst).getTo().getId() + ","
+                + format((double) totals[worst] / samples);
+        return format(mean) + "," + format(peak) + "," + worstRoute;
+    }
+
+    /*
+     * Formats a congestion level with two decimal places.
+     */
+    private static String format(double congestion) {
+        return String.format(Locale.ROOT, "%.2f", congestion);
+    }
+
+    /**
+     * Runs a sweep and writes the summary table to standard output.
+     * <p>
+     * Arguments: NETWORK_LOAD_FILENAME SECONDS INTERVAL [PARAMETER...]
+     * <p>
+     * Each parameter is one of "lights:ID=D1,D2,...",
+     * "speed:FROM:TO=S1,S2,..." or "yellow=Y1,Y2,...".
+     *
+     * @param args from the command line.
+     */
+    public static void main(String... args) {
+        if (args.length < 3) {
+            System.out.println("Usage: NETWORK_LOAD_FILENAME SECONDS INTERVAL"
+                    + " [lights:ID=D,... | speed:FROM:TO=S,... | yellow=Y,...]"
+                    + "...");
+            System.exit(1);
+        }
+        try {
+            SweepRunner sweep = new SweepRunner(args[0]);
+            for (int i = 3; i < args.length; i++) {
+                String[] parts = args[i].split("=", 2);
+                String[] name = parts[0].split(":");
+                int[] values = parseValues(parts.length > 1 ? parts[1] : "");
+                if (name[0].equals("lights") && name.length == 2) {
+                    sweep.addLightDurations(name[1], values);
+                } else if (name[0].equals("speed") && name.length == 3) {
+                    sweep.addSpeedLimits(name[1], name[2], values);
+                } else if (name[0].equals("yellow") && name.length == 1) {
+                    sweep.addYellowTimes(values);
+                } else {
+                    throw new IllegalArgumentException("unknown parameter \""
+                            + args[i] + "\"");
+                }
+            }
+            Writer output = new BufferedWriter(new OutputStreamWriter(
+                    System.out));
+            sweep.run(Long.parseLong(args[1]), Long.parseLong(args[2]),
+                    output);
+        } catch (IOException | InvalidNetworkException
+                | IllegalArgumentException | IllegalStateException
+                | InterruptedException e) {
+            System.err.println("Error running sweep: " + e.toString());
+            System.exit(1);
+        }
+    }
+
+    /*
+     * Parses a comma-separated list of whole numbers.
+     */
+    private static int[] parseValues(String text) {
+        if (text.isEmpty()) {
+            return new int[0];
+        }
+        String[] parts = text.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    /*
+     * Way of applying a parameter value to a network.
+     */
+    private interface Setting {
+        void apply(Network network, int value)
+                throws IntersectionNotFoundException, RouteNotFoundException,
+                InvalidOrderException;
+    }
+
+    /*
+     * A parameter of the sweep: its column name, values and setting.
+     */
+    private static class Parameter {
+        /** Column name of the parameter. */
+        private final String name;
+        /** Values tried. */
+        private final int[] values;
+        /** How a value is applied to a network. */
+        private final Setting setting;
+
+        /*
+         * Creates a parameter from its parts.
+         */
+        private Parameter(String name, int[] values, Setting setting) {
+            this.name = name;
+            this.values = values;
+            this.setting = setting;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package tms.util;
+
+/**
+ * Counts the changes made to a structure built from several objects, such
+ * as a network with its intersections, routes and traffic lights.
+ * <p>
+ * Each object of the structure shares one counter and increments it
+ * whenever it changes in a way that matters to the whole. A value worked out
+ * from the whole structure can then be cached along with the count at that
+ * time, and is out of date once the count has moved on, whichever object was
+ * changed. The counter holds no references, so sharing it does not keep any
+ * of the objects reachable.
+ */
+public class ChangeCounter {
+    /** Number of changes counted so far. */
+    private long count;
+
+    /**
+     * Records one change.
+     */
+    public void increment() {
+        count++;
+    }
+
+    /**
+     * Returns the number of changes recorded so far.
+     *
+     * @return count of changes
+     */
+    public long get() {
+        return count;
+    }
+}
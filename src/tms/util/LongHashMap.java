@@ -0,0 +1,126 @@
+package tms.util;
+
+import java.util.Objects;
+
+/**
+ * Hash map from primitive long keys to non-null values.
+ * <p>
+ * Keys and values are kept in two parallel arrays with open addressing and
+ * linear probing, so lookups do not box the key or follow chains of entry
+ * objects. Keys are scrambled with the 64-bit finaliser of MurmurHash3
+ * before probing, so keys that differ only in a few bits, such as pairs of
+ * small indices packed into one long, still spread over the whole table.
+ * <p>
+ * Entries cannot be removed.
+ *
+ * @param <V> type of the values
+ */
+public class LongHashMap<V> {
+    /** Number of slots in a new, empty map. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Key in each slot. */
+    private long[] keys;
+    /** Value in each slot, or null if the slot is empty. */
+    private Object[] values;
+    /** Number of entries in the map. */
+    private int size;
+
+    /**
+     * Creates a new empty map.
+     */
+    public LongHashMap() {
+        keys = new long[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the number of entries in this map.
+     *
+     * @return number of keys with a value
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value for the given key.
+     *
+     * @param key key to look up
+     * @return value for the key, or null if the key has no value
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = slotOf(key, mask); values[slot] != null;
+                slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value for the given key, replacing any previous value.
+     *
+     * @param key key to set the value of
+     * @param value new value for the key
+     * @return previous value for the key, or null if it had none
+     * @throws NullPointerException if value is null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value must not be null");
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+        return null;
+    }
+
+    /*
+     * Doubles the number of slots, moving every entry to its new slot.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /*
+     * Returns the first slot to probe for the given key.
+     */
+    private static int slotOf(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,150 @@
+package tms.util;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Advances a list of timed items by one second using a fork-join pool.
+ * <p>
+ * The list is split into shards of consecutive items, and each shard is
+ * advanced by a separate fork-join task. A second is advanced in two phases:
+ * <ol>
+ * <li>every {@link PhasedTimedItem} is prepared and every other
+ * {@link TimedItem} has its {@code oneSecond()} method called;</li>
+ * <li>once all shards have finished the first phase, every
+ * {@link PhasedTimedItem} is committed.</li>
+ * </ol>
+ * Timed items in the simulation only change their own state (sensors) or the
+ * signals of the routes they control (intersection lights), and no route is
+ * controlled by more than one set of lights. Because of this, and because no
+ * change made by a phased item is visible before the commit barrier, the
+ * result of a tick is exactly the same as calling {@code oneSecond()} on each
+ * item in registration order.
+ */
+public class ParallelTickEngine {
+    /** Default number of timed items advanced by a single task. */
+    public static final int DEFAULT_SHARD_SIZE = 2048;
+
+    /** Pool used to run the shards of each tick. */
+    private ForkJoinPool pool;
+    /** Maximum number of timed items advanced by a single task. */
+    private int shardSize;
+
+    /**
+     * Creates a new engine that runs on the common fork-join pool with the
+     * default shard size.
+     */
+    public ParallelTickEngine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SHARD_SIZE);
+    }
+
+    /**
+     * Creates a new engine that runs on the given pool.
+     *
+     * @param pool fork-join pool to advance the shards on
+     * @param shardSize maximum number of items advanced by a single task
+     * @throws IllegalArgumentException if shardSize is less than one
+     */
+    public ParallelTickEngine(ForkJoinPool pool, int shardSize) {
+        if (shardSize < 1) {
+            throw new IllegalArgumentException("shard size must be positive");
+        }
+        this.pool = pool;
+        this.shardSize = shardSize;
+    }
+
+    /**
+     * Returns the fork-join pool this engine runs its shards on.
+     *
+     * @return pool of this engine
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Returns the maximum number of timed items advanced by a single task.
+     *
+     * @return shard size of this engine
+     */
+    public int getShardSize() {
+        return shardSize;
+    }
+
+    /**
+     * Advances every item in the given list by one second.
+     * <p>
+     * The list should support fast random access, e.g. an ArrayList, and must
+     * not be modified while the tick is running.
+     *
+     * @param timedItems items to advance
+     */
+    public void tick(List<? extends TimedItem> timedItems) {
+        int size = timedItems.size();
+        if (size <= shardSize) {
+            for (TimedItem timedItem : timedItems) {
+                timedItem.oneSecond();
+            }
+            return;
+        }
+        pool.invoke(new Shard(timedItems, 0, size, false));
+        pool.invoke(new Shard(timedItems, 0, size, true));
+    }
+
+    /**
+     * Fork-join task that runs one phase of a tick over a range of items,
+     * splitting the range in half until it is no bigger than the shard size.
+     */
+    private class Shard extends RecursiveAction {
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+        /** Items being advanced. */
+        private final List<? extends TimedItem> timedItems;
+        /** Index of the first item in this shard. */
+        private final int start;
+        /** Index one past the last item in this shard. */
+        private final int end;
+        /** Whether this is the commit phase rather than the prepare phase. */
+        private final boolean commit;
+
+        /**
+         * Creates a task for the items from start (inclusive) to end
+         * (exclusive).
+         *
+         * @param timedItems items being advanced
+         * @param start index of the first item
+         * @param end index one past the last item
+         * @param commit true for the commit phase, false for the prepare phase
+         */
+        Shard(List<? extends TimedItem> timedItems, int start, int end,
+              boolean commit) {
+            this.timedItems = timedItems;
+            this.start = start;
+            this.end = end;
+            this.commit = commit;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > shardSize) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Shard(timedItems, start, middle, commit),
+                        new Shard(timedItems, middle, end, commit));
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                TimedItem timedItem = timedItems.get(i);
+                if (timedItem instanceof PhasedTimedItem) {
+                    if (commit) {
+                        ((PhasedTimedItem) timedItem).commitSecond();
+                    } else {
+                        ((PhasedTimedItem) timedItem).prepareSecond();
+                    }
+                } else if (!commit) {
+                    timedItem.oneSecond();
+                }
+            }
+        }
+    }
+}
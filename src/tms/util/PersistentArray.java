@@ -0,0 +1,145 @@
+package tms.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A fixed-size array that is never changed once created. Setting an element
+ * returns a new array and leaves this one as it was.
+ * <p>
+ * Elements are stored in the leaves of a tree with 32 children per node, so
+ * the new array shares every node with the old one except the few on the
+ * path to the changed element. Reading and setting an element both take
+ * time proportional to log32 of the size, which is at most 7 for any
+ * array, and setting copies at most that many nodes of 32 references.
+ * <p>
+ * Arrays are safe to share between threads once published.
+ *
+ * @param <E> type of the elements
+ */
+public final class PersistentArray<E> {
+    /** Number of index bits used at each level of the tree. */
+    private static final int BITS = 5;
+    /** Number of children of each node. */
+    private static final int WIDTH = 1 << BITS;
+    /** Mask selecting the index bits of one level. */
+    private static final int MASK = WIDTH - 1;
+
+    /** Number of elements. */
+    private final int size;
+    /** Shift giving the root's child index; 0 if the root is a leaf. */
+    private final int shift;
+    /** Root node of the tree. */
+    private final Object[] root;
+
+    /*
+     * Creates an array from an existing tree.
+     */
+    private PersistentArray(int size, int shift, Object[] root) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+    }
+
+    /**
+     * Creates an array holding the given elements, in order.
+     *
+     * @param elements elements of the new array
+     * @param <E> type of the elements
+     * @return new array with the given elements
+     */
+    public static <E> PersistentArray<E> of(List<? extends E> elements) {
+        int size = elements.size();
+        Object[] nodes = new Object[Math.max(1, (size + MASK) >>> BITS)];
+        for (int i = 0; i < nodes.length; i++) {
+            int start = i << BITS;
+            Object[] leaf = new Object[WIDTH];
+            for (int j = start; j < Math.min(size, start + WIDTH); j++) {
+                leaf[j - start] = elements.get(j);
+            }
+            nodes[i] = leaf;
+        }
+        int shift = 0;
+        while (nodes.length > 1) {
+            Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            for (int i = 0; i < parents.length; i++) {
+                int start = i << BITS;
+                parents[i] = Arrays.copyOfRange(nodes, start, start + WIDTH);
+            }
+            nodes = parents;
+            shift += BITS;
+        }
+        return new PersistentArray<>(size, shift, (Object[]) nodes[0]);
+    }
+
+    /**
+     * Returns the number of elements in this array.
+     *
+     * @return size of this array
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element at the given index.
+     *
+     * @param index index of the element
+     * @return element at that index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * Returns an array equal to this one except for the element at the given
+     * index. This array is not changed.
+     *
+     * @param index index of the element to replace
+     * @param element new element at that index
+     * @return array with the element replaced, or this array if the element
+     *         at the index is already the given one
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public PersistentArray<E> set(int index, E element) {
+        if (get(index) == element) {
+            return this;
+        }
+        return new PersistentArray<>(size, shift,
+                set(root, shift, index, element));
+    }
+
+    /*
+     * Returns a copy of the given node with the element at the index
+     * replaced, copying only the nodes on the path to it.
+     */
+    private static Object[] set(Object[] node, int level, int index,
+            Object element) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = set((Object[]) node[child], level - BITS, index,
+                    element);
+        }
+        return copy;
+    }
+
+    /*
+     * Throws an exception if the index is out of range.
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index
+                    + " out of range for size " + size);
+        }
+    }
+}
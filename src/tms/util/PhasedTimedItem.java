@@ -0,0 +1,38 @@
+package tms.util;
+
+/**
+ * A timed item whose one second step is split into a prepare phase and a
+ * commit phase.
+ * <p>
+ * During {@link PhasedTimedItem#prepareSecond()} the item works out its state
+ * for the next second without changing anything that other objects can see.
+ * During {@link PhasedTimedItem#commitSecond()} that state is published, e.g.
+ * by changing the signals of the routes it controls.
+ * <p>
+ * A {@link ParallelTickEngine} prepares every item before any item is
+ * committed, so items running on different threads never observe a half
+ * finished second.
+ */
+public interface PhasedTimedItem extends TimedItem {
+
+    /**
+     * Calculates the state of this item one second from now, without making
+     * the new state visible to other objects.
+     */
+    void prepareSecond();
+
+    /**
+     * Publishes the state calculated by the last call to
+     * {@link PhasedTimedItem#prepareSecond()}.
+     */
+    void commitSecond();
+
+    /**
+     * Prepares and then immediately commits one second.
+     */
+    @Override
+    default void oneSecond() {
+        prepareSecond();
+        commitSecond();
+    }
+}
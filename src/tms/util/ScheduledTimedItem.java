@@ -0,0 +1,33 @@
+package tms.util;
+
+/**
+ * A timed item whose visible state only changes at known points in time.
+ * <p>
+ * Instead of being polled every second, scheduled items are kept in a timer
+ * wheel by the {@link TimedItemManager} and are only touched when their next
+ * change is due. The seconds in between are accounted for in bulk using
+ * {@link ScheduledTimedItem#advance(long)}.
+ */
+public interface ScheduledTimedItem extends TimedItem {
+    /** Returned by secondsUntilChange() if the item will never change. */
+    long NEVER = Long.MAX_VALUE;
+
+    /**
+     * Returns the number of calls to {@code oneSecond()}, counting from now,
+     * up to and including the first call that changes the visible state of
+     * this item.
+     *
+     * @return seconds until the next visible change (at least one), or
+     * {@link ScheduledTimedItem#NEVER} if this item will not change again
+     */
+    long secondsUntilChange();
+
+    /**
+     * Simulates the given number of seconds passing. This must leave the item
+     * in the same state as calling {@code oneSecond()} that many times.
+     *
+     * @param seconds number of seconds to advance by
+     * @requires seconds &gt;= 0
+     */
+    void advance(long seconds);
+}
@@ -0,0 +1,117 @@
+package tms.util;
+
+/**
+ * Holder of the time-dependent state of bound demo sensors and traffic
+ * lights, as seen by those objects.
+ * <p>
+ * Sensors and lights call these methods after binding themselves, to hand
+ * over their state and to read it back. Keeping them in an interface in
+ * this package means the sensor and intersection packages do not depend on
+ * the simulation package that implements it.
+ *
+ * @see tms.simulation.SimulationCore
+ */
+public interface SimulationBinding {
+
+    /**
+     * Receives the signal changes of a set of lights bound to a core.
+     */
+    interface PhaseListener {
+        /**
+         * Called when the route with a green or yellow light, or the colour
+         * of that light, has changed.
+         * <p>
+         * The routes from 'previousRoute' onwards, 'routesPassed' of them
+         * (wrapping around at the end of the order), have had their light
+         * turn red, and 'route' now has a yellow or green light. If
+         * 'routesPassed' is zero, 'route' is the same as 'previousRoute' and
+         * its light has turned yellow.
+         *
+         * @param previousRoute index of the route that had the light before
+         * @param routesPassed number of routes whose light has turned red
+         * @param route index of the route that now has the light
+         * @param yellow true if the light of 'route' is yellow, false if green
+         */
+        void phaseChanged(int previousRoute, long routesPassed, int route,
+                boolean yellow);
+    }
+
+    /**
+     * Adds a sensor's state to this binding.
+     *
+     * @param data the sensor's data values, which are copied
+     * @param cursor index of the sensor's current value in data
+     * @param callback called whenever the current value changes
+     * @return index of the sensor in this binding
+     * @requires data.length &gt; 0 &amp;&amp; 0 &lt;= cursor &lt; data.length
+     */
+    int addSensor(int[] data, int cursor, Runnable callback);
+
+    /**
+     * Returns the current value of a bound sensor.
+     *
+     * @param sensor index of the sensor in this binding
+     * @return the sensor's current value
+     */
+    int getSensorValue(int sensor);
+
+    /**
+     * Returns the index of a bound sensor's current value among its data
+     * values.
+     *
+     * @param sensor index of the sensor in this binding
+     * @return index of the sensor's current data value
+     */
+    int getSensorCursor(int sensor);
+
+    /**
+     * Brings the state of every bound sensor and set of lights up to the
+     * current simulation time, if it is advanced lazily.
+     */
+    void catchUp();
+
+    /**
+     * Returns one of the data values of a bound sensor.
+     *
+     * @param sensor index of the sensor in this binding
+     * @param index index of the value within the sensor's data values
+     * @return the data value
+     */
+    int getSensorData(int sensor, int index);
+
+    /**
+     * Adds the state of a set of traffic lights to this binding.
+     *
+     * @param duration green-yellow duration of each route
+     * @param yellowTime yellow time of each route
+     * @param routeCount number of routes controlled by the lights
+     * @param route index of the route with a green or yellow light
+     * @param position seconds since that route's light went green
+     * @param running false if the lights are stopped and never change
+     * @param listener called whenever the signals change
+     * @return index of the lights in this binding
+     * @requires duration &gt; yellowTime &amp;&amp; yellowTime &gt;= 1
+     *           &amp;&amp; 0 &lt;= position &lt; duration
+     */
+    int addLights(int duration, int yellowTime, int routeCount, int route,
+            int position, boolean running, PhaseListener listener);
+
+    /**
+     * Sets a new green-yellow duration for a bound set of lights, and resets
+     * the current route's light to the start of its green time.
+     *
+     * @param lights index of the lights in this binding
+     * @param duration the new duration
+     * @requires duration &gt; yellow time of the lights
+     */
+    void setLightsDuration(int lights, int duration);
+
+    /**
+     * Returns the number of seconds since the current route of a bound set
+     * of lights went green.
+     *
+     * @param lights index of the lights in this binding
+     * @return position of the lights within the current route's cycle
+     */
+    int getLightsPosition(int lights);
+}
@@ -0,0 +1,18 @@
+package tms.util;
+
+/**
+ * Listener notified by the {@link TimedItemManager} once all timed items
+ * have been advanced.
+ */
+public interface TickListener {
+
+    /**
+     * Called on the thread advancing the simulation after every call to
+     * {@link TimedItemManager#oneSecond()}, and once at the end of every
+     * call to {@link TimedItemManager#advance(long)}, when the state of all
+     * timed items is up to date.
+     *
+     * @param time seconds elapsed in the simulation
+     */
+    void tickCompleted(long time);
+}
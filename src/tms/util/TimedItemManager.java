@@ -1,72 +1,548 @@
 package tms.util;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Manages timed items for the simulation. All timed items in the simulation
  * need to be registered with this manager.
  * <p>
  * All registered timed items will have their {@code oneSecond()} method
- * called when {@code TimedItemManager.oneSecond()} is called.
+ * called when {@code TimedItemManager.oneSecond()} is called. By default the
+ * items are called one after another on the calling thread; a
+ * {@link ParallelTickEngine} can be set to advance them in parallel instead.
  * <p>
- * This is a singleton class. See the assignment specification and the provided
- * links for more information about the purpose of a singleton and how to
- * implement it.
+ * Items implementing {@link ScheduledTimedItem} are not polled every second.
+ * They are kept in a {@link TimerWheel} and only advanced when their next
+ * change is due, so a tick costs time proportional to the number of items
+ * that actually change. Code that changes the state of a scheduled item
+ * outside of {@code oneSecond()} must call
+ * {@link TimedItemManager#catchUp(ScheduledTimedItem)} before the change and
+ * {@link TimedItemManager#reschedule(ScheduledTimedItem)} after it.
  * <p>
- * In order to ensure correct singleton behaviour, there should <b>not</b>
- * be a public constructor.
+ * Items stay registered until they are deregistered, either directly with
+ * {@link TimedItemManager#deregister(Registration)} or
+ * {@link TimedItemManager#deregisterTimedItem(TimedItem)}, or by adding them
+ * to a {@link Lifetime} whose owner is garbage collected. Networks add their
+ * sensors and traffic lights to a lifetime they own, so a discarded network
+ * stops being ticked and can be collected once nothing else refers to it.
+ * <p>
+ * A shared instance is returned by
+ * {@link TimedItemManager#getTimedItemManager()}, and is used by networks and
+ * timed items that are not given a manager of their own. Each network can
+ * instead be given its own manager, so that several networks can be
+ * simulated independently in one JVM: advancing one manager only advances
+ * the items registered with it. A manager is not thread safe, but different
+ * managers can be advanced on different threads at the same time.
  *
- * @see <a href = "https://refactoring.guru/design-patterns/singleton">
- *                 https://refactoring.guru/design-patterns/singleton</a> and
- *      <a href = "https://www.geeksforgeeks.org/singleton-class-java/">
- *                 https://www.geeksforgeeks.org/singleton-class-java/</a>
  * @ass1
  */
 public class TimedItemManager implements TimedItem {
     private static TimedItemManager manager;
     private List<TimedItem> timedItems;
+    /** Engine used to advance the timed items, null to advance sequentially */
+    private ParallelTickEngine tickEngine;
+    /** Number of seconds this manager has been advanced by. */
+    private long time;
+    /** Wheel holding the next change of every scheduled item. */
+    private TimerWheel<Schedule> wheel;
+    /** Scheduling state of each registered scheduled item. */
+    private Map<ScheduledTimedItem, Schedule> schedules;
+    /** Schedules that are due in the current second. */
+    private List<Schedule> dueSchedules;
+    /** Scheduled items that change in the current second. */
+    private List<ScheduledTimedItem> dueItems;
+    /** Listeners notified after each tick. */
+    private List<TickListener> tickListeners;
+    /** Registration of each item, keyed by the item itself. */
+    private Map<TimedItem, Registration> registrations;
+    /** Registrations of the items in timedItems, at the same indices. */
+    private List<Registration> unscheduled;
+    /** Owner references of the lifetimes whose owners are still alive. */
+    private Set<OwnerReference> owners;
+    /** Queue receiving the owner references of collected owners. */
+    private ReferenceQueue<Object> collectedOwners;
 
     /**
-     * Creates the timed item manager that stores all the {@link TimedItem}s
-     * in this simulation.
-     * @ass1
+     * Creates a new timed item manager with no items, at time zero.
+     * <p>
+     * Use {@link TimedItemManager#getTimedItemManager()} for the shared
+     * manager.
      */
-    private TimedItemManager() {
+    public TimedItemManager() {
         timedItems = new ArrayList<TimedItem>();
+        wheel = new TimerWheel<>();
+        schedules = new IdentityHashMap<>();
+        dueSchedules = new ArrayList<>();
+        dueItems = new ArrayList<>();
+        tickListeners = new ArrayList<>();
+        registrations = new IdentityHashMap<>();
+        unscheduled = new ArrayList<>();
+        owners = new HashSet<>();
+        collectedOwners = new ReferenceQueue<>();
     }
 
     /**
      * Register a TimedItem such that it is called on
      * {@link TimedItemManager#oneSecond()}.
+     * <p>
+     * A {@link ScheduledTimedItem} is only called when its next change is due.
+     * <p>
+     * Registering an item that is already registered replaces its
+     * registration.
      *
      * @param timedItem a TimedItem to register with the manager
+     * @return handle used to deregister the item
      * @ass1
      */
-    public void registerTimedItem(TimedItem timedItem) {
-        timedItems.add(timedItem);
+    public Registration registerTimedItem(TimedItem timedItem) {
+        Registration previous = registrations.get(timedItem);
+        if (previous != null) {
+            deregister(previous);
+        }
+        Registration registration = new Registration(timedItem);
+        if (timedItem instanceof ScheduledTimedItem) {
+            ScheduledTimedItem item = (ScheduledTimedItem) timedItem;
+            registration.schedule = new Schedule(item, time);
+            schedules.put(item, registration.schedule);
+            schedule(registration.schedule);
+        } else {
+            registration.index = timedItems.size();
+            timedItems.add(timedItem);
+            unscheduled.add(registration);
+        }
+        registrations.put(timedItem, registration);
+        return registration;
+    }
+
+    /**
+     * Stops the item with the given registration being advanced by this
+     * manager, in constant time. Does nothing if the item has already been
+     * deregistered.
+     * <p>
+     * Must not be called from an item's {@code oneSecond()} or
+     * {@code advance(long)} while this manager is advancing its items.
+     *
+     * @param registration handle returned when the item was registered
+     */
+    public void deregister(Registration registration) {
+        if (registration.manager != this || !registration.isRegistered()) {
+            return;
+        }
+        TimedItem item = registration.item;
+        if (registration.schedule != null) {
+            wheel.cancel(registration.schedule.timer);
+            schedules.remove(item);
+            registration.schedule = null;
+        } else {
+            int last = timedItems.size() - 1;
+            Registration moved = unscheduled.get(last);
+            timedItems.set(registration.index, moved.item);
+            unscheduled.set(registration.index, moved);
+            moved.index = registration.index;
+            timedItems.remove(last);
+            unscheduled.remove(last);
+        }
+        registration.index = -1;
+        registrations.remove(item);
+        if (registration.lifetime != null) {
+            registration.lifetime.remove(registration);
+        }
     }
 
     /**
-     * Gets a singleton instance of the TimedItemManager and makes one if
+     * Returns whether the given item is registered with this manager.
+     *
+     * @param timedItem item to look for
+     * @return true if the item is advanced by this manager, false otherwise
+     */
+    public boolean isRegistered(TimedItem timedItem) {
+        return registrations.containsKey(timedItem);
+    }
+
+    /**
+     * Stops the given item being advanced by this manager, in constant time.
+     * Does nothing if the item is not registered with this manager.
+     *
+     * @param timedItem item to deregister
+     * @see TimedItemManager#deregister(Registration)
+     */
+    public void deregisterTimedItem(TimedItem timedItem) {
+        Registration registration = registrations.get(timedItem);
+        if (registration != null) {
+            deregister(registration);
+        }
+    }
+
+    /**
+     * Returns the number of items registered with this manager.
+     *
+     * @return number of registered items
+     */
+    public int getTimedItemCount() {
+        return registrations.size();
+    }
+
+    /**
+     * Creates a lifetime for items that should only be advanced while the
+     * given owner is in use. Once the owner has been garbage collected, the
+     * items added to the lifetime are deregistered at the start of the next
+     * tick.
+     * <p>
+     * The owner should keep a reference to the lifetime, and the items should
+     * not refer back to the owner, or it can never be collected.
+     *
+     * @param owner object whose collection ends the lifetime
+     * @return new lifetime with no items
+     */
+    public Lifetime newLifetime(Object owner) {
+        Lifetime lifetime = new Lifetime();
+        owners.add(new OwnerReference(owner, collectedOwners, lifetime));
+        return lifetime;
+    }
+
+    /*
+     * Deregisters the items of every lifetime whose owner has been collected.
+     */
+    private void expireLifetimes() {
+        OwnerReference reference;
+        while ((reference = (OwnerReference) collectedOwners.poll()) != null) {
+            owners.remove(reference);
+            List<Registration> items = reference.lifetime.registrations;
+            while (!items.isEmpty()) {
+                deregister(items.get(items.size() - 1));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of seconds this manager has been advanced by.
+     *
+     * @return seconds elapsed in the simulation
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Brings the given scheduled item up to the current time, so that its
+     * state can be read or changed outside of {@code oneSecond()}.
+     * <p>
+     * Does nothing if the item is not registered with this manager.
+     *
+     * @param item scheduled item to bring up to date
+     */
+    public void catchUp(ScheduledTimedItem item) {
+        Schedule schedule = schedules.get(item);
+        if (schedule != null && schedule.synced < time) {
+            item.advance(time - schedule.synced);
+            schedule.synced = time;
+        }
+    }
+
+    /**
+     * Works out again when the given scheduled item next changes, after its
+     * state was changed outside of {@code oneSecond()}.
+     * <p>
+     * The item must have been brought up to date with
+     * {@link TimedItemManager#catchUp(ScheduledTimedItem)} before the change.
+     * Does nothing if the item is not registered with this manager.
+     *
+     * @param item scheduled item whose state was changed
+     */
+    public void reschedule(ScheduledTimedItem item) {
+        Schedule schedule = schedules.get(item);
+        if (schedule != null) {
+            schedule(schedule);
+        }
+    }
+
+    /*
+     * Puts the given schedule on the wheel at the time its item next changes,
+     * or takes it off the wheel if the item will never change again.
+     */
+    private void schedule(Schedule schedule) {
+        long delay = schedule.item.secondsUntilChange();
+        if (delay == ScheduledTimedItem.NEVER) {
+            wheel.cancel(schedule.timer);
+        } else {
+            long due = schedule.synced + Math.max(1, delay);
+            wheel.schedule(schedule.timer, Math.max(time + 1, due));
+        }
+    }
+
+    /**
+     * Gets the shared instance of the TimedItemManager and makes one if
      * required.
-     * @return the singleton instance of the TimedItemManager
+     * @return the shared instance of the TimedItemManager
      * @ass1
      */
-    public static TimedItemManager getTimedItemManager () {
+    public static synchronized TimedItemManager getTimedItemManager () {
         if (manager == null) {
             manager = new TimedItemManager();
         }
         return manager;
     }
 
+    /**
+     * Adds a listener to be notified whenever the registered timed items have
+     * been advanced.
+     *
+     * @param listener the listener to add
+     */
+    public void addTickListener(TickListener listener) {
+        tickListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with
+     * {@link TimedItemManager#addTickListener(TickListener)}. Does nothing if
+     * the listener was not added.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeTickListener(TickListener listener) {
+        tickListeners.remove(listener);
+    }
+
+    /*
+     * Tells every tick listener that the items are up to date.
+     */
+    private void notifyTickListeners() {
+        for (int i = 0; i < tickListeners.size(); i++) {
+            tickListeners.get(i).tickCompleted(time);
+        }
+    }
+
+    /**
+     * Sets the engine used to advance the registered timed items on each call
+     * to {@link TimedItemManager#oneSecond()}.
+     *
+     * @param tickEngine engine to advance the items in parallel, or null to
+     *                   advance them one after another on the calling thread
+     */
+    public void setTickEngine(ParallelTickEngine tickEngine) {
+        this.tickEngine = tickEngine;
+    }
+
+    /**
+     * Returns the engine used to advance the registered timed items.
+     *
+     * @return engine advancing the items in parallel, or null if they are
+     *         advanced one after another on the calling thread
+     */
+    public ParallelTickEngine getTickEngine() {
+        return tickEngine;
+    }
+
     /**
      * Calls {@code oneSecond()} on each registered {@link TimedItem}.
+     * <p>
+     * Scheduled items that change this second are first advanced over the
+     * seconds since they were last touched, then have {@code oneSecond()}
+     * called like every other item. Scheduled items that do not change this
+     * second are left alone. Tick listeners are notified at the end.
      * @ass1
      */
     public void oneSecond() {
+        expireLifetimes();
+        time++;
+        wheel.advance(dueSchedules);
+        for (Schedule schedule : dueSchedules) {
+            // every second skipped here leaves the item's visible state as is
+            long quietSeconds = time - schedule.synced - 1;
+            if (quietSeconds > 0) {
+                schedule.item.advance(quietSeconds);
+            }
+            schedule.synced = time;
+            dueItems.add(schedule.item);
+        }
+        if (tickEngine != null) {
+            tickEngine.tick(timedItems);
+            tickEngine.tick(dueItems);
+        } else {
+            for (TimedItem timedItem : timedItems) {
+                timedItem.oneSecond();
+            }
+            for (TimedItem timedItem : dueItems) {
+                timedItem.oneSecond();
+            }
+        }
+        for (Schedule schedule : dueSchedules) {
+            schedule(schedule);
+        }
+        dueSchedules.clear();
+        dueItems.clear();
+        notifyTickListeners();
+    }
+
+    /**
+     * Fast-forwards the simulation by the given number of seconds, with the
+     * same result as calling {@link TimedItemManager#oneSecond()} that many
+     * times.
+     * <p>
+     * Every scheduled item is advanced in a single step, so fast-forwarding a
+     * network of sensors and traffic lights costs time proportional to the
+     * number of items rather than the number of seconds. Items that are not
+     * scheduled still have {@code oneSecond()} called once per second.
+     *
+     * @param seconds number of seconds to fast-forward by
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public void advance(long seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("cannot advance by a negative "
+                    + "number of seconds");
+        }
+        expireLifetimes();
         for (TimedItem timedItem : timedItems) {
-            timedItem.oneSecond();
+            for (long k = 0; k < seconds; k++) {
+                timedItem.oneSecond();
+            }
+        }
+        time += seconds;
+        wheel.reset(time);
+        for (Schedule schedule : schedules.values()) {
+            schedule.item.advance(time - schedule.synced);
+            schedule.synced = time;
+            schedule(schedule);
+        }
+        notifyTickListeners();
+    }
+
+    /**
+     * Handle to the registration of a timed item, returned by
+     * {@link TimedItemManager#registerTimedItem(TimedItem)} and used to
+     * deregister the item in constant time.
+     */
+    public final class Registration {
+        /** Manager the item is registered with. */
+        private final TimedItemManager manager = TimedItemManager.this;
+        /** Item registered. */
+        private final TimedItem item;
+        /** Scheduling state of a scheduled item, null if not scheduled. */
+        private Schedule schedule;
+        /** Index of an unscheduled item in timedItems, or -1. */
+        private int index = -1;
+        /** Lifetime the item belongs to, or null. */
+        private Lifetime lifetime;
+        /** Index of this registration in its lifetime. */
+        private int lifetimeIndex;
+
+        /*
+         * Creates the registration of the given item.
+         */
+        private Registration(TimedItem item) {
+            this.item = item;
+        }
+
+        /**
+         * Returns whether the item is still registered.
+         *
+         * @return true until the item has been deregistered
+         */
+        public boolean isRegistered() {
+            return schedule != null || index >= 0;
+        }
+    }
+
+    /**
+     * A group of timed items that are deregistered together once the object
+     * owning them has been garbage collected. Created by
+     * {@link TimedItemManager#newLifetime(Object)}.
+     */
+    public final class Lifetime {
+        /** Registrations of the items in this lifetime. */
+        private final List<Registration> registrations = new ArrayList<>();
+
+        /*
+         * Creates an empty lifetime.
+         */
+        private Lifetime() {
+        }
+
+        /**
+         * Adds the given item to this lifetime, so that it is deregistered
+         * once the owner of the lifetime is collected. Does nothing if the
+         * item is not registered with the manager that created this lifetime.
+         * An item belongs to at most one lifetime.
+         *
+         * @param timedItem item to add
+         */
+        public void add(TimedItem timedItem) {
+            Registration registration =
+                    TimedItemManager.this.registrations.get(timedItem);
+            if (registration == null || registration.lifetime == this) {
+                return;
+            }
+            if (registration.lifetime != null) {
+                registration.lifetime.remove(registration);
+            }
+            registration.lifetime = this;
+            registration.lifetimeIndex = registrations.size();
+            registrations.add(registration);
+        }
+
+        /*
+         * Removes a registration from this lifetime by moving the last one
+         * into its place.
+         */
+        private void remove(Registration registration) {
+            int last = registrations.size() - 1;
+            Registration moved = registrations.get(last);
+            registrations.set(registration.lifetimeIndex, moved);
+            moved.lifetimeIndex = registration.lifetimeIndex;
+            registrations.remove(last);
+            registration.lifetime = null;
+        }
+    }
+
+    /*
+     * Weak reference to the owner of a lifetime, queued once the owner has
+     * been collected.
+     */
+    private static final class OwnerReference extends WeakReference<Object> {
+        /** Lifetime ended by the owner's collection. */
+        private final Lifetime lifetime;
+
+        /*
+         * Creates a reference to the given owner of a lifetime.
+         */
+        private OwnerReference(Object owner, ReferenceQueue<Object> queue,
+                Lifetime lifetime) {
+            super(owner, queue);
+            this.lifetime = lifetime;
+        }
+    }
+
+    /**
+     * Scheduling state of a registered {@link ScheduledTimedItem}.
+     */
+    private static class Schedule {
+        /** Item being scheduled. */
+        private final ScheduledTimedItem item;
+        /** Timer on the wheel for the item's next change. */
+        private final TimerWheel.Timer<Schedule> timer;
+        /** Time up to which the item has been advanced. */
+        private long synced;
+
+        /**
+         * Creates the scheduling state of an item that is up to date at the
+         * given time.
+         *
+         * @param item item being scheduled
+         * @param synced time up to which the item has been advanced
+         */
+        Schedule(ScheduledTimedItem item, long synced) {
+            this.item = item;
+            this.synced = synced;
+            this.timer = new TimerWheel.Timer<>(this);
         }
     }
 }
@@ -0,0 +1,265 @@
+package tms.util;
+
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel with a resolution of one second.
+ * <p>
+ * The wheel has several levels of 64 slots each. A slot on the lowest level
+ * holds the timers due in one particular second, a slot on the next level
+ * holds the timers due in one particular block of 64 seconds, and so on.
+ * When the wheel reaches the start of a block, the timers in that block's slot
+ * are moved down to the level below. Scheduling and cancelling a timer are
+ * O(1), and advancing the wheel by one second only touches timers that are
+ * due, plus the timers being moved down a level (each timer is moved at most
+ * once per level).
+ *
+ * @param <T> type of the items stored in the timers
+ */
+public class TimerWheel<T> {
+    /** Number of bits of a due time used to select a slot on one level. */
+    private static final int SLOT_BITS = 6;
+    /** Number of slots on each level. */
+    private static final int SLOTS = 1 << SLOT_BITS;
+    /** Mask selecting the slot bits of a due time. */
+    private static final int SLOT_MASK = SLOTS - 1;
+    /** Number of levels, covering delays of up to 2^36 seconds. */
+    private static final int LEVELS = 6;
+    /** Level of timers due too far in the future to fit on the wheel. */
+    private static final int OVERFLOW = LEVELS;
+
+    /** Heads of the lists of timers in each slot of each level. */
+    private Timer<T>[][] slots;
+    /** Head of the list of timers due after the last level ends. */
+    private Timer<T> overflow;
+    /** Current time of the wheel, in seconds. */
+    private long time;
+
+    /**
+     * Creates a new empty timer wheel with a current time of zero.
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel() {
+        slots = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+        time = 0;
+    }
+
+    /**
+     * Returns the current time of this wheel.
+     *
+     * @return number of seconds this wheel has been advanced by
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Schedules the given timer to be due at the given time. If the timer is
+     * already scheduled, it is cancelled first.
+     *
+     * @param timer timer to schedule
+     * @param due time at which the timer should be due
+     * @throws IllegalArgumentException if due is not after the current time
+     */
+    public void schedule(Timer<T> timer, long due) {
+        if (due <= time) {
+            throw new IllegalArgumentException("due time must be after the "
+                    + "current time");
+        }
+        cancel(timer);
+        timer.due = due;
+        insert(timer);
+    }
+
+    /**
+     * Removes the given timer from this wheel. Does nothing if the timer is
+     * not scheduled.
+     *
+     * @param timer timer to cancel
+     */
+    public void cancel(Timer<T> timer) {
+        if (timer.level < 0) {
+            return;
+        }
+        if (timer.previous != null) {
+            timer.previous.next = timer.next;
+        } else if (timer.level == OVERFLOW) {
+            overflow = timer.next;
+        } else {
+            slots[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.previous = timer.previous;
+        }
+        timer.previous = null;
+        timer.next = null;
+        timer.level = -1;
+    }
+
+    /**
+     * Advances this wheel by one second and adds the items of all timers that
+     * are now due to the given list. Due timers are no longer scheduled
+     * afterwards.
+     *
+     * @param due list to add the items of the due timers to
+     */
+    public void advance(List<T> due) {
+        time++;
+        // move timers down from the highest level whose block starts now,
+        // so that a timer can fall through several levels in one second
+        for (int level = LEVELS; level > 0; level--) {
+            long blockMask = (1L << (SLOT_BITS * level)) - 1;
+            if ((time & blockMask) != 0) {
+                continue;
+            }
+            if (level == OVERFLOW) {
+                Timer<T> head = overflow;
+                overflow = null;
+                cascade(head);
+            } else {
+                int slot = (int) ((time >>> (SLOT_BITS * level)) & SLOT_MASK);
+                Timer<T> head = slots[level][slot];
+                slots[level][slot] = null;
+                cascade(head);
+            }
+        }
+        int slot = (int) (time & SLOT_MASK);
+        Timer<T> timer = slots[0][slot];
+        slots[0][slot] = null;
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.previous = null;
+            timer.next = null;
+            timer.level = -1;
+            due.add(timer.item);
+            timer = next;
+        }
+    }
+
+    /**
+     * Cancels every scheduled timer and moves the current time of this wheel
+     * to the given time.
+     *
+     * @param newTime new current time of the wheel
+     */
+    public void reset(long newTime) {
+        for (Timer<T>[] level : slots) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                unlinkAll(level[slot]);
+                level[slot] = null;
+            }
+        }
+        unlinkAll(overflow);
+        overflow = null;
+        time = newTime;
+    }
+
+    /*
+     * Marks every timer in the given list as unscheduled.
+     */
+    private void unlinkAll(Timer<T> head) {
+        while (head != null) {
+            Timer<T> next = head.next;
+            head.previous = null;
+            head.next = null;
+            head.level = -1;
+            head = next;
+        }
+    }
+
+    /*
+     * Re-inserts every timer in the given list, moving each one down to the
+     * level matching its remaining delay.
+     */
+    private void cascade(Timer<T> head) {
+        while (head != null) {
+            Timer<T> next = head.next;
+            head.previous = null;
+            head.next = null;
+            insert(head);
+            head = next;
+        }
+    }
+
+    /*
+     * Adds an unscheduled timer to the slot matching its due time.
+     */
+    private void insert(Timer<T> timer) {
+        long delay = timer.due - time;
+        int level = 0;
+        while (level < LEVELS && delay >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        Timer<T> head;
+        if (level == OVERFLOW) {
+            head = overflow;
+            overflow = timer;
+        } else {
+            int slot = (int) ((timer.due >>> (SLOT_BITS * level)) & SLOT_MASK);
+            head = slots[level][slot];
+            slots[level][slot] = timer;
+            timer.slot = slot;
+        }
+        timer.level = level;
+        timer.next = head;
+        if (head != null) {
+            head.previous = timer;
+        }
+    }
+
+    /**
+     * A timer that can be scheduled on a {@link TimerWheel}.
+     *
+     * @param <T> type of the item stored in the timer
+     */
+    public static class Timer<T> {
+        /** Item returned when this timer is due. */
+        private final T item;
+        /** Time at which this timer is due. */
+        private long due;
+        /** Level this timer is on, or -1 if it is not scheduled. */
+        private int level = -1;
+        /** Slot this timer is in on its level. */
+        private int slot;
+        /** Previous timer in the same slot. */
+        private Timer<T> previous;
+        /** Next timer in the same slot. */
+        private Timer<T> next;
+
+        /**
+         * Creates a new unscheduled timer for the given item.
+         *
+         * @param item item returned when the timer is due
+         */
+        public Timer(T item) {
+            this.item = item;
+        }
+
+        /**
+         * Returns the item stored in this timer.
+         *
+         * @return item of this timer
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * Returns whether this timer is currently scheduled on a wheel.
+         *
+         * @return true if scheduled, false otherwise
+         */
+        public boolean isScheduled() {
+            return level >= 0;
+        }
+
+        /**
+         * Returns the time at which this timer was last scheduled to be due.
+         *
+         * @return due time of this timer
+         */
+        public long getDue() {
+            return due;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import tms.route.Route;
 import tms.route.TrafficSignal;
 import tms.util.InvalidOrderException;
 import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -141,6 +142,79 @@ public class IntersectionLightsTest {
 
     }
 
+    @Test
+    public void scheduledByManagerTest() {
+        order = e.getConnections();
+        for (Route demo : order) {
+            demo.addTrafficLight();
+        }
+        IntersectionLights light = new IntersectionLights(order, 2, 5);
+        TimedItemManager manager = TimedItemManager.getTimedItemManager();
+        for (int k = 0; k < 3; k++) {
+            manager.oneSecond();
+        }
+        Assert.assertEquals(TrafficSignal.YELLOW, order.get(0).getTrafficLight().getSignal());
+        manager.oneSecond();
+        light.setDuration(7);
+        Assert.assertEquals(TrafficSignal.GREEN, order.get(0).getTrafficLight().getSignal());
+        for (int k = 0; k < 4; k++) {
+            manager.oneSecond();
+        }
+        Assert.assertEquals(TrafficSignal.GREEN, order.get(0).getTrafficLight().getSignal());
+        manager.oneSecond();
+        Assert.assertEquals(TrafficSignal.YELLOW, order.get(0).getTrafficLight().getSignal());
+        manager.oneSecond();
+        manager.oneSecond();
+        Assert.assertEquals(TrafficSignal.RED, order.get(0).getTrafficLight().getSignal());
+        Assert.assertEquals(TrafficSignal.GREEN, order.get(1).getTrafficLight().getSignal());
+    }
+
+    @Test
+    public void advanceTest() throws RouteNotFoundException {
+        for (int yellow = 1; yellow <= 3; yellow++) {
+            for (int duration = yellow + 1; duration <= 6; duration++) {
+                for (int routes = 1; routes <= 4; routes++) {
+                    for (int seconds = 0; seconds <= 60; seconds += 7) {
+                        List<Route> stepped = lightsOrder("s", routes);
+                        List<Route> advanced = lightsOrder("a", routes);
+                        IntersectionLights steppedLights =
+                                new IntersectionLights(stepped, yellow, duration);
+                        IntersectionLights advancedLights =
+                                new IntersectionLights(advanced, yellow, duration);
+                        for (int k = 0; k < 3; k++) {
+                            steppedLights.oneSecond();
+                            advancedLights.oneSecond();
+                        }
+                        for (int k = 0; k < seconds; k++) {
+                            steppedLights.oneSecond();
+                        }
+                        advancedLights.advance(seconds);
+                        for (int k = 0; k < routes; k++) {
+                            Assert.assertEquals(
+                                    stepped.get(k).getTrafficLight().getSignal(),
+                                    advanced.get(k).getTrafficLight().getSignal());
+                        }
+                        Assert.assertEquals(steppedLights.secondsUntilChange(),
+                                advancedLights.secondsUntilChange());
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Route> lightsOrder(String prefix, int routes)
+            throws RouteNotFoundException {
+        Intersection to = new Intersection(prefix);
+        List<Route> lightsOrder = new ArrayList<>();
+        for (int k = 0; k < routes; k++) {
+            Intersection from = new Intersection(prefix + k);
+            to.addConnection(from, 50);
+            lightsOrder.add(to.getConnection(from));
+            lightsOrder.get(k).addTrafficLight();
+        }
+        return lightsOrder;
+    }
+
     @Test
     public void toStringTest() {
         order = e.getConnections();
@@ -151,4 +225,15 @@ public class IntersectionLightsTest {
         Assert.assertEquals(light.toString(),"6:f,g,h,i");
     }
 
+    @Test
+    public void toStringWithLightsAtOriginTest() throws RouteNotFoundException,
+            InvalidOrderException {
+        f.addConnection(e, 40);
+        List<Route> fOrder = new ArrayList<>();
+        fOrder.add(f.getConnection(e));
+        f.addTrafficLights(fOrder, 1, 3);
+        e.addTrafficLights(e.getConnections(), 3, 6);
+        Assert.assertEquals("6:f,g,h,i", e.getTrafficLights().toString());
+        Assert.assertEquals("f:3:e", f.toString());
+    }
 }
@@ -0,0 +1,47 @@
+package tms.intersection;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.route.Route;
+import tms.util.RouteNotFoundException;
+
+public class IntersectionTest {
+    private Intersection x, y, z;
+
+    @Before
+    public void setUp() {
+        x = new Intersection("x");
+        y = new Intersection("y");
+        z = new Intersection("z");
+        y.addConnection(x, 60);
+    }
+
+    @Test
+    public void getConnectionOrNullTest() throws RouteNotFoundException {
+        Route route = y.getConnectionOrNull(x);
+        Assert.assertNotNull(route);
+        Assert.assertSame(route, y.getConnection(x));
+        Assert.assertSame(x, route.getFrom());
+        Assert.assertNull(y.getConnectionOrNull(z));
+        // routes are one way
+        Assert.assertNull(x.getConnectionOrNull(y));
+    }
+
+    @Test
+    public void getConnectionOrNullByIdTest() {
+        // lookups go by the origin's ID, not the instance
+        Assert.assertSame(y.getConnectionOrNull(x),
+                y.getConnectionOrNull(new Intersection("x")));
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void getConnectionMissingTest() throws RouteNotFoundException {
+        y.getConnection(z);
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void getConnectionReverseTest() throws RouteNotFoundException {
+        x.getConnection(y);
+    }
+}
@@ -0,0 +1,63 @@
+package tms.network;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.util.InvalidNetworkException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class NetworkBinaryFormatTest {
+    private Path snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        snapshot = Files.createTempFile("network", ".bin");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Test
+    public void roundTripTest() throws IOException, InvalidNetworkException {
+        Network network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        NetworkBinaryFormat.write(network, snapshot);
+        Assert.assertTrue(NetworkBinaryFormat.isSnapshot(snapshot));
+        Network loaded = NetworkBinaryFormat.read(snapshot);
+        Assert.assertEquals(network.toString(), loaded.toString());
+        Assert.assertEquals(network, loaded);
+        Assert.assertEquals(network.toString(),
+                NetworkInitialiser.loadNetwork(snapshot.toString()).toString());
+    }
+
+    @Test
+    public void textIsNotSnapshotTest() throws IOException {
+        Assert.assertFalse(NetworkBinaryFormat.isSnapshot(
+                Path.of("networks/demo.txt")));
+    }
+
+    @Test(expected = InvalidNetworkException.class)
+    public void truncatedTest() throws IOException, InvalidNetworkException {
+        Network network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        NetworkBinaryFormat.write(network, snapshot);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        NetworkBinaryFormat.read(ByteBuffer.wrap(
+                Arrays.copyOf(bytes, bytes.length - 5)));
+    }
+
+    @Test(expected = InvalidNetworkException.class)
+    public void wrongVersionTest() throws InvalidNetworkException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putInt(NetworkBinaryFormat.MAGIC);
+        buffer.putInt(NetworkBinaryFormat.VERSION + 1);
+        buffer.flip();
+        NetworkBinaryFormat.read(buffer);
+    }
+}
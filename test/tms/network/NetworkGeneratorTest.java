@@ -0,0 +1,77 @@
+package tms.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tms.util.InvalidNetworkException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class NetworkGeneratorTest {
+
+    private String generate(NetworkGenerator generator) throws IOException {
+        StringWriter writer = new StringWriter();
+        generator.write(writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void layoutsLoadTest() throws IOException, InvalidNetworkException {
+        for (NetworkGenerator.Layout layout
+                : NetworkGenerator.Layout.values()) {
+            for (int intersections : new int[] {1, 7, 100, 1001}) {
+                NetworkGenerator generator = new NetworkGenerator(layout,
+                        intersections, 42);
+                generator.setSensorsPerRoute(intersections % 4);
+                StringWriter writer = new StringWriter();
+                long routes = generator.write(writer);
+                Network network = NetworkInitialiser.loadNetwork(
+                        new StringReader(writer.toString()));
+                Assert.assertEquals(intersections,
+                        network.getIntersectionCount());
+                Assert.assertEquals(routes, network.getRouteCount());
+            }
+        }
+    }
+
+    @Test
+    public void gridTest() throws IOException, InvalidNetworkException {
+        NetworkGenerator generator = new NetworkGenerator(
+                NetworkGenerator.Layout.GRID, 9, 0);
+        generator.setLightProbability(1);
+        Network network = NetworkInitialiser.loadNetwork(new StringReader(
+                generate(generator)));
+        // a 3x3 grid has 12 roads, each a route in both directions
+        Assert.assertEquals(24, network.getRouteCount());
+        Assert.assertEquals(4, network.getIncomingRoutes(
+                network.getIntersectionIndex("I4")).size());
+        Assert.assertTrue(network.findIntersectionOrNull("I4")
+                .hasTrafficLights());
+    }
+
+    @Test
+    public void sameSeedTest() throws IOException {
+        NetworkGenerator first = new NetworkGenerator(
+                NetworkGenerator.Layout.RANDOM_GEOMETRIC, 500, 7);
+        NetworkGenerator second = new NetworkGenerator(
+                NetworkGenerator.Layout.RANDOM_GEOMETRIC, 500, 7);
+        Assert.assertEquals(generate(first), generate(second));
+    }
+
+    @Test
+    public void faultsTest() throws IOException {
+        for (long seed = 0; seed < 30; seed++) {
+            NetworkGenerator generator = new NetworkGenerator(
+                    NetworkGenerator.Layout.RADIAL, 50, seed);
+            generator.setFaultCount(1);
+            try {
+                NetworkInitialiser.loadNetwork(new StringReader(
+                        generate(generator)));
+                Assert.fail("loaded a network with a fault, seed " + seed);
+            } catch (InvalidNetworkException expected) {
+                // every fault must be detected
+            }
+        }
+    }
+}
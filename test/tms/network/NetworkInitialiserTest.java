@@ -8,6 +8,11 @@ import tms.util.InvalidNetworkException;
 
 import javax.imageio.IIOException;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
 
 import static junit.framework.TestCase.fail;
 
@@ -440,5 +445,76 @@ public class NetworkInitialiserTest {
             fail();
         }
     }
-}
 
+    /** Counts and yellow time of a network with intersections X and Y. */
+    private static final String HEADER = "2\n1\n1\nX\nY\n";
+
+    private String errorMessage(String contents) throws IOException {
+        try {
+            NetworkInitialiser.loadNetwork(new StringReader(contents));
+        } catch (InvalidNetworkException e) {
+            return e.getMessage();
+        }
+        fail();
+        return null;
+    }
+
+    @Test
+    public void malformedNumberTest() throws IOException {
+        Assert.assertEquals("line 3, column 1: expected a number",
+                errorMessage("2\n1\nx1\nX\nY\nX:Y:60:0\n"));
+        Assert.assertEquals("line 6, column 5: expected a number",
+                errorMessage(HEADER + "X:Y::0\n"));
+    }
+
+    @Test
+    public void missingFieldTest() throws IOException {
+        Assert.assertEquals("line 6, column 7: expected ':'",
+                errorMessage(HEADER + "X:Y:60\n"));
+        Assert.assertEquals("line 7, column 5: expected ':'",
+                errorMessage(HEADER + "X:Y:60:1\nPP:5\n"));
+    }
+
+    @Test
+    public void commentLineNumberTest() throws IOException {
+        // comment lines are still counted in line numbers
+        Assert.assertEquals("line 4, column 1: expected a number",
+                errorMessage("; comment\n2\n1\nx\n"));
+    }
+
+    @Test
+    public void networkErrorTest() throws IOException {
+        String message = errorMessage(HEADER + "X:Q:60:0\n");
+        Assert.assertTrue(message, message.startsWith("line 6: "));
+        Assert.assertTrue(message,
+                message.contains("IntersectionNotFoundException"));
+        message = errorMessage("2\n2\n1\nX\nY\nX:Y:60:0\nX:Y:50:0\n");
+        Assert.assertTrue(message, message.startsWith("line 7: "));
+        Assert.assertTrue(message, message.contains("IllegalStateException"));
+    }
+
+    @Test
+    public void fileClosedOnErrorTest() throws IOException {
+        Path descriptors = Paths.get("/proc/self/fd");
+        if (!Files.isDirectory(descriptors)) {
+            // open files can only be counted on Linux
+            return;
+        }
+        long before = countFiles(descriptors);
+        for (int i = 0; i < 100; i++) {
+            try {
+                NetworkInitialiser.loadNetwork("networks/twonewline.txt");
+                fail();
+            } catch (InvalidNetworkException expected) {
+                // the file should be closed before the exception escapes
+            }
+        }
+        Assert.assertTrue(countFiles(descriptors) < before + 100);
+    }
+
+    private long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package tms.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tms.route.Route;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.RouteNotFoundException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+public class NetworkRouterTest {
+
+    private double timeOf(Route route) {
+        return (1 + route.getCongestion() / 100.0) / route.getSpeed();
+    }
+
+    /* Travel times from one intersection to all others, by Bellman-Ford. */
+    private double[] allTravelTimes(Network network, int origin) {
+        double[] times = new double[network.getIntersectionCount()];
+        Arrays.fill(times, Double.POSITIVE_INFINITY);
+        times[origin] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < times.length; i++) {
+                for (Route route : network.getIncomingRoutes(i)) {
+                    int from = network.getIntersectionIndex(
+                            route.getFrom().getId());
+                    if (times[from] + timeOf(route) < times[i]) {
+                        times[i] = times[from] + timeOf(route);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return times;
+    }
+
+    @Test
+    public void demoTest() throws IOException, InvalidNetworkException,
+            IntersectionNotFoundException, RouteNotFoundException {
+        Network network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        NetworkRouter router = new NetworkRouter(network);
+        List<Route> path = router.findFastestPath("X", "Z");
+        Assert.assertEquals(2, path.size());
+        Assert.assertSame(network.getConnection("X", "Y"), path.get(0));
+        Assert.assertSame(network.getConnection("Y", "Z"), path.get(1));
+        Assert.assertEquals(List.of(network.getConnection("Z", "X")),
+                router.findShortestPath("Z", "X"));
+        Assert.assertTrue(router.findFastestPath("Y", "Y").isEmpty());
+        Assert.assertEquals(Double.POSITIVE_INFINITY,
+                router.getTravelTime("X", "W"), 0);
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void unreachableTest() throws IOException, InvalidNetworkException,
+            IntersectionNotFoundException, RouteNotFoundException {
+        Network network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        new NetworkRouter(network).findFastestPath("X", "W");
+    }
+
+    @Test
+    public void matchesReferenceTest() throws IOException,
+            InvalidNetworkException, IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkGenerator generator = new NetworkGenerator(
+                NetworkGenerator.Layout.RANDOM_GEOMETRIC, 300, 11);
+        generator.setSpeedSignProbability(0.5);
+        StringWriter writer = new StringWriter();
+        generator.write(writer);
+        Network network = NetworkInitialiser.loadNetwork(
+                new StringReader(writer.toString()));
+        NetworkRouter router = new NetworkRouter(network);
+        for (int origin = 0; origin < 300; origin += 37) {
+            double[] expected = allTravelTimes(network, origin);
+            for (int to = 0; to < 300; to++) {
+                String from = "I" + origin;
+                Assert.assertEquals(expected[network.getIntersectionIndex(
+                        "I" + to)], router.getTravelTime(from, "I" + to),
+                        1e-9);
+                if (expected[network.getIntersectionIndex("I" + to)]
+                        < Double.POSITIVE_INFINITY) {
+                    double total = 0;
+                    String at = from;
+                    for (Route route : router.findFastestPath(from,
+                            "I" + to)) {
+                        Assert.assertEquals(at, route.getFrom().getId());
+                        at = route.getTo().getId();
+                        total += timeOf(route);
+                    }
+                    Assert.assertEquals("I" + to, at);
+                    Assert.assertEquals(expected[network.getIntersectionIndex(
+                            "I" + to)], total, 1e-9);
+                }
+            }
+        }
+    }
+}
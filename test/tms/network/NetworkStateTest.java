@@ -0,0 +1,145 @@
+package tms.network;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.intersection.Intersection;
+import tms.route.Route;
+import tms.route.TrafficLight;
+import tms.route.TrafficSignal;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+
+public class NetworkStateTest {
+    private Network network;
+    private TimedItemManager manager;
+
+    @Before
+    public void setUp() throws IOException, InvalidNetworkException {
+        network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        manager = TimedItemManager.getTimedItemManager();
+    }
+
+    private void assertMatchesNetwork(NetworkState state)
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        Assert.assertEquals(manager.getTime(), state.getTime());
+        for (Intersection intersection : network.getIntersections()) {
+            for (Route route : intersection.getConnections()) {
+                String from = route.getFrom().getId();
+                String to = intersection.getId();
+                TrafficLight light = route.getTrafficLight();
+                Assert.assertEquals(light == null ? null : light.getSignal(),
+                        state.getSignal(from, to));
+                Assert.assertEquals(route.getSpeed(),
+                        state.getSpeed(from, to));
+                Assert.assertEquals(route.getCongestion(),
+                        state.getCongestion(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void advanceTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        manager.advance(3);
+        NetworkState state = NetworkState.of(network);
+        assertMatchesNetwork(state);
+        for (int second = 0; second < 50; second++) {
+            manager.oneSecond();
+            state = state.advance(1);
+            assertMatchesNetwork(state);
+        }
+        manager.advance(1000);
+        assertMatchesNetwork(state.advance(1000));
+    }
+
+    @Test
+    public void forkTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState live = NetworkState.of(network);
+        NetworkState fork = live.withSpeedLimit("Z", "Y", 60)
+                .withLightDuration("Y", 7);
+        Assert.assertEquals(80, live.getSpeed("Z", "Y"));
+        Assert.assertEquals(60, fork.getSpeed("Z", "Y"));
+        Assert.assertEquals(3, live.getLightDuration("Y"));
+        Assert.assertEquals(7, fork.getLightDuration("Y"));
+        Assert.assertEquals(80, network.getConnection("Z", "Y").getSpeed());
+        assertMatchesNetwork(live);
+    }
+
+    @Test
+    public void changesMatchNetworkTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        manager.advance(2);
+        NetworkState state = NetworkState.of(network)
+                .withReducedIncomingSpeedSigns("Y")
+                .withLightDuration("Y", 5);
+        network.findIntersection("Y").reduceIncomingSpeedSigns();
+        network.changeLightDuration("Y", 5);
+        assertMatchesNetwork(state);
+        for (int second = 0; second < 30; second++) {
+            manager.oneSecond();
+            state = state.advance(1);
+            assertMatchesNetwork(state);
+        }
+    }
+
+    @Test
+    public void keptStateTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState first = NetworkState.of(network);
+        manager.advance(4);
+        network.setSpeedLimit("Z", "Y", 90);
+        network.changeLightDuration("Y", 5);
+        network.reduceIncomingSpeedSigns("Y");
+        Assert.assertEquals(80, first.getSpeed("Z", "Y"));
+        Assert.assertEquals(3, first.getLightDuration("Y"));
+        assertMatchesNetwork(NetworkState.of(network));
+        for (int second = 0; second < 40; second++) {
+            manager.oneSecond();
+            assertMatchesNetwork(NetworkState.of(network));
+        }
+        network.addSpeedSign("X", "Y", 40);
+        assertMatchesNetwork(NetworkState.of(network));
+    }
+
+    @Test
+    public void directChangeTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState.of(network);
+        // changes made to the parts of the network rather than through it
+        network.getConnection("Z", "Y").setSpeedLimit(60);
+        assertMatchesNetwork(NetworkState.of(network));
+        network.findIntersection("Y").getTrafficLights().setDuration(7);
+        assertMatchesNetwork(NetworkState.of(network));
+        network.findIntersection("Y").setLightDuration(4);
+        assertMatchesNetwork(NetworkState.of(network));
+    }
+
+    @Test
+    public void congestionAheadTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState state = NetworkState.of(network);
+        NetworkState ahead = state.advance(500);
+        manager.advance(500);
+        assertMatchesNetwork(ahead);
+        Assert.assertEquals(network.getCongestion("Y", "Z"),
+                ahead.getCongestion("Y", "Z"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void noSpeedSignTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState.of(network).withSpeedLimit("X", "Y", 30);
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void missingRouteTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        NetworkState.of(network).getSpeed("W", "X");
+    }
+}
@@ -0,0 +1,301 @@
+package tms.network;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.route.Route;
+import tms.sensors.DemoVehicleCount;
+import tms.util.DuplicateSensorException;
+import tms.util.IntersectionNotFoundException;
+import tms.util.InvalidNetworkException;
+import tms.util.ParallelTickEngine;
+import tms.util.RouteNotFoundException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class NetworkTest {
+    private Network network;
+    private Network copy;
+
+    @Before
+    public void setUp() throws IOException, InvalidNetworkException {
+        network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        copy = NetworkInitialiser.loadNetwork("networks/demo.txt");
+    }
+
+    @Test
+    public void lookupOrNullTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        Assert.assertSame(network.findIntersection("Y"),
+                network.findIntersectionOrNull("Y"));
+        Assert.assertNull(network.findIntersectionOrNull("Q"));
+        Assert.assertSame(network.getConnection("X", "Y"),
+                network.getConnectionOrNull("X", "Y"));
+        // both intersections exist, but no route joins them
+        Assert.assertNull(network.getConnectionOrNull("W", "X"));
+        Assert.assertNull(network.getConnectionOrNull("X", "Z"));
+        Assert.assertNull(network.getConnectionOrNull("Q", "X"));
+        Assert.assertNull(network.getConnectionOrNull("X", "Q"));
+    }
+
+    @Test(expected = IntersectionNotFoundException.class)
+    public void findIntersectionMissingTest()
+            throws IntersectionNotFoundException {
+        network.findIntersection("Q");
+    }
+
+    @Test(expected = IntersectionNotFoundException.class)
+    public void getConnectionMissingOriginTest()
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        network.getConnection("Q", "X");
+    }
+
+    @Test(expected = IntersectionNotFoundException.class)
+    public void getConnectionMissingDestinationTest()
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        network.getConnection("X", "Q");
+    }
+
+    @Test(expected = RouteNotFoundException.class)
+    public void getConnectionMissingRouteTest()
+            throws IntersectionNotFoundException, RouteNotFoundException {
+        network.getConnection("X", "Z");
+    }
+
+    @Test
+    public void hashCodeTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        Assert.assertEquals(network.hashCode(), copy.hashCode());
+        Route route = network.getConnection("Z", "Y");
+        Route copyRoute = copy.getConnection("Z", "Y");
+        Assert.assertEquals(route.hashCode(), copyRoute.hashCode());
+
+        int routeHash = route.hashCode();
+        network.setSpeedLimit("Z", "Y", 70);
+        Assert.assertNotEquals(routeHash, route.hashCode());
+        copy.setSpeedLimit("Z", "Y", 70);
+        Assert.assertEquals(route.hashCode(), copyRoute.hashCode());
+
+        int networkHash = network.hashCode();
+        network.changeLightDuration("Y", 5);
+        Assert.assertNotEquals(networkHash, network.hashCode());
+        copy.changeLightDuration("Y", 5);
+        Assert.assertEquals(network.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void directChangeHashCodeTest() throws IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        // each change is made to a part of the network, not through it
+        int hash = network.hashCode();
+        network.getConnection("Z", "Y").setSpeedLimit(70);
+        Assert.assertNotEquals(hash, network.hashCode());
+        copy.setSpeedLimit("Z", "Y", 70);
+        Assert.assertEquals(copy.hashCode(), network.hashCode());
+
+        hash = network.hashCode();
+        network.getConnection("X", "Y").addSpeedSign(50);
+        Assert.assertNotEquals(hash, network.hashCode());
+
+        hash = network.hashCode();
+        network.getConnection("X", "Y").addSensor(
+                new DemoVehicleCount(new int[] {4}, 2));
+        Assert.assertNotEquals(hash, network.hashCode());
+
+        hash = network.hashCode();
+        network.findIntersection("Y").setLightDuration(6);
+        Assert.assertNotEquals(hash, network.hashCode());
+
+        hash = network.hashCode();
+        network.findIntersection("Y").getTrafficLights().setDuration(8);
+        Assert.assertNotEquals(hash, network.hashCode());
+    }
+
+    @Test
+    public void equalsAfterDirectChangeTest()
+            throws IntersectionNotFoundException, RouteNotFoundException,
+            IOException, InvalidNetworkException {
+        // cache the hash, then change a route without going through the
+        // network, as a fresh network is changed
+        network.hashCode();
+        network.getConnection("Z", "Y").setSpeedLimit(70);
+        Network fresh = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        fresh.getConnection("Z", "Y").setSpeedLimit(70);
+        Assert.assertEquals(fresh.toString(), network.toString());
+        Assert.assertEquals(fresh.hashCode(), network.hashCode());
+        Assert.assertEquals(network, fresh);
+        Assert.assertEquals(fresh, network);
+
+        copy.hashCode();
+        Assert.assertNotEquals(network, copy);
+        copy.getConnection("Z", "Y").setSpeedLimit(70);
+        Assert.assertEquals(network, copy);
+    }
+
+    @Test
+    public void equalsTest() throws IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        Assert.assertEquals(network, copy);
+        copy.setSpeedLimit("Z", "Y", 70);
+        Assert.assertNotEquals(network, copy);
+        network.setSpeedLimit("Z", "Y", 70);
+        Assert.assertEquals(network, copy);
+
+        // same intersections, but a sensor only on one route
+        copy.addSensor("X", "Y", new DemoVehicleCount(new int[] {1, 2}, 3));
+        Assert.assertNotEquals(network.hashCode(), copy.hashCode());
+        Assert.assertNotEquals(network, copy);
+        network.addSensor("X", "Y", new DemoVehicleCount(new int[] {1, 2}, 3));
+        Assert.assertEquals(network, copy);
+
+        // same intersections and route count, different routes
+        network.connectIntersections("W", "X", 60);
+        copy.connectIntersections("X", "W", 60);
+        Assert.assertNotEquals(network, copy);
+    }
+
+    @Test
+    public void hashCodeCacheTest() throws IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        int hash = network.hashCode();
+        Assert.assertEquals(hash, network.hashCode());
+
+        network.reduceIncomingSpeedSigns("Y");
+        Assert.assertEquals(70, network.getConnection("Z", "Y").getSpeed());
+        Assert.assertNotEquals(hash, network.hashCode());
+        Assert.assertNotEquals(network, copy);
+        copy.reduceIncomingSpeedSigns("Y");
+        Assert.assertEquals(copy.hashCode(), network.hashCode());
+        Assert.assertEquals(network, copy);
+
+        hash = network.hashCode();
+        network.addSpeedSign("X", "Y", 50);
+        Assert.assertNotEquals(hash, network.hashCode());
+        hash = network.hashCode();
+        network.addSensor("X", "Y", new DemoVehicleCount(new int[] {4}, 2));
+        Assert.assertNotEquals(hash, network.hashCode());
+    }
+
+    @Test
+    public void equalsManyTest() throws IOException,
+            InvalidNetworkException, IntersectionNotFoundException,
+            RouteNotFoundException {
+        List<Network> scenarios = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Network scenario = NetworkInitialiser.loadNetwork(
+                    "networks/demo.txt");
+            scenario.setSpeedLimit("Z", "Y", 60 + i % 5);
+            scenarios.add(scenario);
+        }
+        int equalPairs = 0;
+        for (Network first : scenarios) {
+            for (Network second : scenarios) {
+                if (first.equals(second)) {
+                    Assert.assertEquals(first.hashCode(), second.hashCode());
+                    equalPairs++;
+                }
+            }
+        }
+        // five distinct speed limits, four networks with each
+        Assert.assertEquals(5 * 4 * 4, equalPairs);
+    }
+
+    @Test
+    public void routeIndicesTest() throws IntersectionNotFoundException,
+            RouteNotFoundException {
+        Map<String, Integer> indices = network.getRouteIndices();
+        Assert.assertEquals(network.getRouteCount(), indices.size());
+        int expected = 0;
+        for (Map.Entry<String, Integer> entry : indices.entrySet()) {
+            Assert.assertEquals(expected++, (int) entry.getValue());
+            String[] ends = entry.getKey().split(":");
+            Assert.assertSame(network.getConnection(ends[0], ends[1]),
+                    network.getRoute(entry.getValue()));
+        }
+        Assert.assertSame(indices, network.getRouteIndices());
+
+        network.connectIntersections("W", "X", 60);
+        Assert.assertEquals(indices.size() + 1,
+                network.getRouteIndices().size());
+        Assert.assertSame(network.getConnection("W", "X"), network.getRoute(
+                network.getRouteIndices().get("W:X")));
+    }
+
+    @Test
+    public void batchCongestionTest() throws IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        network.addSensor("X", "Y", new DemoVehicleCount(new int[] {1, 9}, 3));
+        int[] congestion = new int[network.getRouteCount()];
+        byte[] bytes = new byte[network.getRouteCount()];
+        network.getCongestion(congestion);
+        network.getCongestion(bytes);
+        for (Map.Entry<String, Integer> entry
+                : network.getRouteIndices().entrySet()) {
+            String[] ends = entry.getKey().split(":");
+            int actual = network.getCongestion(ends[0], ends[1]);
+            Assert.assertEquals(actual, congestion[entry.getValue()]);
+            Assert.assertEquals(actual, bytes[entry.getValue()]);
+        }
+    }
+
+    @Test
+    public void parallelBatchCongestionTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        AtomicInteger workers = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2, forkJoinPool -> {
+            workers.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                    .newThread(forkJoinPool);
+        }, null, false);
+        try {
+            TimedItemManager manager = new TimedItemManager();
+            manager.setTickEngine(new ParallelTickEngine(pool,
+                    ParallelTickEngine.DEFAULT_SHARD_SIZE));
+            checkBatchCongestion(manager);
+            Assert.assertTrue(workers.get() > 0);
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void sequentialBatchCongestionTest() throws IOException,
+            InvalidNetworkException {
+        checkBatchCongestion(new TimedItemManager());
+    }
+
+    private void checkBatchCongestion(TimedItemManager manager)
+            throws IOException, InvalidNetworkException {
+        NetworkGenerator generator = new NetworkGenerator(
+                NetworkGenerator.Layout.GRID, 3000, 5);
+        StringWriter writer = new StringWriter();
+        generator.write(writer);
+        Network large = NetworkInitialiser.loadNetwork(
+                new StringReader(writer.toString()), null, manager);
+        Assert.assertTrue(large.getRouteCount()
+                > 2 * Network.CONGESTION_SHARD_SIZE);
+        int[] congestion = new int[large.getRouteCount() + 1];
+        congestion[large.getRouteCount()] = -1;
+        large.getCongestion(congestion);
+        for (int i = 0; i < large.getRouteCount(); i++) {
+            Assert.assertEquals(large.getRoute(i).getCongestion(),
+                    congestion[i]);
+        }
+        Assert.assertEquals(-1, congestion[large.getRouteCount()]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void batchCongestionTooShortTest() {
+        network.getCongestion(new int[network.getRouteCount() - 1]);
+    }
+}
@@ -0,0 +1,123 @@
+package tms.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tms.intersection.Intersection;
+import tms.route.Route;
+import tms.util.InvalidNetworkException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class NetworkWriterTest {
+
+    private String write(Network network) throws IOException {
+        StringWriter output = new StringWriter();
+        new NetworkWriter(output).write(network);
+        return output.toString();
+    }
+
+    /*
+     * Builds the text of a network the way Network.toString() did before it
+     * used a NetworkWriter: intersections sorted by ID, then routes sorted by
+     * their "from:to" ID.
+     */
+    private String reference(Network network) {
+        String separator = System.lineSeparator();
+        StringBuilder result = new StringBuilder();
+        result.append(network.getIntersectionCount()).append(separator)
+                .append(network.getRouteCount()).append(separator)
+                .append(network.getYellowTime()).append(separator);
+        Map<String, Route> routes = new TreeMap<>();
+        Map<String, Intersection> intersections = new TreeMap<>();
+        for (Intersection intersection : network.getIntersections()) {
+            intersections.put(intersection.getId(), intersection);
+        }
+        for (Intersection intersection : intersections.values()) {
+            result.append(intersection).append(separator);
+            for (Route route : network.getIncomingRoutes(
+                    network.getIntersectionIndex(intersection.getId()))) {
+                routes.put(route.getFrom().getId() + ":"
+                        + route.getTo().getId(), route);
+            }
+        }
+        for (Route route : routes.values()) {
+            result.append(route).append(separator);
+        }
+        return result.toString();
+    }
+
+    /*
+     * Loads every network file in networks/ that is valid, and a generated
+     * network of each layout.
+     */
+    private List<Network> networks() throws IOException,
+            InvalidNetworkException {
+        List<Network> networks = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                Paths.get("networks"), "*.txt")) {
+            for (Path file : files) {
+                try {
+                    networks.add(NetworkInitialiser.loadNetwork(
+                            file.toString()));
+                } catch (InvalidNetworkException e) {
+                    // most sample files are invalid on purpose
+                }
+            }
+        }
+        Assert.assertFalse(networks.isEmpty());
+        for (NetworkGenerator.Layout layout
+                : NetworkGenerator.Layout.values()) {
+            NetworkGenerator generator = new NetworkGenerator(layout, 150, 7);
+            generator.setSensorsPerRoute(2);
+            StringWriter writer = new StringWriter();
+            generator.write(writer);
+            networks.add(NetworkInitialiser.loadNetwork(
+                    new StringReader(writer.toString())));
+        }
+        return networks;
+    }
+
+    @Test
+    public void sameAsToStringTest() throws IOException,
+            InvalidNetworkException {
+        for (Network network : networks()) {
+            String written = write(network);
+            Assert.assertEquals(reference(network), written);
+            Assert.assertEquals(network.toString(), written);
+        }
+    }
+
+    @Test
+    public void roundTripTest() throws IOException, InvalidNetworkException {
+        for (Network network : networks()) {
+            String written = write(network);
+            Network loaded = NetworkInitialiser.loadNetwork(
+                    new StringReader(written));
+            Assert.assertEquals(network, loaded);
+            Assert.assertEquals(written, write(loaded));
+        }
+    }
+
+    @Test
+    public void demoFileTest() throws IOException, InvalidNetworkException {
+        // the demo file is already in the written order, apart from comments
+        StringBuilder expected = new StringBuilder();
+        for (String line : Files.readAllLines(Paths.get("networks/demo.txt"))) {
+            if (!line.startsWith(";")) {
+                expected.append(line).append(System.lineSeparator());
+            }
+        }
+        Assert.assertEquals(expected.toString(),
+                write(NetworkInitialiser.loadNetwork("networks/demo.txt")));
+    }
+}
@@ -0,0 +1,170 @@
+package tms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.intersection.Intersection;
+import tms.route.Route;
+import tms.simulation.SimulationCore;
+import tms.util.DuplicateSensorException;
+import tms.util.TimedItemManager;
+
+import java.util.Arrays;
+
+public class DemoSensorTest {
+    private int[] data = {5, 2, 4, 4, 1, 5, 2, 7};
+    private DemoPressurePad pressurePad;
+    private DemoSpeedCamera speedCamera;
+    private DemoVehicleCount vehicleCount;
+
+    @Before
+    public void setUp() {
+        pressurePad = new DemoPressurePad(data, 5);
+        speedCamera = new DemoSpeedCamera(data, 6);
+        vehicleCount = new DemoVehicleCount(data, 3);
+    }
+
+    @Test
+    public void getValueAtTest() {
+        for (long seconds = 0; seconds < 50; seconds++) {
+            Assert.assertEquals(pressurePad.countTraffic(),
+                    pressurePad.getValueAt(seconds));
+            Assert.assertEquals(speedCamera.getCongestion(),
+                    speedCamera.getCongestionAt(seconds));
+            Assert.assertEquals(vehicleCount.getCongestion(),
+                    vehicleCount.getCongestionAt(seconds));
+            pressurePad.oneSecond();
+            speedCamera.oneSecond();
+            vehicleCount.oneSecond();
+        }
+        Assert.assertEquals(data[(int) (12345678901L % data.length)],
+                pressurePad.getValueAt(12345678901L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTimeTest() {
+        pressurePad.getValueAt(-1);
+    }
+
+    @Test
+    public void advanceTest() {
+        pressurePad.advance(3);
+        Assert.assertEquals(4, pressurePad.countTraffic());
+        pressurePad.advance(8_000_000_005L);
+        Assert.assertEquals(data[(int) (8_000_000_008L % data.length)],
+                pressurePad.countTraffic());
+        pressurePad.oneSecond();
+        Assert.assertEquals(data[(int) (8_000_000_009L % data.length)],
+                pressurePad.countTraffic());
+    }
+
+    @Test
+    public void secondsUntilChangeTest() {
+        pressurePad.advance(2);
+        Assert.assertEquals(2, pressurePad.secondsUntilChange());
+        DemoPressurePad constant = new DemoPressurePad(new int[] {3, 3}, 5);
+        Assert.assertEquals(DemoSensor.NEVER, constant.secondsUntilChange());
+    }
+
+    @Test
+    public void storeBackedSensorTest() {
+        SensorDataStore store = new SensorDataStore(10);
+        new DemoVehicleCount(store, new int[] {9, 9, 9}, 4);
+        DemoSpeedCamera stored = new DemoSpeedCamera(store, data, 6);
+        Assert.assertEquals(speedCamera, stored);
+        Assert.assertEquals(speedCamera.toString(), stored.toString());
+        Assert.assertArrayEquals(data, stored.getData());
+        Assert.assertEquals(data.length + 3, store.size());
+        for (int second = 0; second < 30; second++) {
+            Assert.assertEquals(speedCamera.getCongestion(),
+                    stored.getCongestion());
+            Assert.assertEquals(speedCamera.secondsUntilChange(),
+                    stored.secondsUntilChange());
+            speedCamera.oneSecond();
+            stored.oneSecond();
+        }
+    }
+
+    @Test
+    public void storeBackedPrefixTest() {
+        SensorDataStore store = new SensorDataStore(10);
+        int[] buffer = Arrays.copyOf(data, data.length + 5);
+        DemoPressurePad stored = new DemoPressurePad(store, buffer,
+                data.length, 5, new TimedItemManager());
+        Assert.assertEquals(data.length, store.size());
+        Assert.assertArrayEquals(data, stored.getData());
+        Assert.assertEquals(pressurePad, stored);
+        Assert.assertEquals(pressurePad.hashCode(), stored.hashCode());
+    }
+
+    @Test
+    public void routeCongestionUpdatesTest() throws DuplicateSensorException {
+        Route route = new Route("from", new Intersection("to"), 60);
+        route.addSensor(pressurePad);
+        for (int second = 0; second < 20; second++) {
+            Assert.assertEquals(pressurePad.getCongestion(),
+                    route.getCongestion());
+            pressurePad.oneSecond();
+        }
+        route.addSensor(speedCamera);
+        Assert.assertEquals(Math.round((pressurePad.getCongestion()
+                + speedCamera.getCongestion()) / 2f), route.getCongestion());
+    }
+
+    @Test
+    public void dataCopiedTest() {
+        int[] values = {1, 9, 1, 9};
+        TimedItemManager manager = new TimedItemManager();
+        DemoVehicleCount count = new DemoVehicleCount(values, 5, manager);
+        int hash = count.hashCode();
+        int[] congestion = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            congestion[i] = count.getCongestionAt(i);
+        }
+        // writing into the caller's array does not change the sensor
+        Arrays.fill(values, 3);
+        Assert.assertArrayEquals(new int[] {1, 9, 1, 9}, count.getData());
+        Assert.assertEquals(hash, count.hashCode());
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(congestion[i], count.getCongestionAt(i));
+            Assert.assertEquals(congestion[i], count.getCongestion());
+            Assert.assertEquals(i % 2 == 0 ? 1 : 9, count.countTraffic());
+            manager.oneSecond();
+        }
+        Assert.assertEquals(count,
+                new DemoVehicleCount(new int[] {1, 9, 1, 9}, 5, manager));
+    }
+
+    @Test
+    public void congestionSeriesTest() {
+        TimedItemManager manager = new TimedItemManager();
+        DemoSpeedCamera camera = new DemoSpeedCamera(data, 6, manager);
+        DemoVehicleCount count = new DemoVehicleCount(data, 3, manager);
+        for (int i = 0; i < 20; i++) {
+            if (i == 10) {
+                camera.bindTo(new SimulationCore(manager));
+            }
+            Assert.assertEquals(camera.calculateCongestion(
+                    camera.averageSpeed()), camera.getCongestion());
+            Assert.assertEquals(count.calculateCongestion(
+                    count.countTraffic()), count.getCongestion());
+            manager.advance(i % 3);
+        }
+        for (int value = 0; value <= 100; value++) {
+            int congestion = camera.calculateCongestion(value);
+            Assert.assertTrue(congestion >= 0 && congestion <= 100);
+        }
+    }
+
+    @Test
+    public void hashCodeTest() {
+        Assert.assertEquals(new DemoPressurePad(data, 5).hashCode(),
+                pressurePad.hashCode());
+        Assert.assertEquals(new DemoPressurePad(new SensorDataStore(), data, 5)
+                .hashCode(), pressurePad.hashCode());
+        Assert.assertNotEquals(new DemoVehicleCount(data, 5).hashCode(),
+                pressurePad.hashCode());
+        Assert.assertNotEquals(new DemoPressurePad(data, 6).hashCode(),
+                pressurePad.hashCode());
+    }
+}
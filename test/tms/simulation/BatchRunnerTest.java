@@ -0,0 +1,58 @@
+package tms.simulation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class BatchRunnerTest {
+    private Network network;
+    private StringWriter output;
+    private BatchRunner runner;
+
+    @Before
+    public void setUp() throws IOException, InvalidNetworkException {
+        network = NetworkInitialiser.loadNetwork("networks/demo.txt", null,
+                new TimedItemManager());
+        output = new StringWriter();
+        runner = new BatchRunner(network, output);
+    }
+
+    @Test
+    public void outputTest() throws IOException {
+        runner.run(25, 10);
+        String[] lines = output.toString().split(System.lineSeparator());
+        Assert.assertEquals(BatchRunner.HEADER, lines[0]);
+        // output at 0, 10, 20 and the final 25 seconds
+        Assert.assertEquals(1 + 4 * network.getRouteCount(), lines.length);
+        Assert.assertTrue(lines[1].startsWith("0,"));
+        Assert.assertTrue(lines[lines.length - 1].startsWith("25,"));
+        for (int i = 1; i < lines.length; i++) {
+            Assert.assertEquals(4, lines[i].split(",").length);
+        }
+        Assert.assertEquals(25, network.getTimedItemManager().getTime());
+    }
+
+    @Test
+    public void zeroSecondsTest() throws IOException {
+        runner.run(0, 1);
+        Assert.assertEquals(1 + network.getRouteCount(), output.toString()
+                .split(System.lineSeparator()).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeSecondsTest() throws IOException {
+        runner.run(-1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroIntervalTest() throws IOException {
+        runner.run(10, 0);
+    }
+}
@@ -0,0 +1,97 @@
+package tms.simulation;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.intersection.Intersection;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.route.Route;
+import tms.route.TrafficLight;
+import tms.route.TrafficSignal;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.List;
+
+public class SimulationCoreTest {
+    private Network plain;
+    private Network bound;
+    private TimedItemManager manager;
+
+    @Before
+    public void setUp() throws IOException, InvalidNetworkException {
+        plain = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        bound = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        manager = TimedItemManager.getTimedItemManager();
+    }
+
+    private TrafficSignal signalOf(Route route) {
+        TrafficLight light = route.getTrafficLight();
+        return light == null ? null : light.getSignal();
+    }
+
+    private void assertSameState() {
+        List<Intersection> expected = plain.getIntersections();
+        List<Intersection> actual = bound.getIntersections();
+        for (int i = 0; i < expected.size(); i++) {
+            List<Route> expectedRoutes = expected.get(i).getConnections();
+            List<Route> actualRoutes = actual.get(i).getConnections();
+            for (int j = 0; j < expectedRoutes.size(); j++) {
+                Route expectedRoute = expectedRoutes.get(j);
+                Route actualRoute = actualRoutes.get(j);
+                Assert.assertEquals(signalOf(expectedRoute),
+                        signalOf(actualRoute));
+                Assert.assertEquals(expectedRoute.getCongestion(),
+                        actualRoute.getCongestion());
+            }
+        }
+    }
+
+    @Test
+    public void oneSecondTest() {
+        manager.advance(7);
+        new SimulationCore().bind(bound);
+        assertSameState();
+        for (int second = 0; second < 100; second++) {
+            manager.oneSecond();
+            assertSameState();
+        }
+    }
+
+    @Test
+    public void advanceTest() {
+        new SimulationCore().bind(bound);
+        for (long seconds = 1; seconds < 1000; seconds *= 3) {
+            manager.advance(seconds);
+            assertSameState();
+        }
+    }
+
+    @Test
+    public void setDurationTest() {
+        new SimulationCore().bind(bound);
+        for (int second = 0; second < 40; second++) {
+            manager.oneSecond();
+            if (second % 9 == 0) {
+                for (int i = 0; i < plain.getIntersections().size(); i++) {
+                    Intersection expected = plain.getIntersections().get(i);
+                    if (expected.hasTrafficLights()) {
+                        int duration = 5 + second % 4;
+                        expected.getTrafficLights().setDuration(duration);
+                        bound.getIntersections().get(i).getTrafficLights()
+                                .setDuration(duration);
+                    }
+                }
+            }
+            assertSameState();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void bindTwiceTest() {
+        new SimulationCore().bind(bound);
+        new SimulationCore().bind(bound);
+    }
+}
@@ -0,0 +1,160 @@
+package tms.simulation;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.route.Route;
+import tms.route.TrafficLight;
+import tms.util.InvalidNetworkException;
+import tms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SnapshotPublisherTest {
+    private Network network;
+    private TimedItemManager manager;
+    private SnapshotPublisher publisher;
+
+    @Before
+    public void setUp() throws IOException, InvalidNetworkException {
+        network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        manager = TimedItemManager.getTimedItemManager();
+        publisher = new SnapshotPublisher(network);
+    }
+
+    @After
+    public void tearDown() {
+        publisher.close();
+    }
+
+    private void assertMatchesNetwork(NetworkSnapshot snapshot) {
+        Assert.assertEquals(network.getRouteCount(),
+                snapshot.getRouteCount());
+        Assert.assertEquals(manager.getTime(), snapshot.getTime());
+        for (int i = 0; i < snapshot.getRouteCount(); i++) {
+            String[] ends = snapshot.getRouteId(i).split(":");
+            Route route = network.getConnectionOrNull(ends[0], ends[1]);
+            Assert.assertEquals(i, snapshot.getRouteIndex(ends[0], ends[1]));
+            Assert.assertEquals(route.getCongestion(),
+                    snapshot.getCongestion(i));
+            Assert.assertEquals(route.getSpeed(), snapshot.getSpeed(i));
+            TrafficLight light = route.getTrafficLight();
+            Assert.assertEquals(light == null ? null : light.getSignal(),
+                    snapshot.getSignal(i));
+        }
+    }
+
+    @Test
+    public void publishedEachTickTest() {
+        for (int second = 0; second < 30; second++) {
+            manager.oneSecond();
+            assertMatchesNetwork(publisher.getSnapshot());
+        }
+        manager.advance(45);
+        assertMatchesNetwork(publisher.getSnapshot());
+    }
+
+    @Test
+    public void snapshotsAreImmutableTest() {
+        NetworkSnapshot first = publisher.getSnapshot();
+        int route = first.getRouteIndex("Y", "X");
+        int congestion = first.getCongestion(route);
+        for (int second = 0; second < 20; second++) {
+            manager.oneSecond();
+        }
+        NetworkSnapshot last = publisher.getSnapshot();
+        Assert.assertEquals(congestion, first.getCongestion(route));
+        Assert.assertTrue(last.getVersion() > first.getVersion());
+        Assert.assertEquals(route, last.getRouteIndex("Y", "X"));
+    }
+
+    @Test
+    public void indexLookupTest() {
+        NetworkSnapshot snapshot = publisher.getSnapshot();
+        int from = snapshot.getIntersectionIndex("Y");
+        int to = snapshot.getIntersectionIndex("X");
+        Assert.assertEquals(network.getIntersectionIndex("Y"), from);
+        Assert.assertEquals(snapshot.getRouteIndex("Y", "X"),
+                snapshot.getRouteIndex(from, to));
+        Assert.assertEquals(-1, snapshot.getRouteIndex(to, to));
+        Assert.assertEquals(-1, snapshot.getIntersectionIndex("Q"));
+    }
+
+    @Test
+    public void concurrentReaderTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        int seconds = 2000;
+        // congestion of every route at each second, from an identical
+        // network simulated on its own
+        TimedItemManager referenceManager = new TimedItemManager();
+        Network reference = NetworkInitialiser.loadNetwork(
+                "networks/demo.txt", null, referenceManager);
+        int[][] expected = new int[seconds + 1][reference.getRouteCount()];
+        for (int second = 0; second <= seconds; second++) {
+            reference.getCongestion(expected[second]);
+            referenceManager.oneSecond();
+        }
+
+        TimedItemManager tickManager = new TimedItemManager();
+        Network ticked = NetworkInitialiser.loadNetwork("networks/demo.txt",
+                null, tickManager);
+        SnapshotPublisher tickPublisher = new SnapshotPublisher(ticked);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicInteger reads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            long lastVersion = 0;
+            long lastTime = -1;
+            while (!done.get() && failure.get() == null) {
+                NetworkSnapshot snapshot = tickPublisher.getSnapshot();
+                if (snapshot.getVersion() < lastVersion
+                        || snapshot.getTime() < lastTime) {
+                    failure.set("went back to version "
+                            + snapshot.getVersion());
+                }
+                lastVersion = snapshot.getVersion();
+                lastTime = snapshot.getTime();
+                int[] congestion = expected[(int) snapshot.getTime()];
+                for (int i = 0; i < snapshot.getRouteCount(); i++) {
+                    if (snapshot.getCongestion(i) != congestion[i]) {
+                        failure.set("route " + i + " torn at second "
+                                + snapshot.getTime());
+                    }
+                }
+                reads.incrementAndGet();
+            }
+        });
+        reader.start();
+        for (int second = 0; second < seconds; second++) {
+            tickManager.oneSecond();
+        }
+        while (reads.get() < 100 && failure.get() == null) {
+            Thread.yield();
+        }
+        done.set(true);
+        reader.join();
+        tickPublisher.close();
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(seconds, tickPublisher.getSnapshot().getTime());
+    }
+
+    @Test
+    public void missingRouteTest() {
+        Assert.assertEquals(-1,
+                publisher.getSnapshot().getRouteIndex("W", "X"));
+    }
+
+    @Test
+    public void closeTest() {
+        publisher.close();
+        NetworkSnapshot snapshot = publisher.getSnapshot();
+        manager.oneSecond();
+        Assert.assertSame(snapshot, publisher.getSnapshot());
+    }
+}
@@ -0,0 +1,100 @@
+package tms.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tms.network.NetworkBinaryFormat;
+import tms.network.NetworkInitialiser;
+import tms.util.InvalidNetworkException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+public class SweepRunnerTest {
+
+    private String run(SweepRunner sweep)
+            throws IOException, InterruptedException {
+        StringWriter output = new StringWriter();
+        sweep.run(120, 10, output);
+        return output.toString();
+    }
+
+    private SweepRunner demoSweep()
+            throws IOException, InvalidNetworkException {
+        return demoSweep("networks/demo.txt");
+    }
+
+    private SweepRunner demoSweep(String filename)
+            throws IOException, InvalidNetworkException {
+        SweepRunner sweep = new SweepRunner(filename);
+        sweep.addLightDurations("Y", 4, 9);
+        sweep.addSpeedLimits("Z", "Y", 40, 80);
+        sweep.addYellowTimes(1, 2);
+        return sweep;
+    }
+
+    @Test
+    public void tableTest() throws IOException, InvalidNetworkException,
+            InterruptedException {
+        SweepRunner sweep = demoSweep();
+        Assert.assertEquals(8, sweep.getVariantCount());
+        String[] lines = run(sweep).split(System.lineSeparator());
+        Assert.assertEquals(9, lines.length);
+        Assert.assertEquals("variant,lights:Y,speed:Z:Y,yellow,"
+                + SweepRunner.SUMMARY_HEADER, lines[0]);
+        Assert.assertTrue(lines[1].startsWith("0,4,40,1,"));
+        Assert.assertTrue(lines[8].startsWith("7,9,80,2,"));
+        Assert.assertEquals(8, lines[8].split(",").length);
+    }
+
+    @Test
+    public void threadsDoNotChangeResultsTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        SweepRunner sequential = demoSweep();
+        sequential.setThreads(1);
+        SweepRunner parallel = demoSweep();
+        parallel.setThreads(4);
+        Assert.assertEquals(run(sequential), run(parallel));
+    }
+
+    @Test
+    public void fileReadOnceTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        String expected = run(demoSweep());
+        Path text = Files.createTempFile("sweep", ".txt");
+        Path snapshot = Files.createTempFile("sweep", ".tmsn");
+        try {
+            Files.copy(Paths.get("networks/demo.txt"), text,
+                    StandardCopyOption.REPLACE_EXISTING);
+            NetworkBinaryFormat.write(NetworkInitialiser.loadNetwork(
+                    "networks/demo.txt"), snapshot);
+            SweepRunner fromText = demoSweep(text.toString());
+            SweepRunner fromSnapshot = demoSweep(snapshot.toString());
+            // variants are loaded from memory, not from the files
+            Files.delete(text);
+            Files.delete(snapshot);
+            Assert.assertEquals(expected, run(fromText));
+            Assert.assertEquals(expected, run(fromSnapshot));
+        } finally {
+            Files.deleteIfExists(text);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noLightsTest() throws IOException, InvalidNetworkException {
+        new SweepRunner("networks/demo.txt").addLightDurations("X", 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void durationBelowYellowTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        SweepRunner sweep = new SweepRunner("networks/demo.txt");
+        sweep.addLightDurations("Y", 3);
+        sweep.addYellowTimes(5);
+        run(sweep);
+    }
+}
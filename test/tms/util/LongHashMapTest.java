@@ -0,0 +1,64 @@
+package tms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class LongHashMapTest {
+
+    @Test
+    public void putGetTest() {
+        LongHashMap<String> map = new LongHashMap<>();
+        Assert.assertNull(map.get(0));
+        Assert.assertNull(map.put(0, "zero"));
+        Assert.assertNull(map.put(-1, "minus one"));
+        Assert.assertEquals("zero", map.get(0));
+        Assert.assertEquals("minus one", map.get(-1));
+        Assert.assertEquals("zero", map.put(0, "nought"));
+        Assert.assertEquals("nought", map.get(0));
+        Assert.assertEquals(2, map.size());
+    }
+
+    @Test
+    public void packedPairsTest() {
+        // grid-style index pairs, which collide under Long.hashCode
+        LongHashMap<Integer> map = new LongHashMap<>();
+        Map<Long, Integer> reference = new HashMap<>();
+        int value = 0;
+        for (long from = 0; from < 100; from++) {
+            for (long to = from - 2; to <= from + 2; to++) {
+                long key = from << 32 | (to & 0xffffffffL);
+                map.put(key, value);
+                reference.put(key, value);
+                value++;
+            }
+        }
+        Assert.assertEquals(reference.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : reference.entrySet()) {
+            Assert.assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        Assert.assertNull(map.get(1L << 32 | 50));
+    }
+
+    @Test
+    public void randomKeysTest() {
+        LongHashMap<Long> map = new LongHashMap<>();
+        Random random = new Random(3);
+        long[] keys = new long[10000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+            map.put(keys[i], keys[i]);
+        }
+        for (long key : keys) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValueTest() {
+        new LongHashMap<String>().put(1, null);
+    }
+}
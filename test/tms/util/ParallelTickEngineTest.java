@@ -0,0 +1,90 @@
+package tms.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import tms.intersection.Intersection;
+import tms.intersection.IntersectionLights;
+import tms.route.Route;
+import tms.sensors.DemoPressurePad;
+import tms.sensors.DemoSpeedCamera;
+import tms.sensors.Sensor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelTickEngineTest {
+    private List<TimedItem> sequentialItems;
+    private List<TimedItem> parallelItems;
+    private List<Route> sequentialRoutes;
+    private List<Route> parallelRoutes;
+    private List<Sensor> sequentialSensors;
+    private List<Sensor> parallelSensors;
+
+    @Before
+    public void setUp() throws RouteNotFoundException {
+        sequentialItems = new ArrayList<>();
+        parallelItems = new ArrayList<>();
+        sequentialRoutes = new ArrayList<>();
+        parallelRoutes = new ArrayList<>();
+        sequentialSensors = new ArrayList<>();
+        parallelSensors = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            build(i, sequentialItems, sequentialRoutes, sequentialSensors);
+            build(i, parallelItems, parallelRoutes, parallelSensors);
+        }
+    }
+
+    private void build(int seed, List<TimedItem> items, List<Route> routes,
+                       List<Sensor> sensors) throws RouteNotFoundException {
+        Intersection to = new Intersection("to" + seed);
+        List<Route> order = new ArrayList<>();
+        for (int k = 0; k < 1 + seed % 4; k++) {
+            Intersection from = new Intersection("from" + seed + "_" + k);
+            to.addConnection(from, 60);
+            Route route = to.getConnection(from);
+            route.addTrafficLight();
+            order.add(route);
+        }
+        IntersectionLights lights = new IntersectionLights(order,
+                1 + seed % 3, 4 + seed % 5);
+        items.add(lights);
+        routes.addAll(order);
+        DemoPressurePad pad = new DemoPressurePad(
+                new int[] {seed, seed + 3, 1, 7, seed % 5}, 9);
+        DemoSpeedCamera camera = new DemoSpeedCamera(
+                new int[] {60, 40, seed}, 60);
+        items.add(pad);
+        items.add(camera);
+        sensors.add(pad);
+        sensors.add(camera);
+    }
+
+    @Test
+    public void parallelMatchesSequentialTest() {
+        ParallelTickEngine engine = new ParallelTickEngine(
+                new ForkJoinPool(4), 3);
+        for (int second = 0; second < 60; second++) {
+            for (TimedItem item : sequentialItems) {
+                item.oneSecond();
+            }
+            engine.tick(parallelItems);
+            for (int i = 0; i < sequentialRoutes.size(); i++) {
+                Assert.assertEquals(
+                        sequentialRoutes.get(i).getTrafficLight().getSignal(),
+                        parallelRoutes.get(i).getTrafficLight().getSignal());
+            }
+            for (int i = 0; i < sequentialSensors.size(); i++) {
+                Assert.assertEquals(
+                        sequentialSensors.get(i).getCongestion(),
+                        parallelSensors.get(i).getCongestion());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidShardSizeTest() {
+        new ParallelTickEngine(ForkJoinPool.commonPool(), 0);
+    }
+}
@@ -0,0 +1,48 @@
+package tms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PersistentArrayTest {
+
+    private List<Integer> range(int size) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    @Test
+    public void getTest() {
+        for (int size : new int[] {0, 1, 31, 32, 33, 1024, 1025, 40000}) {
+            PersistentArray<Integer> array = PersistentArray.of(range(size));
+            Assert.assertEquals(size, array.size());
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(i, (int) array.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void setTest() {
+        PersistentArray<Integer> original = PersistentArray.of(range(5000));
+        PersistentArray<Integer> changed = original.set(4321, -1)
+                .set(0, -2);
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(i, (int) original.get(i));
+        }
+        Assert.assertEquals(-1, (int) changed.get(4321));
+        Assert.assertEquals(-2, (int) changed.get(0));
+        Assert.assertEquals(4320, (int) changed.get(4320));
+        Assert.assertSame(changed, changed.set(0, changed.get(0)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfRangeTest() {
+        PersistentArray.of(range(40)).get(40);
+    }
+}
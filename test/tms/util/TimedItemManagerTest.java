@@ -0,0 +1,148 @@
+package tms.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import tms.network.Network;
+import tms.network.NetworkInitialiser;
+import tms.route.Route;
+import tms.sensors.DemoVehicleCount;
+
+import java.io.IOException;
+import java.util.List;
+
+public class TimedItemManagerTest {
+
+    private Network load(TimedItemManager manager)
+            throws IOException, InvalidNetworkException {
+        return NetworkInitialiser.loadNetwork("networks/demo.txt", null,
+                manager);
+    }
+
+    private String stateOf(Network network) {
+        StringBuilder state = new StringBuilder();
+        for (int i = 0; i < network.getIntersectionCount(); i++) {
+            for (Route route : network.getIncomingRoutes(i)) {
+                state.append(route.getCongestion()).append(',');
+                if (route.getTrafficLight() != null) {
+                    state.append(route.getTrafficLight().getSignal());
+                }
+                state.append(';');
+            }
+        }
+        return state.toString();
+    }
+
+    @Test
+    public void separateManagersTest()
+            throws IOException, InvalidNetworkException {
+        TimedItemManager first = new TimedItemManager();
+        TimedItemManager second = new TimedItemManager();
+        Network running = load(first);
+        Network idle = load(second);
+        Assert.assertSame(first, running.getTimedItemManager());
+        String initial = stateOf(idle);
+        for (int tick = 0; tick < 7; tick++) {
+            first.oneSecond();
+        }
+        Assert.assertEquals(7, first.getTime());
+        Assert.assertEquals(0, second.getTime());
+        Assert.assertEquals(initial, stateOf(idle));
+        Assert.assertNotEquals(initial, stateOf(running));
+        second.advance(7);
+        Assert.assertEquals(stateOf(running), stateOf(idle));
+    }
+
+    @Test
+    public void sharedManagerTest() throws IOException,
+            InvalidNetworkException {
+        Network network = NetworkInitialiser.loadNetwork("networks/demo.txt");
+        Assert.assertSame(TimedItemManager.getTimedItemManager(),
+                network.getTimedItemManager());
+    }
+
+    private static class Counter implements TimedItem {
+        private int seconds;
+
+        @Override
+        public void oneSecond() {
+            seconds++;
+        }
+    }
+
+    @Test
+    public void foreignSensorTest() throws IOException,
+            InvalidNetworkException, IntersectionNotFoundException,
+            RouteNotFoundException, DuplicateSensorException {
+        TimedItemManager manager = new TimedItemManager();
+        Network network = load(manager);
+        DemoVehicleCount shared = new DemoVehicleCount(new int[] {1, 2}, 3);
+        try {
+            network.addSensor("X", "Y", shared);
+            Assert.fail("sensor on the shared manager was accepted");
+        } catch (IllegalArgumentException expected) {
+            Assert.assertTrue(network.getConnection("X", "Y").getSensors()
+                    .isEmpty());
+        }
+        DemoVehicleCount own = new DemoVehicleCount(new int[] {1, 2}, 3,
+                manager);
+        network.addSensor("X", "Y", own);
+        manager.oneSecond();
+        Assert.assertEquals(2, own.countTraffic());
+    }
+
+    @Test
+    public void deregisterTest() {
+        TimedItemManager manager = new TimedItemManager();
+        Counter first = new Counter();
+        Counter second = new Counter();
+        Counter third = new Counter();
+        TimedItemManager.Registration registration =
+                manager.registerTimedItem(first);
+        manager.registerTimedItem(second);
+        manager.registerTimedItem(third);
+        manager.oneSecond();
+        manager.deregister(registration);
+        Assert.assertFalse(registration.isRegistered());
+        Assert.assertFalse(manager.isRegistered(first));
+        Assert.assertTrue(manager.isRegistered(second));
+        manager.deregisterTimedItem(third);
+        manager.oneSecond();
+        Assert.assertEquals(1, first.seconds);
+        Assert.assertEquals(2, second.seconds);
+        Assert.assertEquals(1, third.seconds);
+        Assert.assertEquals(1, manager.getTimedItemCount());
+        manager.deregister(registration);
+        Assert.assertEquals(1, manager.getTimedItemCount());
+    }
+
+    @Test
+    public void replacedLightsTest() throws IOException,
+            InvalidNetworkException, IntersectionNotFoundException,
+            InvalidOrderException {
+        TimedItemManager manager = new TimedItemManager();
+        Network network = load(manager);
+        int count = manager.getTimedItemCount();
+        network.addLights("Y", 5, List.of("X", "Z"));
+        Assert.assertEquals(count, manager.getTimedItemCount());
+    }
+
+    @Test
+    public void discardedNetworkTest() throws IOException,
+            InvalidNetworkException, InterruptedException {
+        TimedItemManager manager = new TimedItemManager();
+        Network kept = load(manager);
+        int count = manager.getTimedItemCount();
+        for (int i = 0; i < 5; i++) {
+            load(manager);
+        }
+        for (int attempt = 0; attempt < 50
+                && manager.getTimedItemCount() > count; attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            manager.oneSecond();
+        }
+        Assert.assertEquals(count, manager.getTimedItemCount());
+        Assert.assertEquals(count, kept.getTimedItemManager()
+                .getTimedItemCount());
+    }
+}
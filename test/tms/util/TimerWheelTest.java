@@ -0,0 +1,79 @@
+package tms.util;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TimerWheelTest {
+    private TimerWheel<Long> wheel;
+    private List<Long> due;
+
+    @Before
+    public void setUp() {
+        wheel = new TimerWheel<>();
+        due = new ArrayList<>();
+    }
+
+    @Test
+    public void dueAtScheduledTimeTest() {
+        Random random = new Random(2002);
+        List<TimerWheel.Timer<Long>> timers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long dueTime = 1 + random.nextInt(i % 3 == 0 ? 300000 : 200);
+            TimerWheel.Timer<Long> timer = new TimerWheel.Timer<>(dueTime);
+            wheel.schedule(timer, dueTime);
+            timers.add(timer);
+        }
+        int fired = 0;
+        while (wheel.getTime() < 300000) {
+            wheel.advance(due);
+            for (long dueTime : due) {
+                Assert.assertEquals(dueTime, wheel.getTime());
+            }
+            fired += due.size();
+            due.clear();
+        }
+        Assert.assertEquals(timers.size(), fired);
+        for (TimerWheel.Timer<Long> timer : timers) {
+            Assert.assertFalse(timer.isScheduled());
+        }
+    }
+
+    @Test
+    public void cancelTest() {
+        TimerWheel.Timer<Long> kept = new TimerWheel.Timer<>(5L);
+        TimerWheel.Timer<Long> cancelled = new TimerWheel.Timer<>(6L);
+        wheel.schedule(kept, 5);
+        wheel.schedule(cancelled, 5);
+        wheel.cancel(cancelled);
+        for (int i = 0; i < 5; i++) {
+            wheel.advance(due);
+        }
+        Assert.assertEquals(1, due.size());
+        Assert.assertEquals(5L, (long) due.get(0));
+    }
+
+    @Test
+    public void rescheduleTest() {
+        TimerWheel.Timer<Long> timer = new TimerWheel.Timer<>(1L);
+        wheel.schedule(timer, 100);
+        wheel.schedule(timer, 3);
+        for (int i = 0; i < 200; i++) {
+            wheel.advance(due);
+            if (wheel.getTime() == 3) {
+                Assert.assertEquals(1, due.size());
+            }
+        }
+        Assert.assertEquals(1, due.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dueInPastTest() {
+        wheel.advance(due);
+        wheel.schedule(new TimerWheel.Timer<>(1L), 1);
+    }
+}